@@ -1,71 +1,109 @@
-package compilemorse;
-import java.util.Map;
-
-/**
- * This alphabet is part of the internal morse alphabet (the whole for now)
- * 
- * @author Kukka
- */
-public class Alphabet {
-    
-    /**
-    * The name for the text alphabet
-    */
-    private String textAlphabetName = "English";
-    
-    /**
-    * The name for the morse alphabet corresponding the text alphabet
-    */
-    private String morseAlphabetName = "Morse";
-    
-    /**
-    * The prototype for the morse alphabet
-    */
-    final private MorseTokenPrototype myMorsePrototype;
-    
-    /**
-    * Internal map for the alphabet.  A map from text token to morse token.  The AlphabetContainer class may either use this 
-    * or build a new collection structure for translating text token to morse tooken, according to what type of collection is preferred.
-    */
-    public Map<String, String> alphabet; // Character or mnemonics, corresponding morse code
-
-    /**
-    * Getter for the text alphabet name
-    * @return The text alphabet name
-    */
-    public String getTextAlphabetName() {
-        return textAlphabetName;
-    }
-
-    /**
-    * Getter for the morse alphabet name
-    * @return The morse alphabet name
-    */
-    public String getMorseAlphabetName() {
-        return morseAlphabetName;
-    }
-
-    /**
-    * Getter for the prototype for the morse alphabet
-    * @return The prototype for the morse alphabet
-    */
-    public MorseTokenPrototype getMyMorsePrototype() {
-        return myMorsePrototype;
-    }
-    
-     /**
-    * Constructor for the alphabet
-    * @param pTextAlphabetName Name for the text alphabet
-    * @param pMorseAlphabetName Name for the morse alphabet
-    * @param pInternalShort character for the short morse character inside the alphabet collection
-    * @param pInternalLong character for the long morse character inside the alphabet collection
-    * @param myMap The map to store the alphabet
-    */
-    Alphabet(String pTextAlphabetName, String pMorseAlphabetName, char pInternalShort, char pInternalLong, Map<String, String> myMap) {
-        textAlphabetName = pTextAlphabetName; // Name of language
-        morseAlphabetName = pMorseAlphabetName; // Name of the corresponding morse alphabet
-        myMorsePrototype = new MorseTokenPrototype (pInternalShort, pInternalLong);
-        alphabet = myMap;
-    }
-
-}
+package compilemorse;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This alphabet is part of the internal morse alphabet (the whole for now)
+ * An alphabet is immutable: the map is copied in the constructor and cannot be modified through the getter,
+ * so an alphabet can be shared by any number of threads and alphabet containers.
+ * 
+ * @author Kukka
+ */
+public class Alphabet {
+    
+    /**
+    * The name for the text alphabet
+    */
+    final private String textAlphabetName;
+    
+    /**
+    * The name for the morse alphabet corresponding the text alphabet
+    */
+    final private String morseAlphabetName;
+    
+    /**
+    * The prototype for the morse alphabet
+    */
+    final private MorseTokenPrototype myMorsePrototype;
+    
+    /**
+    * Internal map for the alphabet.  A map from text token to morse token.  The AlphabetContainer class may either use this 
+    * or build a new collection structure for translating text token to morse tooken, according to what type of collection is preferred.
+    * Unmodifiable, and iterated in the order of the map given to the constructor.
+    */
+    final private Map<String, String> alphabet; // Character or mnemonics, corresponding morse code
+
+    /**
+    * Getter for the text alphabet name
+    * @return The text alphabet name
+    */
+    public String getTextAlphabetName() {
+        return textAlphabetName;
+    }
+
+    /**
+    * Getter for the morse alphabet name
+    * @return The morse alphabet name
+    */
+    public String getMorseAlphabetName() {
+        return morseAlphabetName;
+    }
+
+    /**
+    * Getter for the alphabet map
+    * @return An unmodifiable map from text token to morse token
+    */
+    public Map<String, String> getAlphabetMap() {
+        return alphabet;
+    }
+
+    /**
+    * Getter for the prototype for the morse alphabet
+    * @return The prototype for the morse alphabet
+    */
+    public MorseTokenPrototype getMyMorsePrototype() {
+        return myMorsePrototype;
+    }
+    
+     /**
+    * Constructor for the alphabet
+    * @param pTextAlphabetName Name for the text alphabet
+    * @param pMorseAlphabetName Name for the morse alphabet
+    * @param pInternalShort character for the short morse character inside the alphabet collection
+    * @param pInternalLong character for the long morse character inside the alphabet collection
+    * @param myMap The map of the alphabet, copied so that later changes to it do not change the alphabet
+    */
+    Alphabet(String pTextAlphabetName, String pMorseAlphabetName, char pInternalShort, char pInternalLong, Map<String, String> myMap) {
+        this(pTextAlphabetName, pMorseAlphabetName, new MorseTokenPrototype (pInternalShort, pInternalLong), new LinkedHashMap<>(myMap));
+    }
+    
+    /**
+    * Constructor for the alphabet that keeps the map it is given
+    * @param pTextAlphabetName Name for the text alphabet
+    * @param pMorseAlphabetName Name for the morse alphabet
+    * @param pMorsePrototype The prototype for the morse alphabet
+    * @param myMap The map of the alphabet, not referred to by anyone else
+    */
+    private Alphabet(String pTextAlphabetName, String pMorseAlphabetName, MorseTokenPrototype pMorsePrototype, Map<String, String> myMap) {
+        textAlphabetName = pTextAlphabetName; // Name of language
+        morseAlphabetName = pMorseAlphabetName; // Name of the corresponding morse alphabet
+        myMorsePrototype = pMorsePrototype;
+        alphabet = Collections.unmodifiableMap(myMap);
+    }
+    
+    /**
+    * Creates an alphabet of a map that has been built for it, without copying the map (see AlphabetSnapshot)
+    * @param pTextAlphabetName Name for the text alphabet
+    * @param pMorseAlphabetName Name for the morse alphabet
+    * @param pInternalShort character for the short morse character inside the alphabet collection
+    * @param pInternalLong character for the long morse character inside the alphabet collection
+    * @param newMap The map of the alphabet, which must not be used by the caller afterwards
+    * @return the alphabet
+    */
+    static Alphabet ofNewMap(String pTextAlphabetName, String pMorseAlphabetName, char pInternalShort, char pInternalLong,
+      LinkedHashMap<String, String> newMap) {
+        return new Alphabet(pTextAlphabetName, pMorseAlphabetName, new MorseTokenPrototype (pInternalShort, pInternalLong), newMap);
+    }
+
+}
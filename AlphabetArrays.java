@@ -0,0 +1,200 @@
+package compilemorse;
+import java.util.Map;
+
+/**
+ * Array collections for the alphabet.
+ * Morse tokens are packed into ints (see PackedMorse) and used as indexes to a flat array of text tokens,
+ * and single-character text tokens are used as indexes to an array of morse tokens, so no string is hashed in the lookup.
+ * Multi-character text tokens (mnemonics) and morse tokens too long to be packed are looked up from an AlphabetMaps instance instead.
+ * 
+ * @author Kukka
+ */
+public class AlphabetArrays implements AlphabetCollections {
+    
+    /**
+     * The alphabet stored in these containers
+     */
+    final private Alphabet alphabet;
+    
+    /**
+     * The character corresponding short morse character inside the alphabet collection
+     */
+    final private char internalShort;
+    
+    /**
+     * The character corresponding long morse character inside the alphabet collection
+     */
+    final private char internalLong;
+    
+    /**
+     * Text tokens indexed by the packed morse code, null where there is no text token
+     */
+    final private String[] textByCode;
+    
+    /**
+     * Morse tokens indexed by the single text character, null where there is no morse token
+     */
+    final private String[] morseByCharacter;
+    
+    /**
+     * The containers for the tokens that do not fit into the arrays, built at the first lookup that needs them (see getFallback)
+     */
+    private volatile AlphabetMaps fallback = null;
+
+    @Override
+    public MorseTokenPrototype getInternalPrototype() {
+        return alphabet.getMyMorsePrototype();
+    }
+    
+    @Override
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+    
+    @Override
+    public String getTextAlphabetName() {
+        return alphabet.getTextAlphabetName();
+    }
+
+    @Override
+    public String getMorseAlphabetName() {
+        return alphabet.getMorseAlphabetName();
+    }
+    
+    /**
+    * Builds the arrays from the alphabet
+    * @param pAlphabet An instance of an Alphabet-class containing the text tokens and morse tokens 
+    * @throws IllegalArgumentException when a morse token in the alphabet contains other characters than the internal short and long characters
+    */
+    AlphabetArrays (Alphabet pAlphabet) throws IllegalArgumentException {
+        alphabet = pAlphabet;
+        internalShort = pAlphabet.getMyMorsePrototype().getShortCharacter();
+        internalLong = pAlphabet.getMyMorsePrototype().getLongCharacter();
+        
+        int maxCode = 1;
+        int maxCharacter = -1;
+        for (Map.Entry<String, String> entry : alphabet.getAlphabetMap().entrySet()) {
+            int code = PackedMorse.pack(entry.getValue(), internalShort, internalLong);
+            if (code == PackedMorse.BAD_CHARACTER)
+                throw new IllegalArgumentException("Morse token contains other characters than dashes or dots " + entry.getValue());
+            maxCode = Math.max(maxCode, code);
+            if (entry.getKey().length() == 1)
+                maxCharacter = Math.max(maxCharacter, entry.getKey().charAt(0));
+        }
+        textByCode = new String[maxCode + 1];
+        morseByCharacter = new String[maxCharacter + 1];
+        for (Map.Entry<String, String> entry : alphabet.getAlphabetMap().entrySet()) {
+            int code = PackedMorse.pack(entry.getValue(), internalShort, internalLong);
+            if (code != PackedMorse.INVALID) // The last text token wins if there are duplicate morse tokens, as in the fallback maps
+                textByCode[code] = entry.getKey();
+            if (entry.getKey().length() == 1)
+                morseByCharacter[entry.getKey().charAt(0)] = entry.getValue();
+        }
+    }
+    
+    /**
+    * Builds the collections from precomputed arrays, for instance loaded from a snapshot (see AlphabetSnapshot)
+    * The arrays are taken as they are, so they must have been built from the same alphabet by the other constructor
+    * @param pAlphabet An instance of an Alphabet-class containing the text tokens and morse tokens 
+    * @param pTextByCode Text tokens indexed by the packed morse code
+    * @param pMorseByCharacter Morse tokens indexed by the single text character
+    */
+    AlphabetArrays (Alphabet pAlphabet, String[] pTextByCode, String[] pMorseByCharacter) {
+        alphabet = pAlphabet;
+        internalShort = pAlphabet.getMyMorsePrototype().getShortCharacter();
+        internalLong = pAlphabet.getMyMorsePrototype().getLongCharacter();
+        textByCode = pTextByCode;
+        morseByCharacter = pMorseByCharacter;
+    }
+    
+    /**
+    * Getter for the text tokens indexed by the packed morse code, for writing a snapshot
+    * @return the array itself, must not be modified
+    */
+    String[] getTextByCode() {
+        return textByCode;
+    }
+    
+    /**
+    * Getter for the morse tokens indexed by the single text character, for writing a snapshot
+    * @return the array itself, must not be modified
+    */
+    String[] getMorseByCharacter() {
+        return morseByCharacter;
+    }
+    
+    /**
+    * Getter for the fallback maps, which are built at the first call
+    * Most alphabets need them only for mnemonics and errors, so they are not built with the arrays.
+    * Two threads may build them at the same time, but the maps are immutable and either one will do.
+    * @return the maps of the alphabet
+    */
+    private AlphabetMaps getFallback() {
+        AlphabetMaps myFallback = fallback;
+        if (myFallback == null)
+            fallback = myFallback = new AlphabetMaps(alphabet);
+        return myFallback;
+    }
+    
+    /**
+    * Looks up the text token by the packed code
+    * @param code The packed code, must be positive
+    * @return textToken
+    * @throws IllegalArgumentException when the morse token is not in the collection
+    */
+    private String lookUp(int code) throws IllegalArgumentException {
+        String textToken = (code < textByCode.length) ? textByCode[code] : null;
+        if (textToken == null)
+            throw new IllegalArgumentException("No such morse code " + PackedMorse.unpack(code, internalShort, internalLong));
+        return textToken;
+    }
+    
+    @Override
+    public String morseTokenToTextToken(String morseToken) throws IllegalArgumentException {
+        int code = PackedMorse.pack(morseToken, internalShort, internalLong);
+        if (code < 0) // Too long or bad characters, the fallback has the usual lookup and error messages
+            return getFallback().morseTokenToTextToken(morseToken);
+        return lookUp(code);
+    }
+    
+    @Override
+    public String morseTokenToTextToken(String morseToken, MorseTokenPrototype tokenPrototype) throws IllegalArgumentException {
+        int code = PackedMorse.pack(morseToken, tokenPrototype.getShortCharacter(), tokenPrototype.getLongCharacter());
+        if (code < 0)
+            return getFallback().morseTokenToTextToken(morseToken, tokenPrototype);
+        return lookUp(code);
+    }
+    
+    @Override
+    public String morseTokenToTextToken(char[] buffer, int offset, int length, MorseTokenPrototype tokenPrototype) 
+      throws IllegalArgumentException {
+        int code = PackedMorse.pack(buffer, offset, length, tokenPrototype.getShortCharacter(), tokenPrototype.getLongCharacter());
+        if (code < 0)
+            return getFallback().morseTokenToTextToken(new String(buffer, offset, length), tokenPrototype);
+        return lookUp(code);
+    }
+    
+    @Override
+    public String textTokenToMorseToken (char[] buffer, int offset, int length) throws IllegalArgumentException {
+        if (length == 1) {
+            char c = buffer[offset];
+            String morseToken = (c < morseByCharacter.length) ? morseByCharacter[c] : null;
+            if (morseToken != null)
+                return morseToken;
+        }
+        return textTokenToMorseToken(new String(buffer, offset, length)); // Mnemonics, and the exception for a missing token
+    }
+    
+    @Override
+    public String textTokenToMorseToken (String textToken) throws IllegalArgumentException {
+        if (textToken.length() == 1) {
+            char c = textToken.charAt(0);
+            String morseToken = (c < morseByCharacter.length) ? morseByCharacter[c] : null;
+            if (morseToken == null)
+                throw new IllegalArgumentException("Character or mnemonics not found " + textToken);
+            return morseToken;
+        }
+        return getFallback().textTokenToMorseToken(textToken);
+    }
+   
+}
@@ -1,41 +1,92 @@
-package compilemorse;
-
-/**
- * Interface for the containers where text tokens and the corresponding morse tokens are stored
- * This may or may not use the map where alphabet is stored
- * 
- * @author Kukka
- */
-public interface AlphabetCollections {
-    
-    /**
-    * @return the prototype of the internal lphabet
-    */
-    public MorseTokenPrototype getInternalPrototype();
-    
-    /**
-    * @return the name of the text alphabet
-    */
-    public String getTextAlphabetName();
-    
-    /**
-    * @return the name of the morse alphabet
-    */
-    public String getMorseAlphabetName();
-    
-    /**
-    * Translates the morse token into the corresponding text token
-    * @param morseToken
-    * @return textToken
-    * @throws IllegalArgumentException when the morse token is not in the collection
-    */
-    public String morseTokenToTextToken(String morseToken) throws IllegalArgumentException;
-    
-    /**
-    * Translates the text token into the corresponding morse token
-    * @param textToken
-    * @return morseToken
-    * @throws IllegalArgumentException when the text token is not in the collection
-    */
-    public String textTokenToMorseToken (String textToken) throws IllegalArgumentException;
-}
+package compilemorse;
+
+/**
+ * Interface for the containers where text tokens and the corresponding morse tokens are stored
+ * This may or may not use the map where alphabet is stored
+ * 
+ * @author Kukka
+ */
+public interface AlphabetCollections {
+    
+    /**
+    * @return the prototype of the internal lphabet
+    */
+    public MorseTokenPrototype getInternalPrototype();
+    
+    /**
+    * @return the alphabet the collection has been built from, or null if the collection does not give it
+    * The compiler uses the alphabet to precompute the tokens in the input and output formats.
+    */
+    default public Alphabet getAlphabet() {
+        return null;
+    }
+    
+    /**
+    * @return the name of the text alphabet
+    */
+    public String getTextAlphabetName();
+    
+    /**
+    * @return the name of the morse alphabet
+    */
+    public String getMorseAlphabetName();
+    
+    /**
+    * Translates the morse token into the corresponding text token
+    * @param morseToken
+    * @return textToken
+    * @throws IllegalArgumentException when the morse token is not in the collection
+    */
+    public String morseTokenToTextToken(String morseToken) throws IllegalArgumentException;
+    
+    /**
+    * Translates the morse token, written with the characters of another prototype, into the corresponding text token
+    * The default implementation converts the token to the internal prototype and then looks it up.
+    * Collections that can walk the token directly may override this to avoid building the converted string.
+    * @param morseToken
+    * @param tokenPrototype The prototype the morse token is written in
+    * @return textToken
+    * @throws IllegalArgumentException when the morse token contains other characters than the short and long characters of the prototype
+    * or when the morse token is not in the collection
+    */
+    default public String morseTokenToTextToken(String morseToken, MorseTokenPrototype tokenPrototype) throws IllegalArgumentException {
+        return morseTokenToTextToken(getInternalPrototype().convertToken(morseToken, tokenPrototype));
+    }
+    
+    /**
+    * Translates the text token into the corresponding morse token
+    * @param textToken
+    * @return morseToken
+    * @throws IllegalArgumentException when the text token is not in the collection
+    */
+    public String textTokenToMorseToken (String textToken) throws IllegalArgumentException;
+    
+    /**
+    * Translates the morse token, given as a slice of a buffer and written with the characters of another prototype, into the corresponding text token
+    * The default implementation builds a string of the slice.  Collections that can look up the slice directly may override this.
+    * @param buffer The buffer that contains the morse token
+    * @param offset The index of the first character of the morse token
+    * @param length The number of characters in the morse token
+    * @param tokenPrototype The prototype the morse token is written in
+    * @return textToken
+    * @throws IllegalArgumentException when the morse token contains other characters than the short and long characters of the prototype
+    * or when the morse token is not in the collection
+    */
+    default public String morseTokenToTextToken(char[] buffer, int offset, int length, MorseTokenPrototype tokenPrototype) 
+      throws IllegalArgumentException {
+        return morseTokenToTextToken(new String(buffer, offset, length), tokenPrototype);
+    }
+    
+    /**
+    * Translates the text token, given as a slice of a buffer, into the corresponding morse token
+    * The default implementation builds a string of the slice.  Collections that can look up the slice directly may override this.
+    * @param buffer The buffer that contains the text token
+    * @param offset The index of the first character of the text token
+    * @param length The number of characters in the text token
+    * @return morseToken
+    * @throws IllegalArgumentException when the text token is not in the collection
+    */
+    default public String textTokenToMorseToken (char[] buffer, int offset, int length) throws IllegalArgumentException {
+        return textTokenToMorseToken(new String(buffer, offset, length));
+    }
+}
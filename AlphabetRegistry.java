@@ -0,0 +1,218 @@
+package compilemorse;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of alphabet containers.
+ * The lookup structures of each registered alphabet are built once and shared read-only by all compilers built after that,
+ * so building a compiler does not rebuild the alphabet and its maps.  The translators of a registered alphabet, with the tables
+ * precomputed for the morse characters of the input or the output, are shared in the same way by the compilers with the same settings.
+ * The default alphabet (English and Morse) is registered when the registry is first used.
+ * A custom alphabet is registered once, and then the compilers for its methods are built by method name only, for instance:
+ * AlphabetRegistry.register(new AlphabetBuilder().setTextAlphabetName("Kids").setMorseAlphabetName("OwnMorse")
+ *     .setMyMap(new HashMap<>()).addToken("HI","-").addToken("BYE","o").createAlphabet());
+ * new MorseCompilerBuilder().setMethod("KidsToOwnMorse").createMorseCompiler();
+ * 
+ * @author Kukka
+ */
+public final class AlphabetRegistry {
+    
+    /**
+    * The separator between the alphabet names in a method name
+    */
+    static final String METHOD_SEPARATOR = "To";
+    
+    /**
+    * The registered containers by method name, each container twice (text to morse and morse to text)
+    */
+    private static final ConcurrentHashMap<String, AlphabetCollections> containersByMethod = new ConcurrentHashMap<>();
+    
+    /**
+    * Maximum number of shared translators, since the morse characters may come from the users (see MorseServer)
+    * Translators for other settings are built for each compiler.
+    */
+    static final int MAX_TRANSLATORS = 256;
+    
+    /**
+    * The translators of the registered containers by their settings
+    */
+    private static final ConcurrentHashMap<TranslatorKey, TokenTranslator> translators = new ConcurrentHashMap<>();
+    
+    /**
+    * The container of the default alphabet
+    */
+    private static final AlphabetCollections defaultContainer = register(new AlphabetBuilder().createAlphabet());
+    
+    /**
+    * The settings of a translator: the container, the direction, the morse characters and the conversion to upper case
+    */
+    private static final class TranslatorKey {
+        
+        /**
+        * The container, compared by identity
+        */
+        final private AlphabetCollections container;
+        
+        /**
+        * Tells whether the translator translates text to morse or morse to text
+        */
+        final private boolean toMorse;
+        
+        /**
+        * The short morse character of the output (text to morse) or the input (morse to text)
+        */
+        final private char shortCharacter;
+        
+        /**
+        * The long morse character of the output (text to morse) or the input (morse to text)
+        */
+        final private char longCharacter;
+        
+        /**
+        * Tells whether text tokens are converted to upper case, always false from morse to text
+        */
+        final private boolean textToUpperCase;
+        
+        /**
+        * Constructor for the key
+        * @param pContainer The container
+        * @param pToMorse true from text to morse, false from morse to text
+        * @param pPrototype The prototype of the output (text to morse) or the input (morse to text)
+        * @param pTextToUpperCase Tells whether text tokens are converted to upper case
+        */
+        TranslatorKey(AlphabetCollections pContainer, boolean pToMorse, MorseTokenPrototype pPrototype, boolean pTextToUpperCase) {
+            container = pContainer;
+            toMorse = pToMorse;
+            shortCharacter = pPrototype.getShortCharacter();
+            longCharacter = pPrototype.getLongCharacter();
+            textToUpperCase = pToMorse && pTextToUpperCase;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof TranslatorKey))
+                return false;
+            TranslatorKey key = (TranslatorKey) other;
+            return container == key.container && toMorse == key.toMorse && shortCharacter == key.shortCharacter
+                && longCharacter == key.longCharacter && textToUpperCase == key.textToUpperCase;
+        }
+        
+        @Override
+        public int hashCode() {
+            return ((System.identityHashCode(container) * 31 + shortCharacter) * 31 + longCharacter) * 4 
+                + (toMorse ? 2 : 0) + (textToUpperCase ? 1 : 0);
+        }
+    }
+    
+    /**
+    * No instances, the registry is static
+    */
+    private AlphabetRegistry() {
+    }
+    
+    /**
+    * Registers an alphabet with the default container type (AlphabetMaps)
+    * @param pAlphabet The alphabet
+    * @return the container of the alphabet
+    * @throws IllegalArgumentException if an alphabet with the same names has already been registered, or the alphabet has duplicate text tokens
+    */
+    public static AlphabetCollections register(Alphabet pAlphabet) throws IllegalArgumentException {
+        return register(new AlphabetMaps(pAlphabet));
+    }
+    
+    /**
+    * Registers an alphabet container, for instance new AlphabetTree(alphabet) or new AlphabetArrays(alphabet)
+    * The container must not be changed after registering, since it is shared by all compilers for its methods.
+    * @param pAlphabetCollections The alphabet container
+    * @return the container
+    * @throws IllegalArgumentException if an alphabet with the same names has already been registered, or the method names are not unique
+    */
+    public static AlphabetCollections register(AlphabetCollections pAlphabetCollections) throws IllegalArgumentException {
+        String textName = pAlphabetCollections.getTextAlphabetName();
+        String morseName = pAlphabetCollections.getMorseAlphabetName();
+        String toMorse = textName + METHOD_SEPARATOR + morseName;
+        String toText = morseName + METHOD_SEPARATOR + textName;
+        if (toMorse.equals(toText))
+            throw new IllegalArgumentException("Active method (argument 3 for main) is not unique " + toMorse);
+        synchronized (containersByMethod) {
+            if (containersByMethod.containsKey(toMorse) || containersByMethod.containsKey(toText))
+                throw new IllegalArgumentException("Alphabet already registered " + textName + " " + morseName);
+            containersByMethod.put(toMorse, pAlphabetCollections);
+            containersByMethod.put(toText, pAlphabetCollections);
+        }
+        return pAlphabetCollections;
+    }
+    
+    /**
+    * Getter for the container of a method
+    * @param method The method name, text alphabet name + "To" + morse alphabet name or vice verse
+    * @return The container registered for the method, or null if there is none
+    */
+    public static AlphabetCollections getContainer(String method) {
+        return containersByMethod.get(method);
+    }
+    
+    /**
+    * Getter for the container of an alphabet
+    * @param pAlphabet The alphabet
+    * @return The registered container if it has been built from this very alphabet instance,
+    * otherwise a new AlphabetMaps for the alphabet (not registered, since another alphabet may have the same names)
+    * @throws IllegalArgumentException if the alphabet has duplicate text tokens
+    */
+    public static AlphabetCollections getContainer(Alphabet pAlphabet) throws IllegalArgumentException {
+        AlphabetCollections registered = containersByMethod.get(pAlphabet.getTextAlphabetName() + METHOD_SEPARATOR + pAlphabet.getMorseAlphabetName());
+        if (registered != null && registered.getAlphabet() == pAlphabet)
+            return registered;
+        return new AlphabetMaps(pAlphabet);
+    }
+    
+    /**
+    * Getter for a translator of a container
+    * The translator is shared if the container is registered and there are fewer than MAX_TRANSLATORS shared translators,
+    * since a translator is immutable.  Otherwise it is built for the caller only.
+    * @param pAlphabetCollections The alphabet container
+    * @param toMorse true for a translator from text to morse, false from morse to text
+    * @param prototype The prototype of the output (text to morse) or the input (morse to text)
+    * @param textToUpperCase Tells whether text tokens are converted to upper case before the lookup, used only from text to morse
+    * @return the translator
+    */
+    static TokenTranslator getTranslator(AlphabetCollections pAlphabetCollections, boolean toMorse, MorseTokenPrototype prototype, 
+      boolean textToUpperCase) {
+        String method = pAlphabetCollections.getTextAlphabetName() + METHOD_SEPARATOR + pAlphabetCollections.getMorseAlphabetName();
+        if (containersByMethod.get(method) != pAlphabetCollections) // Not registered, so it is not kept here either
+            return newTranslator(pAlphabetCollections, toMorse, prototype, textToUpperCase);
+        TranslatorKey key = new TranslatorKey(pAlphabetCollections, toMorse, prototype, textToUpperCase);
+        TokenTranslator translator = translators.get(key);
+        if (translator == null) {
+            translator = newTranslator(pAlphabetCollections, toMorse, prototype, textToUpperCase);
+            if (translators.size() < MAX_TRANSLATORS) {
+                TokenTranslator shared = translators.putIfAbsent(key, translator);
+                if (shared != null)
+                    translator = shared;
+            }
+        }
+        return translator;
+    }
+    
+    /**
+    * Builds a translator
+    * @param pAlphabetCollections The alphabet container
+    * @param toMorse true for a translator from text to morse, false from morse to text
+    * @param prototype The prototype of the output (text to morse) or the input (morse to text)
+    * @param textToUpperCase Tells whether text tokens are converted to upper case before the lookup
+    * @return the new translator
+    */
+    private static TokenTranslator newTranslator(AlphabetCollections pAlphabetCollections, boolean toMorse, MorseTokenPrototype prototype, 
+      boolean textToUpperCase) {
+        if (toMorse)
+            return new TextToMorseTranslator(pAlphabetCollections, prototype, textToUpperCase);
+        return new MorseToTextTranslator(pAlphabetCollections, prototype);
+    }
+    
+    /**
+    * Getter for the container of the default alphabet
+    * @return The container of the default alphabet
+    */
+    public static AlphabetCollections getDefaultContainer() {
+        return defaultContainer;
+    }
+}
@@ -0,0 +1,243 @@
+package compilemorse;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Binary snapshot of a fully built AlphabetArrays: the alphabet names, the internal prototype, the tokens
+ * and both precomputed lookup directions (text tokens by packed morse code, morse tokens by text character).
+ * A snapshot is written once by a tool (see SnapshotAlphabet) and loaded with a single read, 
+ * without packing, validating or resolving duplicate morse tokens again.
+ * 
+ * Format (big-endian, strings in the modified UTF-8 of DataOutput.writeUTF):
+ * magic int, version short, text alphabet name, morse alphabet name, internal short char, internal long char,
+ * token count int and for each token the text token and the morse token, in the iteration order of the alphabet,
+ * text-by-code length int, count int and for each entry code int and token index int,
+ * morse-by-character length int, count int and for each entry character char and token index int.
+ * A token index is the position of the token in the list of tokens.
+ * 
+ * @author Kukka
+ */
+public final class AlphabetSnapshot {
+    
+    /**
+    * The first four bytes of a snapshot file, "MRSA"
+    */
+    static final int MAGIC = 0x4D525341;
+    
+    /**
+    * The version of the format.  Version 1 could refer to a wrong morse token when two text tokens had the same morse token.
+    */
+    static final short VERSION = 2;
+    
+    /**
+    * No instances, only static utilities
+    */
+    private AlphabetSnapshot() {
+    }
+    
+    /**
+    * Writes a snapshot of the collections
+    * @param container The alphabet collections
+    * @param file The snapshot file, replaced if it exists
+    * @throws IOException re-thrown from writing
+    */
+    public static void write(AlphabetArrays container, Path file) throws IOException {
+        Files.write(file, toBytes(container));
+    }
+    
+    /**
+    * Serializes the collections
+    * @param container The alphabet collections
+    * @return the snapshot
+    */
+    static byte[] toBytes(AlphabetArrays container) {
+        Alphabet alphabet = container.getAlphabet();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeUTF(alphabet.getTextAlphabetName());
+            out.writeUTF(alphabet.getMorseAlphabetName());
+            out.writeChar(alphabet.getMyMorsePrototype().getShortCharacter());
+            out.writeChar(alphabet.getMyMorsePrototype().getLongCharacter());
+            
+            Map<String, Integer> textIndex = new LinkedHashMap<>();
+            Map<String, Integer> morseIndex = new LinkedHashMap<>();
+            out.writeInt(alphabet.getAlphabetMap().size());
+            for (Map.Entry<String, String> entry : alphabet.getAlphabetMap().entrySet()) {
+                int index = textIndex.size(); // Both tables refer to the position of the token in the list of tokens
+                textIndex.put(entry.getKey(), index);
+                morseIndex.putIfAbsent(entry.getValue(), index);
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+            
+            writeTable(out, container.getTextByCode(), textIndex, false);
+            writeTable(out, container.getMorseByCharacter(), morseIndex, true);
+        }
+        catch (IOException e) { // Not thrown by a byte array
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+    * Writes the non-null entries of a lookup array as indexes to the tokens
+    * @param out The output
+    * @param table The lookup array
+    * @param tokenIndex The index of the first token with each value
+    * @param byCharacter true if the array is indexed by a character, false if by a packed code
+    * @throws IOException re-thrown from the output
+    */
+    private static void writeTable(DataOutputStream out, String[] table, Map<String, Integer> tokenIndex, boolean byCharacter) 
+      throws IOException {
+        int count = 0;
+        for (String token : table)
+            if (token != null)
+                ++count;
+        out.writeInt(table.length);
+        out.writeInt(count);
+        for (int i=0; i<table.length; ++i) {
+            if (table[i] == null)
+                continue;
+            if (byCharacter)
+                out.writeChar(i);
+            else
+                out.writeInt(i);
+            out.writeInt(tokenIndex.get(table[i]));
+        }
+    }
+    
+    /**
+    * Reads a snapshot
+    * @param file The snapshot file
+    * @return the collections, built without packing or validating the tokens again
+    * @throws IOException re-thrown from reading
+    * @throws ParseException if the file is not a snapshot of this version or is truncated, the error offset is the byte position
+    */
+    public static AlphabetArrays read(Path file) throws IOException, ParseException {
+        // A FileInputStream instead of Files.readAllBytes, which would load the classes of the file channels in a fresh JVM
+        try (FileInputStream in = new FileInputStream(file.toFile())) {
+            return fromBytes(in.readAllBytes());
+        }
+    }
+    
+    /**
+    * Deserializes a snapshot
+    * The numbers and strings are read directly from the array, without the per-byte calls of a DataInputStream.
+    * @param snapshot The snapshot
+    * @return the collections
+    * @throws ParseException if the bytes are not a snapshot of this version or are truncated, the error offset is the byte position
+    */
+    static AlphabetArrays fromBytes(byte[] snapshot) throws ParseException {
+        ByteBuffer in = ByteBuffer.wrap(snapshot);
+        try {
+            if (in.getInt() != MAGIC || in.getShort() != VERSION)
+                throw new ParseException("Not an alphabet snapshot of version " + VERSION, 0);
+            String textAlphabetName = readUTF(in);
+            String morseAlphabetName = readUTF(in);
+            char internalShort = in.getChar();
+            char internalLong = in.getChar();
+            
+            int tokenCount = readSize(in, in.remaining() / 4, "token count"); // Each token takes at least the two lengths
+            LinkedHashMap<String, String> alphabetMap = new LinkedHashMap<>(tokenCount * 2);
+            String[] textTokens = new String[tokenCount];
+            String[] morseTokens = new String[tokenCount];
+            for (int i=0; i<tokenCount; ++i) {
+                textTokens[i] = readUTF(in);
+                morseTokens[i] = readUTF(in);
+                alphabetMap.put(textTokens[i], morseTokens[i]);
+            }
+            Alphabet alphabet = Alphabet.ofNewMap(textAlphabetName, morseAlphabetName, internalShort, internalLong, alphabetMap);
+            
+            String[] textByCode = new String[readSize(in, 1 << (PackedMorse.MAX_LENGTH + 1), "code table length")];
+            for (int count = in.getInt(); count > 0; --count) {
+                int code = in.getInt();
+                textByCode[code] = textTokens[in.getInt()];
+            }
+            String[] morseByCharacter = new String[readSize(in, Character.MAX_VALUE + 1, "character table length")];
+            for (int count = in.getInt(); count > 0; --count) {
+                char c = in.getChar();
+                morseByCharacter[c] = morseTokens[in.getInt()];
+            }
+            return new AlphabetArrays(alphabet, textByCode, morseByCharacter);
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            ParseException parseException = new ParseException("Corrupted alphabet snapshot: " + e, in.position());
+            parseException.initCause(e);
+            throw parseException;
+        }
+    }
+    
+    /**
+    * Reads a count or a length, checked before anything is allocated by it
+    * @param in The snapshot, positioned at the count
+    * @param max The largest possible value
+    * @param what The name of the value for the error message
+    * @return the value
+    * @throws ParseException if the value is negative or larger than max, the error offset is the byte position
+    */
+    private static int readSize(ByteBuffer in, int max, String what) throws ParseException {
+        int position = in.position();
+        int size = in.getInt();
+        if (size < 0 || size > max)
+            throw new ParseException("Corrupted alphabet snapshot: " + what + " " + size + " is not between 0 and " + max, position);
+        return size;
+    }
+    
+    /**
+    * Reads a string written by DataOutput.writeUTF: the length in bytes as an unsigned short and the characters in modified UTF-8
+    * @param in The snapshot, positioned at the length
+    * @return the string
+    * @throws IllegalArgumentException if the string is truncated or its bytes are not modified UTF-8
+    */
+    private static String readUTF(ByteBuffer in) throws IllegalArgumentException {
+        int length = in.getShort() & 0xFFFF;
+        int start = in.position();
+        int end = start + length;
+        in.position(end); // Throws IllegalArgumentException if the string is truncated
+        byte[] bytes = in.array();
+        int i = start;
+        while (i < end && bytes[i] >= 0)
+            ++i;
+        if (i == end) // Only ASCII, which is the same in modified UTF-8 and Latin-1
+            return new String(bytes, start, length, StandardCharsets.ISO_8859_1);
+        char[] chars = new char[length];
+        int count = 0;
+        for (i = start; i < end; ) {
+            int b = bytes[i++] & 0xFF;
+            if (b < 0x80)
+                chars[count++] = (char) b;
+            else if ((b & 0xE0) == 0xC0 && i < end)
+                chars[count++] = (char) (((b & 0x1F) << 6) | continuation(bytes[i++]));
+            else if ((b & 0xF0) == 0xE0 && i + 1 < end) {
+                chars[count++] = (char) (((b & 0x0F) << 12) | (continuation(bytes[i]) << 6) | continuation(bytes[i + 1]));
+                i += 2;
+            }
+            else
+                throw new IllegalArgumentException("Malformed string at byte " + (i - 1));
+        }
+        return new String(chars, 0, count);
+    }
+    
+    /**
+    * @param b A byte of a character of two or three bytes in modified UTF-8, after the first one
+    * @return the six bits of the character in the byte
+    * @throws IllegalArgumentException if the byte is not 10xxxxxx
+    */
+    private static int continuation(byte b) throws IllegalArgumentException {
+        if ((b & 0xC0) != 0x80)
+            throw new IllegalArgumentException("Malformed string, byte " + (b & 0xFF) + " is not a continuation byte");
+        return b & 0x3F;
+    }
+}
@@ -0,0 +1,206 @@
+package compilemorse;
+import java.util.Map;
+import java.util.HashMap;
+
+/**
+ * Alphabet collections where the morse side is stored as a dichotomic binary tree.
+ * Short morse character goes to the left child and long morse character to the right child,
+ * so a morse token is translated by walking the tree character by character without building or hashing a string.
+ * The text side is stored in a map as in AlphabetMaps.
+ * 
+ * @author Kukka
+ */
+public class AlphabetTree implements AlphabetCollections {
+    
+    /**
+     * The alphabet stored in these containers
+     */
+    final private Alphabet alphabet;
+    
+    /**
+     * The character corresponding short morse character inside the alphabet collection
+     */
+    final private char internalShort;
+    
+    /**
+     * The character corresponding long morse character inside the alphabet collection
+     */
+    final private char internalLong;
+    
+    /**
+     * The subcontainer where the compiler can find a morse token corresponding a text token
+     */
+    final private Map<String, String> TextToMorseHash = new HashMap<>();
+    
+    /**
+     * Index of the left (short) child of each tree node, 0 when there is no child (the root is never a child)
+     */
+    final private int[] shortChild;
+    
+    /**
+     * Index of the right (long) child of each tree node, 0 when there is no child
+     */
+    final private int[] longChild;
+    
+    /**
+     * Text token stored in each tree node, null when no morse token ends in the node
+     */
+    final private String[] nodeText;
+    
+    /**
+     * Number of nodes in the tree, the root is node 0
+     */
+    private int nodeCount = 1;
+
+    @Override
+    public MorseTokenPrototype getInternalPrototype() {
+        return alphabet.getMyMorsePrototype();
+    }
+    
+    @Override
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+    
+    @Override
+    public String getTextAlphabetName() {
+        return alphabet.getTextAlphabetName();
+    }
+
+    @Override
+    public String getMorseAlphabetName() {
+        return alphabet.getMorseAlphabetName();
+    }
+    
+    /**
+    * Builds the text token map and the morse tree from the alphabet
+    * The tree has at most one node per morse character in the alphabet, so the node arrays are allocated once and never grow,
+    * and the collections are not changed after the constructor.
+    * @param pAlphabet An instance of an Alphabet-class containing the text tokens and morse tokens 
+    * @throws IllegalArgumentException when a morse token in the alphabet contains other characters than the internal short and long characters
+    */
+    AlphabetTree (Alphabet pAlphabet) throws IllegalArgumentException {
+        alphabet = pAlphabet;
+        internalShort = pAlphabet.getMyMorsePrototype().getShortCharacter();
+        internalLong = pAlphabet.getMyMorsePrototype().getLongCharacter();
+        int capacity = 1;
+        for (String morseToken : alphabet.getAlphabetMap().values())
+            capacity += morseToken.length();
+        shortChild = new int[capacity];
+        longChild = new int[capacity];
+        nodeText = new String[capacity];
+        alphabet.getAlphabetMap().entrySet().forEach( (entry) -> {
+            TextToMorseHash.put(entry.getKey(), entry.getValue());
+            addMorseToken(entry.getKey(), entry.getValue());
+        } );
+    }
+    
+    /**
+    * Adds a token to the morse tree, creating the missing nodes on the path
+    * @param textToken The text token to be added
+    * @param morseToken The morse token to be added, corresponding the text token
+    * @throws IllegalArgumentException when the morse token contains other characters than the internal short and long characters
+    */
+    private void addMorseToken(String textToken, String morseToken) throws IllegalArgumentException {
+        int node = 0;
+        for (int i=0; i<morseToken.length(); ++i) {
+            char c = morseToken.charAt(i);
+            int[] children;
+            if (c == internalShort)
+                children = shortChild;
+            else if (c == internalLong)
+                children = longChild;
+            else
+                throw new IllegalArgumentException("Morse token contains other characters than dashes or dots " + c);
+            if (children[node] == 0)
+                children[node] = nodeCount++;
+            node = children[node];
+        }
+        // As in AlphabetMaps, the last text token wins if there are duplicate morse tokens
+        nodeText[node] = textToken;
+    }
+    
+    /**
+    * Walks the tree along the characters of the token
+    * @param token The morse token
+    * @param myShort The short morse character used in the token
+    * @param myLong The long morse character used in the token
+    * @return the text token, or null if the path does not exist, no text token ends there,
+    * or the token contains other characters than myShort and myLong
+    */
+    private String walk(String token, char myShort, char myLong) {
+        int node = 0;
+        for (int i=0; i<token.length() && node >= 0; ++i)
+            node = step(node, token.charAt(i), myShort, myLong);
+        return (node >= 0) ? nodeText[node] : null;
+    }
+    
+    /**
+    * Walks the tree along the characters of the token in the buffer
+    * @param buffer The buffer that contains the morse token
+    * @param offset The index of the first character of the morse token
+    * @param length The number of characters in the morse token
+    * @param myShort The short morse character used in the token
+    * @param myLong The long morse character used in the token
+    * @return the text token, or null as in walk(String, char, char)
+    */
+    private String walk(char[] buffer, int offset, int length, char myShort, char myLong) {
+        int node = 0;
+        for (int i=offset; i<offset+length && node >= 0; ++i)
+            node = step(node, buffer[i], myShort, myLong);
+        return (node >= 0) ? nodeText[node] : null;
+    }
+    
+    /**
+    * Takes one step in the tree
+    * @param node The current node
+    * @param c The morse character
+    * @param myShort The short morse character
+    * @param myLong The long morse character
+    * @return the child node (never the root), or -1 if there is no such child or the character is neither short nor long
+    */
+    private int step(int node, char c, char myShort, char myLong) {
+        int child;
+        if (c == myShort)
+            child = shortChild[node];
+        else if (c == myLong)
+            child = longChild[node];
+        else
+            return -1;
+        return (child == 0) ? -1 : child;
+    }
+    
+    @Override
+    public String morseTokenToTextToken(String morseToken) throws IllegalArgumentException {
+        String textToken = walk(morseToken, internalShort, internalLong);
+        if (textToken == null)
+            throw new IllegalArgumentException("No such morse code " + morseToken);
+        return textToken;
+    }
+    
+    @Override
+    public String morseTokenToTextToken(String morseToken, MorseTokenPrototype tokenPrototype) throws IllegalArgumentException {
+        String textToken = walk(morseToken, tokenPrototype.getShortCharacter(), tokenPrototype.getLongCharacter());
+        if (textToken == null) // convertToken throws for bad characters, and the message is in the internal format, as with the other collections
+            throw new IllegalArgumentException("No such morse code " + getInternalPrototype().convertToken(morseToken, tokenPrototype));
+        return textToken;
+    }
+    
+    @Override
+    public String morseTokenToTextToken(char[] buffer, int offset, int length, MorseTokenPrototype tokenPrototype) 
+      throws IllegalArgumentException {
+        String textToken = walk(buffer, offset, length, tokenPrototype.getShortCharacter(), tokenPrototype.getLongCharacter());
+        if (textToken == null)
+            return morseTokenToTextToken(new String(buffer, offset, length), tokenPrototype); // Throws the same exception as with a string
+        return textToken;
+    }
+    
+    @Override
+    public String textTokenToMorseToken (String textToken) throws IllegalArgumentException {
+        String morseToken = TextToMorseHash.get(textToken);
+        if (morseToken == null)
+            throw new IllegalArgumentException("Character or mnemonics not found " + textToken);
+        return morseToken;
+    }
+   
+}
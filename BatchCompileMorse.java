@@ -0,0 +1,99 @@
+package compilemorse;
+import java.nio.charset.Charset;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.List;
+
+/**
+ * The main class for translating many files in one run.
+ * The alphabet and the compiler are built once and shared by all files, and the files are translated on a bounded pool of worker threads.
+ * Prints one status line per file as it is finished and a summary in the end.
+ * With -Dcompilemorse.metrics=true, the metrics of all files are registered in JMX and printed as one line of JSON in the end.
+ * With -Dcompilemorse.errors=skip, placeholder or reject, the errors in the input are handled by that ErrorPolicy instead of stopping
+ * the translation (the placeholder is # unless -Dcompilemorse.placeholder is given).
+ * With -Dcompilemorse.charset, the files are read and written in that charset instead of the platform charset.
+ * 
+ * @author Kukka
+ */
+public class BatchCompileMorse {
+    
+    /**
+     * Checks arguments, builds the shared controller, translates the files, and prints the status of each file
+     * @param args the command line arguments:
+     * String method name in format [character language]To[morse version] or [morse version]To[Character language]
+     * -d input directory and output directory, or -m manifest file (input file, tab, output file on each line)
+     * optional number of worker threads, default is the number of processors
+     * @throws IllegalArgumentException
+     * @throws NoSuchMethodException
+     * @throws ParseException
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IllegalArgumentException, NoSuchMethodException, ParseException, IOException {
+        String errorMessage = "Usage: BatchCompileMorse translation_method -d indirectory outdirectory [workers] | "
+            + "BatchCompileMorse translation_method -m manifest [workers]";
+        boolean isDirectory = args.length >= 4 && args[1].equals("-d");
+        boolean isManifest = args.length >= 3 && args[1].equals("-m");
+        int workersIndex = isDirectory ? 4 : 3;
+        if (!(isDirectory || isManifest) || args.length > workersIndex + 1) {
+            System.out.println(errorMessage);
+            throw new IllegalArgumentException (errorMessage);
+        }
+        int workers = Runtime.getRuntime().availableProcessors();
+        if (args.length == workersIndex + 1) {
+            try {
+                workers = Integer.parseInt(args[workersIndex]);
+            }
+            catch (NumberFormatException e) {
+                System.out.println(errorMessage);
+                throw new IllegalArgumentException (errorMessage, e);
+            }
+        }
+        
+        IOToCompiler myController;
+        try {
+            myController = new IOToCompilerBuilder().setMethodName(args[0]).setStreaming(true).setMetrics(
+                Boolean.getBoolean("compilemorse.metrics") ? new TranslationMetrics().register("BatchCompileMorse") : null)
+                .setErrorPolicy(ErrorPolicy.valueOf(System.getProperty("compilemorse.errors", "fail_fast").toUpperCase()))
+                .setPlaceholder(System.getProperty("compilemorse.placeholder", "#"))
+                .setCharset(Charset.forName(System.getProperty("compilemorse.charset", Charset.defaultCharset().name()))).createIOToCompiler();
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            throw e;
+        }
+        
+        BatchCompiler batch = new BatchCompiler(myController, workers);
+        List<BatchCompiler.FileResult> results;
+        try {
+            if (isDirectory)
+                results = batch.compileDirectory(args[2], args[3], BatchCompileMorse::printResult);
+            else
+                results = batch.compileManifest(args[2], BatchCompileMorse::printResult);
+        }
+        catch (ParseException e) {
+            System.out.println("Erroneous line in manifest file.");
+            System.out.println(e.getMessage());
+            throw e;
+        }
+        catch (IOException e) {
+            System.out.println("IO exception");
+            System.out.println(e.getMessage());
+            throw e;
+        }
+        
+        long failed = results.stream().filter( (result) -> !result.isSuccess() ).count();
+        System.out.println(results.size() + " files, " + (results.size() - failed) + " translated, " + failed + " failed");
+        if (myController.getMetrics() != null)
+            System.out.println(myController.getMetrics().getSummary());
+        if (failed > 0)
+            System.exit(1);
+    }
+    
+    /**
+     * Prints the status line of one file
+     * @param result the result of the file
+     */
+    private static synchronized void printResult(BatchCompiler.FileResult result) {
+        System.out.println(result);
+    }
+}
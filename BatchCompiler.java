@@ -0,0 +1,262 @@
+package compilemorse;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Translates many files with one shared controller (and so one compiler and one alphabet), on a bounded pool of worker threads.
+ * Each file gets its own status, so one failing file does not stop the others.
+ * The controller must not be changed while the batch is running.
+ * 
+ * @author Kukka
+ */
+public class BatchCompiler {
+    
+    /**
+    * The result of translating one file
+    */
+    public static final class FileResult {
+        
+        /**
+        * The input file name
+        */
+        final private String inputFile;
+        
+        /**
+        * The output file name
+        */
+        final private String outputFile;
+        
+        /**
+        * The exception that stopped the translation, or null if the file was translated
+        */
+        final private Exception error;
+        
+        /**
+        * Time used for the file in milliseconds
+        */
+        final private long millis;
+        
+        /**
+        * Constructor for the result
+        * @param pInputFile The input file name
+        * @param pOutputFile The output file name
+        * @param pError The exception that stopped the translation, or null
+        * @param pMillis Time used for the file in milliseconds
+        */
+        FileResult(String pInputFile, String pOutputFile, Exception pError, long pMillis) {
+            inputFile = pInputFile;
+            outputFile = pOutputFile;
+            error = pError;
+            millis = pMillis;
+        }
+        
+        /**
+        * @return the input file name
+        */
+        public String getInputFile() {
+            return inputFile;
+        }
+        
+        /**
+        * @return the output file name
+        */
+        public String getOutputFile() {
+            return outputFile;
+        }
+        
+        /**
+        * @return the exception that stopped the translation, or null if the file was translated
+        */
+        public Exception getError() {
+            return error;
+        }
+        
+        /**
+        * @return whether the file was translated
+        */
+        public boolean isSuccess() {
+            return error == null;
+        }
+        
+        /**
+        * @return time used for the file in milliseconds
+        */
+        public long getMillis() {
+            return millis;
+        }
+        
+        /**
+        * @return one line status: OK or FAILED, the file names, and the time or the error
+        */
+        @Override
+        public String toString() {
+            if (error == null)
+                return "OK " + inputFile + " -> " + outputFile + " (" + millis + " ms)";
+            String message = error.getMessage();
+            if (error instanceof ParseException)
+                message = message + ", first index in position " + ((ParseException) error).getErrorOffset();
+            return "FAILED " + inputFile + " -> " + outputFile + ": " + error.getClass().getSimpleName() + ": " + message;
+        }
+    }
+    
+    /**
+    * The shared controller
+    */
+    final private IOToCompiler myController;
+    
+    /**
+    * Number of worker threads
+    */
+    final private int workers;
+    
+    /**
+    * Constructor for the batch compiler
+    * @param pController The shared controller, used by all worker threads
+    * @param pWorkers Number of worker threads
+    * @throws IllegalArgumentException if the number of workers is less than 1
+    */
+    public BatchCompiler(IOToCompiler pController, int pWorkers) throws IllegalArgumentException {
+        if (pWorkers < 1)
+            throw new IllegalArgumentException("Number of workers must be at least 1: " + pWorkers);
+        myController = pController;
+        workers = pWorkers;
+    }
+    
+    /**
+    * Translates every file in the input directory (not in its subdirectories) to a file with the same name in the output directory
+    * @param inputDirectory The input directory
+    * @param outputDirectory The output directory, created if it does not exist
+    * @param listener Called from the worker threads as each file is finished, may be null
+    * @return the results in the order of the file names
+    * @throws IOException if the input directory cannot be listed or the output directory cannot be created
+    */
+    public List<FileResult> compileDirectory(String inputDirectory, String outputDirectory, Consumer<FileResult> listener) throws IOException {
+        File[] files = new File(inputDirectory).listFiles(File::isFile);
+        if (files == null)
+            throw new IOException("Cannot list input directory " + inputDirectory);
+        File output = new File(outputDirectory);
+        if (!output.isDirectory() && !output.mkdirs())
+            throw new IOException("Cannot create output directory " + outputDirectory);
+        Arrays.sort(files);
+        List<String> inputFiles = new ArrayList<>();
+        List<String> outputFiles = new ArrayList<>();
+        for (File file : files) {
+            inputFiles.add(file.getPath());
+            outputFiles.add(new File(output, file.getName()).getPath());
+        }
+        return compile(inputFiles, outputFiles, listener);
+    }
+    
+    /**
+    * Translates the files listed in a manifest.  Each line of the manifest has the input file name and the output file name separated by a tab.
+    * Empty lines and lines beginning with # are skipped.
+    * @param manifestFile The manifest file name
+    * @param listener Called from the worker threads as each file is finished, may be null
+    * @return the results in the order of the manifest
+    * @throws IOException if the manifest cannot be read
+    * @throws ParseException if a line of the manifest does not have two file names separated by a tab
+    */
+    public List<FileResult> compileManifest(String manifestFile, Consumer<FileResult> listener) throws IOException, ParseException {
+        List<String> inputFiles = new ArrayList<>();
+        List<String> outputFiles = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(manifestFile))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                ++lineNumber;
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                String[] names = line.split("\t", -1);
+                if (names.length != 2 || names[0].isEmpty() || names[1].isEmpty())
+                    throw new ParseException("Manifest line " + lineNumber + " must be: input file, tab, output file", lineNumber);
+                inputFiles.add(names[0]);
+                outputFiles.add(names[1]);
+            }
+        }
+        return compile(inputFiles, outputFiles, listener);
+    }
+    
+    /**
+    * Translates the input files into the output files on the worker threads
+    * @param inputFiles The input file names
+    * @param outputFiles The output file names, in the same order
+    * @param listener Called from the worker threads as each file is finished, may be null
+    * @return the results in the order of the files
+    * @throws IllegalArgumentException if the lists are of different length
+    */
+    public List<FileResult> compile(List<String> inputFiles, List<String> outputFiles, Consumer<FileResult> listener) 
+      throws IllegalArgumentException {
+        if (inputFiles.size() != outputFiles.size())
+            throw new IllegalArgumentException("Different number of input and output files");
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, Math.max(1, inputFiles.size())));
+        try {
+            List<Future<FileResult>> futures = new ArrayList<>();
+            for (int i=0; i<inputFiles.size(); ++i) {
+                String inputFile = inputFiles.get(i);
+                String outputFile = outputFiles.get(i);
+                futures.add(executor.submit(() -> {
+                    FileResult result = compileFile(inputFile, outputFile);
+                    if (listener != null)
+                        listener.accept(result);
+                    return result;
+                }));
+            }
+            List<FileResult> results = new ArrayList<>();
+            for (int i=0; i<futures.size(); ++i)
+                results.add(waitFor(futures.get(i), inputFiles.get(i), outputFiles.get(i)));
+            return results;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+    * Translates one file
+    * @param inputFile The input file name
+    * @param outputFile The output file name
+    * @return the result
+    */
+    private FileResult compileFile(String inputFile, String outputFile) {
+        long start = System.nanoTime();
+        try {
+            myController.compileTextIO(inputFile, outputFile);
+            return new FileResult(inputFile, outputFile, null, (System.nanoTime() - start) / 1000000);
+        }
+        catch (IOException | ParseException | IllegalArgumentException e) {
+            return new FileResult(inputFile, outputFile, e, (System.nanoTime() - start) / 1000000);
+        }
+    }
+    
+    /**
+    * Waits for the result of one file
+    * @param future The result
+    * @param inputFile The input file name
+    * @param outputFile The output file name
+    * @return the result, or a failed result if the worker was interrupted or failed unexpectedly
+    */
+    private FileResult waitFor(Future<FileResult> future, String inputFile, String outputFile) {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new FileResult(inputFile, outputFile, e, 0);
+        }
+        catch (ExecutionException e) {
+            Exception cause = (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+            return new FileResult(inputFile, outputFile, cause, 0);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package compilemorse;
+
+/**
+ * Scans byte buffers for the bytes that the byte pipeline looks for: line ends, and bytes other than the characters of a morse line.
+ * The scanner is chosen once at startup: VectorByteScanner when the incubating Vector API (jdk.incubator.vector) is available
+ * and has vectors of at least 16 bytes, otherwise ScalarByteScanner.  -Dcompilemorse.vector=false always chooses ScalarByteScanner.
+ * Every method returns the end of the range if nothing is found, so that the results of the implementations are the same.
+ * 
+ * @author Kukka
+ */
+interface ByteScanner {
+    
+    /**
+    * The scanner chosen at startup
+    */
+    ByteScanner DEFAULT = ScalarByteScanner.choose();
+    
+    /**
+    * Tells how many bytes the scanner looks at in one step.  Checking a whole line before tokenizing it costs less than it saves
+    * only if the line is at least this long and the width is more than one.
+    * @return the number of bytes in one step, 1 for a scalar scanner
+    */
+    int getWidth();
+    
+    /**
+    * Finds the first line end
+    * @param buffer The buffer
+    * @param from index of the first byte to scan
+    * @param to index after the last byte to scan
+    * @return the index of the first \n or \r, or to if there is none
+    */
+    int indexOfLineEnd(byte[] buffer, int from, int to);
+    
+    /**
+    * Finds the first byte that is none of the three given bytes
+    * @param buffer The buffer
+    * @param from index of the first byte to scan
+    * @param to index after the last byte to scan
+    * @param first the first allowed byte
+    * @param second the second allowed byte
+    * @param third the third allowed byte
+    * @return the index of the first other byte, or to if there is none
+    */
+    int indexOfOther(byte[] buffer, int from, int to, byte first, byte second, byte third);
+    
+    /**
+    * Finds the first pair of consequtive bytes that are both the given byte
+    * @param buffer The buffer
+    * @param from index of the first byte to scan
+    * @param to index after the last byte to scan
+    * @param value the byte
+    * @return the index of the first byte of the first pair, or to if there is none
+    */
+    int indexOfPair(byte[] buffer, int from, int to, byte value);
+}
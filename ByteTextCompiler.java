@@ -0,0 +1,423 @@
+package compilemorse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * Byte version of the streaming pipeline for files in US-ASCII, ISO-8859-1 or UTF-8 with a one-character input field separator.
+ * Scans the lines and tokenizes them directly on the bytes read from the input stream, looks up the tokens by their bytes,
+ * and writes the translations as precomputed byte sequences, so that the characters are neither decoded nor encoded.
+ * In these charsets \n, \r and an ASCII field separator never occur inside another character, so the lines and tokens are the same
+ * as in the decoded text.
+ * The byte sequences are the translations of the character pipeline encoded in the charset: a single-byte text token is looked up
+ * by its byte, a morse token by its packed code (see PackedMorse).  A token that is not looked up yet is decoded and translated with the
+ * compiler, and its translation is stored, so the output and the exceptions are the same as with StreamingTextCompiler.
+ * The errors stop the translation as with ErrorPolicy.FAIL_FAST.
+ * With metrics, the bytes are counted as characters, and the stages are timed once per line.
+ * The line ends are found with the ByteScanner.  From morse to text with a vector scanner, a line at least one vector long that the scanner finds plain
+ * (only the short and long characters and single field separators, none in the beginning or end of line) is split and packed
+ * in one pass without the tokenizer, since none of the separator rules or character checks can apply to it.  Other lines go through
+ * the tokenizer.  With the scalar scanner, or for a shorter line, checking the line first costs more than it saves,
+ * so those lines go through the tokenizer.
+ *
+ * @author Kukka
+ */
+final class ByteTextCompiler {
+    
+    /**
+    * Initial size of the input buffer, grows if a line does not fit into it
+    */
+    static final int DEFAULT_BUFFER_SIZE = 65536;
+    
+    /**
+    * The compiler to which the tokens that are not looked up yet are delegated
+    */
+    final private MorseCompiler myCompiler;
+    
+    /**
+    * The charset of the input and the output
+    */
+    final private Charset charset;
+    
+    /**
+    * Field separator in output, encoded
+    */
+    final private byte[] outputFieldSeparator;
+    
+    /**
+    * The tokenizer for the one-character input field separator
+    */
+    final private DelimeterTokenizer tokenizer;
+    
+    /**
+    * Tells whether we are compiling from text to morse or morse to text
+    */
+    final private boolean toMorse;
+    
+    /**
+    * The byte of the short morse character in input
+    */
+    final private byte inputShort;
+    
+    /**
+    * The byte of the long morse character in input
+    */
+    final private byte inputLong;
+    
+    /**
+    * The byte of the input field separator
+    */
+    final private byte inputDelimeter;
+    
+    /**
+    * The scanner for line ends and plain morse lines
+    */
+    final private ByteScanner scanner;
+    
+    /**
+    * The shortest line that is checked to be plain morse, lines shorter than the width of the scanner are only tokenized
+    */
+    final private int plainMorseLength;
+    
+    /**
+    * Translations of the single-byte text tokens by the byte, null where the token has not been translated
+    */
+    final private byte[][] translatedByByte = new byte[256][];
+    
+    /**
+    * Translations of the morse tokens by packed code, null where the token has not been translated, grows with the codes
+    */
+    private byte[][] translatedByCode = new byte[64][];
+    
+    /**
+    * The translated line, reused for each line so that a line that fails is not written partially
+    */
+    private byte[] outputLine = new byte[256];
+    
+    /**
+    * Number of bytes in the translated line
+    */
+    private int outputLength;
+    
+    /**
+    * The translation of a token that is not looked up yet, reused from token to token
+    */
+    final private StringBuilder translatedToken = new StringBuilder();
+    
+    /**
+    * The metrics, or null when nothing is counted
+    */
+    final private TranslationMetrics metrics;
+    
+    /**
+    * Counts and times of the current compile call, added to the metrics at its end
+    */
+    private long lines, tokens, unknownTokens, badLines, parseNanos, lookupNanos, writeNanos, bytesIn, bytesOut;
+    
+    /**
+    * Constructor for the byte compiler
+    * @param pCompiler The compiler to which the tokens that are not looked up yet are delegated
+    * @param pInputFieldSeparator Field separator in input
+    * @param pOutputFieldSeparator Field separator in output
+    * @param pCharset The charset of the input and the output
+    * @param pMetrics The metrics, or null
+    * @throws IllegalArgumentException if the byte pipeline cannot be used for the charset, the separator and the compiler
+    */
+    ByteTextCompiler(MorseCompiler pCompiler, String pInputFieldSeparator, String pOutputFieldSeparator, Charset pCharset,
+      TranslationMetrics pMetrics) throws IllegalArgumentException {
+        this(pCompiler, pInputFieldSeparator, pOutputFieldSeparator, pCharset, pMetrics, ByteScanner.DEFAULT);
+    }
+    
+    /**
+    * Constructor for the byte compiler with a given scanner
+    * @param pCompiler The compiler to which the tokens that are not looked up yet are delegated
+    * @param pInputFieldSeparator Field separator in input
+    * @param pOutputFieldSeparator Field separator in output
+    * @param pCharset The charset of the input and the output
+    * @param pMetrics The metrics, or null
+    * @param pScanner The scanner for line ends and plain morse lines
+    * @throws IllegalArgumentException if the byte pipeline cannot be used for the charset, the separator and the compiler
+    */
+    ByteTextCompiler(MorseCompiler pCompiler, String pInputFieldSeparator, String pOutputFieldSeparator, Charset pCharset,
+      TranslationMetrics pMetrics, ByteScanner pScanner) throws IllegalArgumentException {
+        if (!isApplicable(pCharset, pInputFieldSeparator, pCompiler))
+            throw new IllegalArgumentException("Input cannot be translated as bytes in " + pCharset);
+        myCompiler = pCompiler;
+        charset = pCharset;
+        outputFieldSeparator = pOutputFieldSeparator.getBytes(pCharset);
+        tokenizer = new DelimeterTokenizer(pInputFieldSeparator.charAt(0), pCharset.equals(StandardCharsets.UTF_8));
+        toMorse = pCompiler.isToMorse();
+        inputShort = (byte) pCompiler.getInputPrototype().getShortCharacter();
+        inputLong = (byte) pCompiler.getInputPrototype().getLongCharacter();
+        inputDelimeter = (byte) pInputFieldSeparator.charAt(0);
+        scanner = pScanner;
+        plainMorseLength = (!toMorse && pScanner.getWidth() > 1) ? pScanner.getWidth() : Integer.MAX_VALUE;
+        metrics = pMetrics;
+    }
+    
+    /**
+    * Tells whether the byte pipeline gives the same result as the character pipeline
+    * @param charset The charset of the input and the output
+    * @param inputFieldSeparator Field separator in input
+    * @param compiler The compiler
+    * @return true if the charset is US-ASCII, ISO-8859-1 or UTF-8, the input field separator is one character
+    * that is one byte in the charset, and the morse characters of the input are one byte as well
+    */
+    static boolean isApplicable(Charset charset, String inputFieldSeparator, MorseCompiler compiler) {
+        int maxByteCharacter;
+        if (charset.equals(StandardCharsets.ISO_8859_1))
+            maxByteCharacter = 0xFF;
+        else if (charset.equals(StandardCharsets.US_ASCII) || charset.equals(StandardCharsets.UTF_8))
+            maxByteCharacter = 0x7F;
+        else
+            return false;
+        MorseTokenPrototype inputPrototype = compiler.getInputPrototype();
+        return inputFieldSeparator.length() == 1 && inputFieldSeparator.charAt(0) <= maxByteCharacter
+            && inputPrototype.getShortCharacter() <= maxByteCharacter && inputPrototype.getLongCharacter() <= maxByteCharacter;
+    }
+    
+    /**
+    * Reads all lines from the input, translates them, and writes the result to the output
+    * @param input input
+    * @param output output, not flushed here
+    * @throws IOException re-thrown from the input or the output
+    * @throws ParseException when a line is not separated by delimeters in a correct way
+    * @throws IllegalArgumentException when a token cannot be translated
+    */
+    void compile(InputStream input, OutputStream output) throws IOException, ParseException, IllegalArgumentException {
+        lines = tokens = unknownTokens = badLines = parseNanos = lookupNanos = writeNanos = bytesIn = bytesOut = 0;
+        try {
+            compileLines(input, output);
+        }
+        finally {
+            if (metrics != null)
+                metrics.add(lines, tokens, toMorse, unknownTokens, badLines, parseNanos, lookupNanos, writeNanos, bytesIn, bytesOut);
+        }
+    }
+    
+    /**
+    * Reads all lines from the input, translates them, and writes the result to the output
+    * The lines end at \n, \r or \r\n as in StreamingTextCompiler.
+    * @param input input
+    * @param output output
+    * @throws IOException re-thrown from the input or the output
+    * @throws ParseException when a line is not separated by delimeters in a correct way
+    * @throws IllegalArgumentException when a token cannot be translated
+    */
+    private void compileLines(InputStream input, OutputStream output) throws IOException, ParseException, IllegalArgumentException {
+        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+        int filled = 0; // Number of bytes in the buffer
+        int lineStart = 0; // Start of the current line in the buffer
+        int scan = 0; // Where to continue looking for the end of the current line
+        boolean skipLF = false; // The previous line ended with \r, so a \n right after it belongs to the same line end
+        int read;
+        while ((read = input.read(buffer, filled, buffer.length - filled)) != -1) {
+            filled += read;
+            bytesIn += read;
+            if (skipLF && scan < filled) {
+                if (buffer[scan] == '\n')
+                    lineStart = ++scan;
+                skipLF = false;
+            }
+            while (scan < filled) {
+                int lineEnd = scanner.indexOfLineEnd(buffer, scan, filled);
+                if (lineEnd == filled) {
+                    scan = filled;
+                    break;
+                }
+                compileLine(buffer, lineStart, lineEnd, output);
+                scan = lineEnd + 1;
+                if (buffer[lineEnd] == '\r') {
+                    if (scan == filled)
+                        skipLF = true;
+                    else if (buffer[scan] == '\n')
+                        ++scan;
+                }
+                lineStart = scan;
+                if (skipLF)
+                    break;
+            }
+            // Move the unfinished line to the beginning of the buffer, and grow the buffer if the line fills it
+            if (lineStart > 0) {
+                System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+                filled -= lineStart;
+                scan -= lineStart;
+                lineStart = 0;
+            }
+            if (filled == buffer.length)
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        if (lineStart < filled) // The last line does not end with a line separator
+            compileLine(buffer, lineStart, filled, output);
+    }
+    
+    /**
+    * Translates one line and writes it to the output
+    * @param buffer The buffer that contains the line
+    * @param start index of the first byte of the line
+    * @param end index after the last byte of the line
+    * @param output output
+    * @throws IOException re-thrown from the output
+    * @throws ParseException when the line is not separated by delimeters in a correct way
+    * @throws IllegalArgumentException when a token cannot be translated
+    */
+    private void compileLine(byte[] buffer, int start, int end, OutputStream output) throws IOException, ParseException, IllegalArgumentException {
+        outputLength = 0;
+        ++lines;
+        long parsed = 0, started = (metrics != null) ? System.nanoTime() : 0;
+        if (end - start >= plainMorseLength && isPlainMorse(buffer, start, end)) {
+            if (metrics != null)
+                parsed = System.nanoTime();
+            compilePlainMorse(buffer, start, end);
+        }
+        else {
+            int tokenCount;
+            try {
+                tokenCount = tokenizer.tokenize(buffer, start, end);
+            }
+            catch (ParseException e) {
+                ++badLines;
+                throw e;
+            }
+            if (metrics != null)
+                parsed = System.nanoTime();
+            for (int i=0; i<tokenCount; ++i) {
+                if (i > 0)
+                    append(outputFieldSeparator);
+                append(translate(buffer, tokenizer.getTokenOffset(i), tokenizer.getTokenLength(i)));
+            }
+            tokens += tokenCount;
+        }
+        long translated = (metrics != null) ? System.nanoTime() : 0;
+        output.write(outputLine, 0, outputLength);
+        bytesOut += outputLength;
+        if (metrics != null) {
+            long written = System.nanoTime();
+            parseNanos += parsed - started;
+            lookupNanos += translated - parsed;
+            writeNanos += written - translated;
+        }
+    }
+    
+    /**
+    * Tells whether a morse line has only the short and long characters and single field separators, none in the beginning or end of line
+    * Such a line is split into tokens at each separator by the rules of DelimeterTokenizer, and each token can be packed.
+    * @param buffer The buffer that contains the line
+    * @param start index of the first byte of the line
+    * @param end index after the last byte of the line
+    * @return true if the line is plain
+    */
+    private boolean isPlainMorse(byte[] buffer, int start, int end) {
+        return start < end && buffer[start] != inputDelimeter && buffer[end - 1] != inputDelimeter
+            && scanner.indexOfOther(buffer, start, end, inputShort, inputLong, inputDelimeter) == end
+            && scanner.indexOfPair(buffer, start, end, inputDelimeter) == end;
+    }
+    
+    /**
+    * Splits a plain morse line at the field separators and packs the tokens in the same pass, and appends their translations
+    * @param buffer The buffer that contains the line
+    * @param start index of the first byte of the line
+    * @param end index after the last byte of the line
+    * @throws IOException not thrown by the StringBuilder of the translation
+    * @throws IllegalArgumentException when a token cannot be translated
+    */
+    private void compilePlainMorse(byte[] buffer, int start, int end) throws IOException, IllegalArgumentException {
+        int tokenStart = start;
+        int code = 1;
+        for (int i=start; i<end; ++i) {
+            byte b = buffer[i];
+            if (b == inputDelimeter) {
+                appendPlainMorse(buffer, tokenStart, i - tokenStart, code);
+                append(outputFieldSeparator);
+                tokenStart = i + 1;
+                code = 1;
+            }
+            else
+                code = (code << 1) | (b == inputLong ? 1 : 0);
+        }
+        appendPlainMorse(buffer, tokenStart, end - tokenStart, code);
+    }
+    
+    /**
+    * Appends the translation of a token of a plain morse line
+    * @param buffer The buffer that contains the token
+    * @param offset The index of the first byte of the token
+    * @param length The number of bytes in the token
+    * @param code The packed code of the token, valid if the token is not longer than PackedMorse.MAX_LENGTH
+    * @throws IOException not thrown by the StringBuilder of the translation
+    * @throws IllegalArgumentException when the token cannot be translated
+    */
+    private void appendPlainMorse(byte[] buffer, int offset, int length, int code) throws IOException, IllegalArgumentException {
+        ++tokens;
+        byte[] translation = (length <= PackedMorse.MAX_LENGTH && code < translatedByCode.length) ? translatedByCode[code] : null;
+        append((translation != null) ? translation : translate(buffer, offset, length));
+    }
+    
+    /**
+    * Looks up the translation of a token, or translates it with the compiler and stores the translation
+    * @param buffer The buffer that contains the token
+    * @param offset The index of the first byte of the token
+    * @param length The number of bytes in the token
+    * @return the translation in the charset
+    * @throws IOException not thrown by the StringBuilder of the translation
+    * @throws IllegalArgumentException when the token cannot be translated
+    */
+    private byte[] translate(byte[] buffer, int offset, int length) throws IOException, IllegalArgumentException {
+        if (toMorse) {
+            if (length != 1)
+                return translateWithCompiler(buffer, offset, length);
+            int key = buffer[offset] & 0xFF;
+            byte[] translation = translatedByByte[key];
+            if (translation == null)
+                translation = translatedByByte[key] = translateWithCompiler(buffer, offset, length);
+            return translation;
+        }
+        int code = PackedMorse.pack(buffer, offset, length, inputShort, inputLong);
+        if (code <= 0)
+            return translateWithCompiler(buffer, offset, length);
+        if (code < translatedByCode.length && translatedByCode[code] != null)
+            return translatedByCode[code];
+        byte[] translation = translateWithCompiler(buffer, offset, length);
+        if (code >= translatedByCode.length)
+            translatedByCode = Arrays.copyOf(translatedByCode, Integer.highestOneBit(code) << 1);
+        translatedByCode[code] = translation;
+        return translation;
+    }
+    
+    /**
+    * Decodes the token, translates it with the compiler, and encodes the translation
+    * @param buffer The buffer that contains the token
+    * @param offset The index of the first byte of the token
+    * @param length The number of bytes in the token
+    * @return the translation in the charset
+    * @throws IOException not thrown by the StringBuilder of the translation
+    * @throws IllegalArgumentException when the token cannot be translated
+    */
+    private byte[] translateWithCompiler(byte[] buffer, int offset, int length) throws IOException, IllegalArgumentException {
+        char[] token = new String(buffer, offset, length, charset).toCharArray();
+        translatedToken.setLength(0);
+        try {
+            myCompiler.compileToken(token, 0, token.length, translatedToken);
+        }
+        catch (IllegalArgumentException e) {
+            ++unknownTokens;
+            throw e;
+        }
+        return translatedToken.toString().getBytes(charset);
+    }
+    
+    /**
+    * Appends bytes to the translated line
+    * @param bytes The bytes
+    */
+    private void append(byte[] bytes) {
+        if (outputLength + bytes.length > outputLine.length)
+            outputLine = Arrays.copyOf(outputLine, Math.max(outputLength + bytes.length, outputLine.length * 2));
+        System.arraycopy(bytes, 0, outputLine, outputLength, bytes.length);
+        outputLength += bytes.length;
+    }
+}
@@ -0,0 +1,110 @@
+package compilemorse;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writer that writes a file through a direct byte buffer and the file channel.
+ * When the charset is ASCII-compatible, ASCII characters are put into the buffer as bytes directly,
+ * and only the other characters go through the charset encoder.  Unmappable characters are replaced as with FileWriter.
+ * 
+ * @author Kukka
+ */
+final class ChannelFileWriter extends Writer {
+    
+    /**
+    * Size of the direct output buffer
+    */
+    static final int BUFFER_SIZE = 1 << 20;
+    
+    /**
+    * The channel of the output file
+    */
+    final private FileChannel channel;
+    
+    /**
+    * The encoder for the charset
+    */
+    final private CharsetEncoder encoder;
+    
+    /**
+    * Tells whether the charset encodes each character below 0x80 as the byte with the same value
+    */
+    final private boolean asciiCompatible;
+    
+    /**
+    * The direct output buffer
+    */
+    final private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    
+    /**
+    * Constructor for the writer
+    * @param pChannel The channel of the output file, closed when the writer is closed
+    * @param pCharset The charset of the output file
+    */
+    ChannelFileWriter(FileChannel pChannel, Charset pCharset) {
+        channel = pChannel;
+        encoder = pCharset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        asciiCompatible = MappedFileReader.isAsciiCompatible(pCharset);
+    }
+    
+    /**
+    * Writes the buffer to the channel
+    * @throws IOException re-thrown from the channel
+    */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+    
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        int end = off + len;
+        int i = off;
+        if (asciiCompatible) {
+            while (i < end) {
+                char c = cbuf[i];
+                if (c >= 0x80)
+                    break;
+                if (!buffer.hasRemaining())
+                    drain();
+                buffer.put((byte) c);
+                ++i;
+            }
+            if (i == end)
+                return;
+        }
+        // Non-ASCII character or charset: encode the rest of the characters
+        CharBuffer in = CharBuffer.wrap(cbuf, i, end - i);
+        encoder.reset();
+        while (encoder.encode(in, buffer, true).isOverflow())
+            drain();
+        while (encoder.flush(buffer).isOverflow())
+            drain();
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen())
+            return;
+        try {
+            drain();
+        }
+        finally {
+            channel.close();
+        }
+    }
+}
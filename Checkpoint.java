@@ -0,0 +1,214 @@
+package compilemorse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.util.zip.CRC32;
+
+/**
+ * The position up to which an append-only input file has been translated, kept in a small sidecar file of the output
+ * (see IOToCompiler.compileAppendedIO).  The position is always at the end of a line: the input byte offset after the line end,
+ * the lengths of the output and the reject file after its translation, and the number of lines before it.
+ * A checksum of the input bytes just before the offset tells whether the input file is still the one that was translated.
+ * The file is replaced by writing a new file and moving it over the old one, so a checkpoint is never half written.
+ *
+ * Format (big-endian): magic int, version short, input offset long, output length long, reject length long, line count long,
+ * input checksum long.
+ *
+ * @author Kukka
+ */
+final class Checkpoint {
+    
+    /**
+    * The first four bytes of a checkpoint file, "MRSC"
+    */
+    static final int MAGIC = 0x4D525343;
+    
+    /**
+    * The version of the format
+    */
+    static final short VERSION = 1;
+    
+    /**
+    * Number of input bytes before the offset that are included in the checksum
+    */
+    static final int CHECKSUM_BYTES = 256;
+    
+    /**
+    * The checkpoint of a file that has not been translated yet
+    */
+    static final Checkpoint START = new Checkpoint(0, 0, 0, 0, 0);
+    
+    /**
+    * The input byte offset after the last translated line
+    */
+    final private long inputOffset;
+    
+    /**
+    * The length of the output file after the last translated line
+    */
+    final private long outputLength;
+    
+    /**
+    * The length of the reject file after the last translated line, 0 without a reject file
+    */
+    final private long rejectLength;
+    
+    /**
+    * The number of translated lines
+    */
+    final private long lineCount;
+    
+    /**
+    * The checksum of the CHECKSUM_BYTES input bytes before the offset (or of all of them, if there are fewer)
+    */
+    final private long inputChecksum;
+    
+    /**
+    * Constructor for a checkpoint
+    * @param pInputOffset The input byte offset after the last translated line
+    * @param pOutputLength The length of the output file after the last translated line
+    * @param pRejectLength The length of the reject file after the last translated line
+    * @param pLineCount The number of translated lines
+    * @param pInputChecksum The checksum of the input bytes before the offset
+    */
+    Checkpoint(long pInputOffset, long pOutputLength, long pRejectLength, long pLineCount, long pInputChecksum) {
+        inputOffset = pInputOffset;
+        outputLength = pOutputLength;
+        rejectLength = pRejectLength;
+        lineCount = pLineCount;
+        inputChecksum = pInputChecksum;
+    }
+    
+    /**
+    * @return the input byte offset after the last translated line
+    */
+    long getInputOffset() {
+        return inputOffset;
+    }
+    
+    /**
+    * @return the length of the output file after the last translated line
+    */
+    long getOutputLength() {
+        return outputLength;
+    }
+    
+    /**
+    * @return the length of the reject file after the last translated line
+    */
+    long getRejectLength() {
+        return rejectLength;
+    }
+    
+    /**
+    * @return the number of translated lines
+    */
+    long getLineCount() {
+        return lineCount;
+    }
+    
+    /**
+    * Tells whether the input is still the file that was translated up to this checkpoint
+    * @param input The channel of the input file
+    * @return false if the input is shorter than the offset or the CHECKSUM_BYTES bytes before the offset have changed
+    * @throws IOException re-thrown from the channel
+    */
+    boolean matches(FileChannel input) throws IOException {
+        return input.size() >= inputOffset && checksum(input, inputOffset) == inputChecksum;
+    }
+    
+    /**
+    * Computes the checksum of the CHECKSUM_BYTES bytes before the end (or of all of them, if there are fewer)
+    * @param input The channel of the input file
+    * @param end The offset after the last byte
+    * @return the CRC-32 of the bytes
+    * @throws IOException re-thrown from the channel
+    */
+    static long checksum(FileChannel input, long end) throws IOException {
+        long start = Math.max(0, end - CHECKSUM_BYTES);
+        ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+        while (bytes.hasRemaining()) {
+            if (input.read(bytes, start + bytes.position()) < 0)
+                break;
+        }
+        bytes.flip();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+    
+    /**
+    * Reads a checkpoint
+    * @param file The checkpoint file
+    * @return the checkpoint, or START if the file does not exist
+    * @throws IOException re-thrown from reading
+    * @throws ParseException if the file is not a checkpoint of this version, is truncated or has a negative offset, length or count, 
+    * the error offset is the byte position
+    */
+    static Checkpoint read(Path file) throws IOException, ParseException {
+        if (!Files.exists(file))
+            return START;
+        byte[] checkpoint = Files.readAllBytes(file);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint));
+        try {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION)
+                throw new ParseException("Not a checkpoint file of version " + VERSION + ": " + file, 0);
+            return new Checkpoint(readNonNegative(in, 6, file), readNonNegative(in, 14, file), readNonNegative(in, 22, file), 
+                readNonNegative(in, 30, file), in.readLong());
+        }
+        catch (IOException e) {
+            throw new ParseException("Truncated checkpoint file: " + file, checkpoint.length);
+        }
+    }
+    
+    /**
+    * Reads an offset, a length or a count of a checkpoint
+    * @param in The checkpoint, positioned at the value
+    * @param position The byte position of the value, for the error offset
+    * @param file The checkpoint file, for the error message
+    * @return the value
+    * @throws IOException re-thrown from reading
+    * @throws ParseException if the value is negative
+    */
+    private static long readNonNegative(DataInputStream in, int position, Path file) throws IOException, ParseException {
+        long value = in.readLong();
+        if (value < 0)
+            throw new ParseException("Negative offset, length or count " + value + " in checkpoint file: " + file, position);
+        return value;
+    }
+    
+    /**
+    * Writes the checkpoint to a new file next to the checkpoint file and moves it over the checkpoint file
+    * @param file The checkpoint file, replaced if it exists
+    * @throws IOException re-thrown from writing
+    */
+    void write(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(inputOffset);
+            out.writeLong(outputLength);
+            out.writeLong(rejectLength);
+            out.writeLong(lineCount);
+            out.writeLong(inputChecksum);
+        }
+        Path newFile = file.resolveSibling(file.getFileName() + ".new");
+        Files.write(newFile, bytes.toByteArray());
+        try {
+            Files.move(newFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(newFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -1,106 +1,115 @@
-package compilemorse;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.text.ParseException;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-
-/**
- * The main class takes care about the UI for now.
- * Main class checks arguments except that it delegates method name check to the compiler.
- * The class takes care about reading from and writing into a text file.
- * Each line in the text file is processed as one message.
- * Error processing is performed here as well.
- * 
- * @author Kukka
- */
-public class CompileMorse {
-    
-    
-    /**
-     * Checks arguments (delegates the third argument check), does the necessary building, forwards control to a controller, and does error processing
-     * @param args the command line arguments:
-     * String input file name
-     * String output file name
-     * String method name in format [character language]To[morse version] or [morse version]To[Character language]
-     * @throws IllegalArgumentException
-     * @throws NoSuchMethodException
-     * @throws FileNotFoundException
-     * @throws ParseException
-     * @throws IOException
-     * @throws IllegalAccessException
-     * @throws InvocationTargetException
-     */
-    public static void main(String[] args) throws IllegalArgumentException, NoSuchMethodException, FileNotFoundException, 
-            ParseException , IOException, IllegalAccessException, InvocationTargetException  {
-        
-        IOToCompiler myController;
-        
-        java.io.BufferedReader inputReader = new BufferedReader(new InputStreamReader(System.in));
-        System.out.println("Input file: ");
-        String inputPath = inputReader.readLine();
-        System.out.println("Output file: ");
-        String outputPath = inputReader.readLine();
-        String desiredMethod = " ";
-        while ( ! (desiredMethod.equals("E") || desiredMethod.equals("M") ) ) {
-            System.out.println ("Translation direction : E = Englisn to morse, M = morse to English");
-            desiredMethod = inputReader.readLine().toUpperCase();     
-        }
-        String myMethod = (desiredMethod.equals("E") ? "EnglishToMorse" : "MorseToEnglish");
-    
-        if (args != null && args.length != 0) {
-            String errorMessage = "Usage: CompileMorse ";
-            System.out.println(errorMessage);
-            throw new IllegalArgumentException (errorMessage);
-        }
-        
-        try {
-            myController = new IOToCompilerBuilder().setMethodName(myMethod).createIOToCompiler();
-        }
-        catch (IllegalArgumentException e) {
-            System.out.println(e.getMessage());
-            throw e;
-        }
-        catch (NoSuchMethodException e) {
-            System.out.println("Problems in finding method "+ myMethod);
-            System.out.println(e.getMessage());
-            throw e;
-        }
-        
-        try {
-            myController.compileTextIO(inputPath, outputPath);
-        } 
-        catch (FileNotFoundException e) {
-            System.out.println("File not found");
-            System.out.println(e.getMessage());
-            throw e;
-        }
-        catch (ParseException e) {
-            System.out.println("Erroneous input line in input file.");
-            System.out.println(e.getMessage());
-            System.out.println("first index in position " + e.getErrorOffset());
-            throw e;
-        }
-        catch (IOException e) {
-            System.out.println("IO exception");
-            System.out.println(e.getMessage());
-            throw e;
-        }
-        catch (IllegalAccessException e) {
-            System.out.println("Problems with access to the method choesn");
-            System.out.println(e.getMessage());
-            throw e;
-        }
-        catch (InvocationTargetException e) {
-            System.out.println("Problems with invocation of the method choesn");
-            System.out.println(e.getMessage());
-            throw e;
-        }
-        catch (IllegalArgumentException e) {
-            System.out.println(e.getMessage());
-            throw e;
-        }
-    }
-    
-}
+package compilemorse;
+import java.nio.charset.Charset;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.text.ParseException;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+
+/**
+ * The main class takes care about the UI for now.
+ * Main class checks arguments except that it delegates method name check to the compiler.
+ * The class takes care about reading from and writing into a text file.
+ * Each line in the text file is processed as one message.
+ * Error processing is performed here as well.
+ * With -Dcompilemorse.metrics=true, the metrics of the translation are registered in JMX and printed as one line of JSON in the end.
+ * With -Dcompilemorse.errors=skip, placeholder or reject, the errors in the input are handled by that ErrorPolicy instead of stopping
+ * the translation (the placeholder is # unless -Dcompilemorse.placeholder is given).
+ * With -Dcompilemorse.charset, the files are read and written in that charset instead of the platform charset.
+ * With -Dcompilemorse.resume=true, only the lines appended to the input file since the previous run are translated and appended 
+ * to the output file (see IOToCompiler.compileAppendedIO).
+ * With -Dcompilemorse.follow=milliseconds, the input file is followed as it grows, and its new lines are translated 
+ * until the program is stopped, polling the file with that interval (see IOToCompiler.followIO).
+ * 
+ * @author Kukka
+ */
+public class CompileMorse {
+    
+    
+    /**
+     * Checks arguments (delegates the third argument check), does the necessary building, forwards control to a controller, and does error processing
+     * @param args the command line arguments:
+     * String input file name
+     * String output file name
+     * String method name in format [character language]To[morse version] or [morse version]To[Character language]
+     * @throws IllegalArgumentException
+     * @throws NoSuchMethodException
+     * @throws FileNotFoundException
+     * @throws ParseException
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IllegalArgumentException, NoSuchMethodException, FileNotFoundException, 
+            ParseException , IOException  {
+        
+        IOToCompiler myController;
+        
+        java.io.BufferedReader inputReader = new BufferedReader(new InputStreamReader(System.in));
+        System.out.println("Input file: ");
+        String inputPath = inputReader.readLine();
+        System.out.println("Output file: ");
+        String outputPath = inputReader.readLine();
+        String desiredMethod = " ";
+        while ( ! (desiredMethod.equals("E") || desiredMethod.equals("M") ) ) {
+            System.out.println ("Translation direction : E = Englisn to morse, M = morse to English");
+            desiredMethod = inputReader.readLine().toUpperCase();     
+        }
+        String myMethod = (desiredMethod.equals("E") ? "EnglishToMorse" : "MorseToEnglish");
+    
+        if (args != null && args.length != 0) {
+            String errorMessage = "Usage: CompileMorse ";
+            System.out.println(errorMessage);
+            throw new IllegalArgumentException (errorMessage);
+        }
+        
+        TranslationMetrics metrics = Boolean.getBoolean("compilemorse.metrics") ? new TranslationMetrics().register("CompileMorse") : null;
+        try {
+            myController = new IOToCompilerBuilder().setMethodName(myMethod).setMetrics(metrics)
+                .setErrorPolicy(ErrorPolicy.valueOf(System.getProperty("compilemorse.errors", "fail_fast").toUpperCase()))
+                .setPlaceholder(System.getProperty("compilemorse.placeholder", "#"))
+                .setCharset(Charset.forName(System.getProperty("compilemorse.charset", Charset.defaultCharset().name()))).createIOToCompiler();
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            throw e;
+        }
+        catch (NoSuchMethodException e) {
+            System.out.println("Problems in finding method "+ myMethod);
+            System.out.println(e.getMessage());
+            throw e;
+        }
+        
+        try {
+            if (System.getProperty("compilemorse.follow") != null)
+                myController.followIO(inputPath, outputPath, Long.parseLong(System.getProperty("compilemorse.follow")));
+            else if (Boolean.getBoolean("compilemorse.resume"))
+                System.out.println(myController.compileAppendedIO(inputPath, outputPath) + " new lines translated");
+            else
+                myController.compileTextIO(inputPath, outputPath);
+        } 
+        catch (FileNotFoundException e) {
+            System.out.println("File not found");
+            System.out.println(e.getMessage());
+            throw e;
+        }
+        catch (ParseException e) {
+            System.out.println("Erroneous input line in input file.");
+            System.out.println(e.getMessage());
+            System.out.println("first index in position " + e.getErrorOffset());
+            throw e;
+        }
+        catch (IOException e) {
+            System.out.println("IO exception");
+            System.out.println(e.getMessage());
+            throw e;
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            throw e;
+        }
+        finally {
+            if (metrics != null)
+                System.out.println(metrics.getSummary());
+        }
+    }
+    
+}
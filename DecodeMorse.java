@@ -0,0 +1,81 @@
+package compilemorse;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.text.ParseException;
+
+/**
+ * The main class for decoding morse audio (16-bit PCM WAV) into text.
+ * The input is a file, or standard input when the input file name is -, so that a recording can be piped in while it is made.
+ * The output is a file, or standard output when the output file name is -.  Each decoded word is written on its own line.
+ * 
+ * @author Kukka
+ */
+public class DecodeMorse {
+    
+    /**
+     * Checks arguments, builds the controller and the decoder, and decodes the audio
+     * @param args the command line arguments:
+     * String method name in format [morse version]To[Character language]
+     * String input WAV file name, or - for standard input
+     * String output file name, or - for standard output
+     * optional tone frequency in hertz (default 600) and initial speed in words per minute (default 20)
+     * @throws IllegalArgumentException
+     * @throws NoSuchMethodException
+     * @throws FileNotFoundException
+     * @throws ParseException
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IllegalArgumentException, NoSuchMethodException, FileNotFoundException, 
+            ParseException, IOException {
+        String errorMessage = "Usage: DecodeMorse translation_method inputfile|- outputfile|- [frequency [wpm]]";
+        if (args.length < 3 || args.length > 5) {
+            System.out.println(errorMessage);
+            throw new IllegalArgumentException (errorMessage);
+        }
+        
+        IOToCompiler myController;
+        MorseAudioDecoderBuilder decoderBuilder = new MorseAudioDecoderBuilder();
+        try {
+            myController = new IOToCompilerBuilder().setMethodName(args[0]).createIOToCompiler();
+            if (args.length > 3)
+                decoderBuilder.setFrequency(Double.parseDouble(args[3]));
+            if (args.length > 4)
+                decoderBuilder.setWordsPerMinute(Double.parseDouble(args[4]));
+        }
+        catch (IllegalArgumentException e) { // Also NumberFormatException
+            System.out.println(e.getMessage());
+            throw e;
+        }
+        
+        try (InputStream audio = new BufferedInputStream(args[1].equals("-") ? System.in : new FileInputStream(args[1]), 65536);
+          BufferedWriter output = new BufferedWriter(args[2].equals("-") ? new OutputStreamWriter(System.out) : new FileWriter(args[2]))) {
+            myController.decodeAudio(audio, output, decoderBuilder);
+        }
+        catch (FileNotFoundException e) {
+            System.err.println("File not found");
+            System.err.println(e.getMessage());
+            throw e;
+        }
+        catch (ParseException e) {
+            System.err.println("Erroneous WAV input.");
+            System.err.println(e.getMessage());
+            System.err.println("first index in position " + e.getErrorOffset());
+            throw e;
+        }
+        catch (IOException e) {
+            System.err.println("IO exception");
+            System.err.println(e.getMessage());
+            throw e;
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package compilemorse;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * Single-pass tokenizer for lines where the field separator is one character.
+ * Follows the same rules as ParseUtilities.ParseDelimeters: tokens are separated by one delimeter, 
+ * three delimeters between tokens (two or three in the beginning or end of line, one to three alone in the line) 
+ * mean a token that is the delimeter character itself, and four or more consequtive delimeters are an error.
+ * Walks the line once and records the boundaries (offset and length) of the tokens instead of building strings.
+ * A token that is the delimeter character itself points to one of its escaping delimeters.
+ * The boundaries are reused from line to line, so an instance must not be shared between threads.
+ * 
+ * @author Kukka
+ */
+final class DelimeterTokenizer implements LineTokenizer {
+    
+    /**
+    * The delimeter character
+    */
+    final private char delimeter;
+    
+    /**
+    * Tells whether the lines of bytes are UTF-8, in which case the error offsets are converted from bytes to characters
+    */
+    final private boolean utf8;
+    
+    /**
+    * Offsets of the tokens in the buffer
+    */
+    private int[] offsets = new int[64];
+    
+    /**
+    * Lengths of the tokens
+    */
+    private int[] lengths = new int[64];
+    
+    /**
+    * Number of tokens in the last tokenized line
+    */
+    private int tokenCount = 0;
+    
+    /**
+    * Message of the error of four or more consequtive delimeters
+    */
+    final private String tooManyDelimetersError;
+    
+    /**
+    * Message of the error found by the last tryTokenize, or null
+    */
+    private String error = null;
+    
+    /**
+    * Index of the error found by the last tryTokenize in the buffer
+    */
+    private int errorPosition;
+    
+    /**
+    * Number of delimeters in the beginning of the line that are not counted in the offset of the error found by the last tryTokenize
+    */
+    private int errorSkipped;
+    
+    /**
+    * Buffer for tokenizing strings and lines of bytes as characters, reused from line to line
+    */
+    private char[] lineBuffer = new char[256];
+    
+    /**
+    * Constructor for the tokenizer
+    * @param pDelimeter The delimeter character
+    */
+    DelimeterTokenizer(char pDelimeter) {
+        this(pDelimeter, false);
+    }
+    
+    /**
+    * Constructor for the tokenizer
+    * @param pDelimeter The delimeter character
+    * @param pUtf8 true if the lines of bytes are UTF-8, false if each byte is one character
+    */
+    DelimeterTokenizer(char pDelimeter, boolean pUtf8) {
+        delimeter = pDelimeter;
+        utf8 = pUtf8;
+        tooManyDelimetersError = "Parse error: input string contains at least one " + pDelimeter + pDelimeter + pDelimeter + pDelimeter;
+    }
+    
+    /**
+    * @return the number of tokens in the last tokenized line
+    */
+    @Override
+    public int getTokenCount() {
+        return tokenCount;
+    }
+    
+    /**
+    * @param i index of the token
+    * @return the offset of the token in the buffer
+    */
+    @Override
+    public int getTokenOffset(int i) {
+        return offsets[i];
+    }
+    
+    /**
+    * @param i index of the token
+    * @return the length of the token
+    */
+    @Override
+    public int getTokenLength(int i) {
+        return lengths[i];
+    }
+    
+    /**
+    * Records a token
+    * @param offset The offset of the token in the buffer
+    * @param length The length of the token
+    */
+    private void addToken(int offset, int length) {
+        if (tokenCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, tokenCount * 2);
+            lengths = Arrays.copyOf(lengths, tokenCount * 2);
+        }
+        offsets[tokenCount] = offset;
+        lengths[tokenCount] = length;
+        ++tokenCount;
+    }
+    
+    /**
+    * Tokenizes a string.  The token offsets are indexes in the string.
+    * @param line The line
+    * @return the number of tokens
+    * @throws ParseException when the tokens are not separated by delimeters in a correct way
+    */
+    int tokenize(String line) throws ParseException {
+        int length = line.length();
+        if (length > lineBuffer.length)
+            lineBuffer = new char[Math.max(length, lineBuffer.length * 2)];
+        line.getChars(0, length, lineBuffer, 0);
+        return tokenize(lineBuffer, 0, length);
+    }
+    
+    /**
+    * Tokenizes one line in a buffer.  The token offsets are indexes in the buffer.
+    * The exceptions and their offsets (relative to start) are the same as with ParseUtilities.ParseDelimeters(String, String).
+    * @param buffer The buffer that contains the line
+    * @param start index of the first character of the line
+    * @param end index after the last character of the line
+    * @return the number of tokens
+    * @throws ParseException when the tokens are not separated by delimeters in a correct way
+    */
+    @Override
+    public int tokenize(char[] buffer, int start, int end) throws ParseException {
+        int errorOffset = tryTokenize(buffer, start, end);
+        if (errorOffset >= 0)
+            throw new ParseException(error, errorOffset);
+        return tokenCount;
+    }
+    
+    /**
+    * Tokenizes one line in a buffer as tokenize, but tells about an error by the return value and getError
+    * @param buffer The buffer that contains the line
+    * @param start index of the first character of the line
+    * @param end index after the last character of the line
+    * @return -1 if the line was tokenized, otherwise the offset of the error (relative to start) as in tokenize
+    */
+    @Override
+    public int tryTokenize(char[] buffer, int start, int end) {
+        tokenCount = 0;
+        error = null;
+        if (start == end) // Empty line, no tokens
+            return -1;
+        
+        // Delimeters in the beginning of line
+        int i = start;
+        while (i < end && buffer[i] == delimeter)
+            ++i;
+        int leadingRun = i - start;
+        if (leadingRun >= 4)
+            return fail(tooManyDelimetersError, start, start, 0);
+        if (i == end) { // Nothing but 1-3 delimeters, so the line is one token with the same value as delimeter
+            addToken(start, 1);
+            return -1;
+        }
+        if (leadingRun >= 2) // 2-3 delimeters in the beginning, the first token is the delimeter
+            addToken(start, 1);
+        
+        // Tokens and the delimeters between them.  Two delimeters between tokens is an error, but four or more delimeters
+        // anywhere in the line is checked first, so the error is given only after the whole line has been walked.
+        int firstDoubleRun = -1; // First run of two or three delimeters between tokens
+        boolean hasTwoRun = false; // Whether there is a run of exactly two delimeters between tokens
+        int tokenStart = i;
+        while (i < end) {
+            if (buffer[i] != delimeter) {
+                ++i;
+                continue;
+            }
+            int runStart = i;
+            do {
+                ++i;
+            } while (i < end && buffer[i] == delimeter);
+            int run = i - runStart;
+            if (run >= 4)
+                return fail(tooManyDelimetersError, start, runStart, 0);
+            addToken(tokenStart, runStart - tokenStart);
+            if (i == end) { // Delimeters in the end of line, 2-3 mean that the last token is the delimeter
+                if (run >= 2)
+                    addToken(runStart, 1);
+                tokenStart = end;
+                break;
+            }
+            if (run >= 2) {
+                if (firstDoubleRun < 0)
+                    firstDoubleRun = runStart;
+                if (run == 2)
+                    hasTwoRun = true;
+                else // Three delimeters between tokens, the delimeter in the middle is a token
+                    addToken(runStart + 1, 1);
+            }
+            tokenStart = i;
+        }
+        if (tokenStart < end)
+            addToken(tokenStart, end - tokenStart);
+        
+        // The offset is given in the line from which 1-2 delimeters have been removed from the beginning, as in ParseDelimeters
+        if (hasTwoRun)
+            return fail("Parse error: two consequtive delemeters in input string at least once", 
+                start, firstDoubleRun, (leadingRun == 3 ? 2 : (leadingRun > 0 ? 1 : 0)));
+        return -1;
+    }
+    
+    /**
+    * Tokenizes one line in a byte buffer, with the same rules and errors as tokenize
+    * Each byte is one character, or the line is UTF-8 if the tokenizer was constructed for it, and the error offset is then
+    * converted to characters.  The delimeter must be a character below 0x80 for UTF-8 and below 0x100 otherwise.
+    * @param buffer The buffer that contains the line
+    * @param start index of the first byte of the line
+    * @param end index after the last byte of the line
+    * @return the number of tokens
+    * @throws ParseException when the tokens are not separated by delimeters in a correct way
+    */
+    int tokenize(byte[] buffer, int start, int end) throws ParseException {
+        int errorOffset = tryTokenize(buffer, start, end);
+        if (errorOffset >= 0)
+            throw new ParseException(error, errorOffset);
+        return tokenCount;
+    }
+    
+    /**
+    * Tokenizes one line in a byte buffer as tokenize(byte[], int, int), but tells about an error by the return value and getError
+    * The bytes are widened to characters at the same indexes and walked by tryTokenize(char[], int, int), so the token boundaries
+    * are indexes in the byte buffer.  The delimeter is below 0x80 in UTF-8, so it is never a part of a character of several bytes.
+    * @param buffer The buffer that contains the line
+    * @param start index of the first byte of the line
+    * @param end index after the last byte of the line
+    * @return -1 if the line was tokenized, otherwise the offset of the error (relative to start) as in tokenize
+    */
+    int tryTokenize(byte[] buffer, int start, int end) {
+        if (end > lineBuffer.length)
+            lineBuffer = new char[Math.max(end, lineBuffer.length * 2)];
+        for (int i=start; i<end; ++i)
+            lineBuffer[i] = (char) (buffer[i] & 0xFF);
+        int errorOffset = tryTokenize(lineBuffer, start, end);
+        if (errorOffset < 0 || !utf8)
+            return errorOffset;
+        return charOffset(buffer, start, errorPosition) - errorSkipped;
+    }
+    
+    /**
+    * Converts a position in a line of UTF-8 into the number of characters before it, as in the character pipeline
+    * Used only for errors, so counting the characters of UTF-8 does not slow down the lines without errors.
+    * @param buffer The buffer that contains the line
+    * @param start index of the first byte of the line
+    * @param position index of the byte in the buffer
+    * @return the number of characters between start and position: one for each byte that begins a character,
+    * two for a character of four bytes (a surrogate pair)
+    */
+    private static int charOffset(byte[] buffer, int start, int position) {
+        int chars = 0;
+        for (int i=start; i<position; ++i) {
+            int b = buffer[i] & 0xFF;
+            if ((b & 0xC0) != 0x80) // Not a continuation byte
+                chars += (b >= 0xF0) ? 2 : 1;
+        }
+        return chars;
+    }
+    
+    /**
+    * @return the message of the error found by the last tryTokenize, or null if there was none
+    */
+    @Override
+    public String getError() {
+        return error;
+    }
+    
+    /**
+    * Records an error of the line
+    * @param message The message of the error
+    * @param start index of the first character of the line
+    * @param position index of the error in the buffer
+    * @param skipped Number of delimeters in the beginning of the line that are not counted in the offset
+    * @return the offset of the error in the line
+    */
+    private int fail(String message, int start, int position, int skipped) {
+        error = message;
+        errorPosition = position;
+        errorSkipped = skipped;
+        return position - start - skipped;
+    }
+}
@@ -0,0 +1,32 @@
+package compilemorse;
+
+/**
+ * What the translation does with a token that is not in the alphabet and with a line that is not separated by delimeters in a correct way.
+ * Except with FAIL_FAST, the errors are found from the return values of the tokenizer and the translator and not from exceptions,
+ * so that a file with errors is translated as fast as a file without them.
+ *
+ * @author Kukka
+ */
+public enum ErrorPolicy {
+
+    /**
+    * The first error stops the translation with an exception, the lines before it have been written
+    */
+    FAIL_FAST,
+
+    /**
+    * A token that cannot be translated is left out of the output line, and a line that cannot be parsed is left out of the output
+    */
+    SKIP,
+
+    /**
+    * A token that cannot be translated is replaced by the placeholder, and a line that cannot be parsed by one placeholder
+    */
+    PLACEHOLDER,
+
+    /**
+    * A line with an error is left out of the output and written to the reject file with its line number,
+    * the offset of the first error in the line and the reason
+    */
+    REJECT
+}
@@ -1,135 +1,673 @@
-package compilemorse;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.text.ParseException;
-
-/**
- * Takes input, perpares it, and delegates it to the compiler and takes output from the compiler, prepares it, and forwards it
- * 
- * @author Kukka
- */
-public class IOToCompiler {
-    
-    /**
-    * Default value for field separator in input file (used when reading input file)
-    */
-    final private String inputFieldSeparator;
-    
-    /**
-    * Default value for field separator in output file (used when writing output file)
-    */
-    final private String outputFieldSeparator;
-    
-    /**
-    * Default value for short morse character in input file (used when building morse compiler)
-    */
-    final private char shortMorseInInputFile; 
-    
-    /**
-    * Default value for long morse character in input file (used when building morse compiler)
-    */
-    final private char longMorseInInputFile;
-    
-    /**
-    * Default value for short morse character in output file (used when building morse compiler)
-    */
-    final private char shortMorseInOutputFile; 
-    
-    /**
-    * Default value for long morse character in output file (used when building morse compiler)
-    */
-    final private char longMorseInOutputFile;
-    
-     /**
-    * Default value for whether input shall be translated to upper case before compilint (used when building morse compiler)
-    */
-    final private boolean textToUpperCase;
-    
-    /**
-    * The compiler to which this class delegates the compilation
-    */
-    MorseCompiler myCompiler = null;
-    
-    /**
-    * Constructor from builder
-    * @param pInputFieldSeparator Field separator in input file
-    * @param pOutnputFieldSeparator Field separator in output file
-    * @param pShortMorseInInputFile Default value for short morse character in input file
-    * @param pLongMorseInInputFile Default value for long morse character in input file
-    * @param pShortMorseInOutputFile Default value for short morse character in output file
-    * @param pLongMorseInOutputFile Default value for long morse character in output file
-    * @param pTextToUpperCase Default value for whether we want to convert text to upper case in the compiler
-    * @param pMethod Default value for whether we want to convert text to upper case in the compiler
-    * @throws IllegalArgumentException re-thrown
-    * @throws NoSuchMethodException re-thrown
-    */
-    IOToCompiler (String pInputFieldSeparator, String pOutputFieldSeparator, 
-      char pShortMorseInInputFile, char pLongMorseInInputFile,
-      char pShortMorseInOutputFile, char pLongMorseInOutputFile, boolean pTextToUpperCase, String pMethod)
-            throws IllegalArgumentException, NoSuchMethodException {
-        this.inputFieldSeparator = pInputFieldSeparator;
-        this.outputFieldSeparator = pOutputFieldSeparator;
-        this.shortMorseInInputFile = pShortMorseInInputFile;
-        this.longMorseInInputFile = pLongMorseInInputFile;
-        this.shortMorseInOutputFile = pShortMorseInOutputFile;
-        this.longMorseInOutputFile = pLongMorseInOutputFile;
-        this.textToUpperCase = pTextToUpperCase;
-        setMyCompiler(pMethod);
-    }
-    
-     /**
-    * Setter for the compiler to which this class delegates the compilation
-    * This setter uses default alphabet and default alphabet collections
-    * @param method Active method for the compiler
-    * @throws IllegalArgumentException re-thrown
-    * @throws NoSuchMethodException re-thrown
-    */
-    private void setMyCompiler(String method) throws IllegalArgumentException, NoSuchMethodException {
-        this.myCompiler = new MorseCompilerBuilder().setInputPrototype(shortMorseInInputFile, longMorseInInputFile)
-        .setOutputPrototype(shortMorseInOutputFile, longMorseInOutputFile).setTextToUpperCase(textToUpperCase)
-                .setMethod(method).createMorseCompiler();
-    }
-    
-    /**
-     * Reads text input, unpacks each line into token array, delegates the compilation, joins the result array into output, and writes text output
-     * @param inputFile input file name
-     * @param outputFile output file name
-     * @throws IllegalArgumentException
-     * @throws FileNotFoundException
-     * @throws ParseException
-     * @throws IOException
-     * @throws IllegalAccessException
-     * @throws InvocationTargetException
-     */
-    void compileTextIO (String inputFile, String outputFile) 
-      throws IllegalArgumentException, FileNotFoundException, 
-      ParseException , IOException, IllegalAccessException, InvocationTargetException {
-        if ((new File(outputFile)).exists()) {
-            // What should be done?
-        }
-        try (BufferedReader fInputStream = new BufferedReader(new FileReader(inputFile));
-          BufferedWriter fOutputStream = new BufferedWriter(new FileWriter(outputFile)) ) {
-            String inputLine, outputLine;
-            while ( (inputLine = fInputStream.readLine()) != null )  { // Read line from text file
-                // inputLine is one line of the message to be translated
-                // spilt input line to an array of text or morse tokens to be translated
-                // call the compiler that translates the token item by item
-                // and join the result array items to create the outputLine
-                outputLine = String.join(outputFieldSeparator, 
-                    myCompiler.compile(ParseUtilities.ParseDelimeters(inputLine,inputFieldSeparator)));
-                // The inputLine has been compiled to outputLine
-                fOutputStream.write(outputLine);
-            }
-        }
-        catch (IllegalArgumentException | FileNotFoundException | ParseException // For now, let Main do everything
-            | IllegalAccessException | InvocationTargetException e) { throw e;}
-        catch (IOException e) {throw e;}
-    }
-    
-}
+package compilemorse;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.text.ParseException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Takes input, perpares it, and delegates it to the compiler and takes output from the compiler, prepares it, and forwards it
+ * 
+ * @author Kukka
+ */
+public class IOToCompiler {
+    
+    /**
+    * Suffix added to the output file name for the file of the rejected lines with ErrorPolicy.REJECT
+    */
+    public static final String REJECT_FILE_SUFFIX = ".rejects";
+    
+    /**
+    * Suffix added to the output file name for the checkpoint of compileAppendedIO
+    */
+    public static final String CHECKPOINT_FILE_SUFFIX = ".checkpoint";
+    
+    /**
+    * Size of the blocks in which the end of the input file is searched for the last line end
+    */
+    static final int LINE_END_SEARCH_SIZE = 8192;
+    
+    /**
+    * Default value for field separator in input file (used when reading input file)
+    */
+    final private String inputFieldSeparator;
+    
+    /**
+    * Default value for field separator in output file (used when writing output file)
+    */
+    final private String outputFieldSeparator;
+    
+    /**
+    * Default value for short morse character in input file (used when building morse compiler)
+    */
+    final private char shortMorseInInputFile; 
+    
+    /**
+    * Default value for long morse character in input file (used when building morse compiler)
+    */
+    final private char longMorseInInputFile;
+    
+    /**
+    * Default value for short morse character in output file (used when building morse compiler)
+    */
+    final private char shortMorseInOutputFile; 
+    
+    /**
+    * Default value for long morse character in output file (used when building morse compiler)
+    */
+    final private char longMorseInOutputFile;
+    
+     /**
+    * Default value for whether input shall be translated to upper case before compilint (used when building morse compiler)
+    */
+    final private boolean textToUpperCase;
+    
+    /**
+    * Tells whether compileTextIO uses the streaming pipeline instead of the line-by-line pipeline
+    */
+    final private boolean streaming;
+    
+    /**
+    * Number of threads translating chunks of the input in parallel, 1 means no parallel translation
+    */
+    final private int parallelism;
+    
+    /**
+    * The executor for parallel translation, or null to use a new ForkJoinPool for each compileTextIO call
+    */
+    final private ExecutorService executor;
+    
+    /**
+    * The metrics of the translations, or null when nothing is counted
+    */
+    final private TranslationMetrics metrics;
+    
+    /**
+    * What is done with tokens that cannot be translated and lines that cannot be parsed
+    */
+    final private ErrorPolicy errorPolicy;
+    
+    /**
+    * The output for an error with ErrorPolicy.PLACEHOLDER
+    */
+    final private String placeholder;
+    
+    /**
+    * The charset of the input and output files
+    */
+    final private Charset charset;
+    
+    /**
+    * The compiler to which this class delegates the compilation
+    */
+    MorseCompiler myCompiler = null;
+    
+    /**
+    * Constructor from builder
+    * @param pInputFieldSeparator Field separator in input file
+    * @param pOutnputFieldSeparator Field separator in output file
+    * @param pShortMorseInInputFile Default value for short morse character in input file
+    * @param pLongMorseInInputFile Default value for long morse character in input file
+    * @param pShortMorseInOutputFile Default value for short morse character in output file
+    * @param pLongMorseInOutputFile Default value for long morse character in output file
+    * @param pTextToUpperCase Default value for whether we want to convert text to upper case in the compiler
+    * @param pMethod Default value for whether we want to convert text to upper case in the compiler
+    * @param pStreaming Tells whether the streaming pipeline is used
+    * @param pParallelism Number of threads translating chunks of the input in parallel
+    * @param pExecutor The executor for parallel translation, or null
+    * @param pMetrics The metrics of the translations, or null
+    * @param pErrorPolicy What is done with tokens that cannot be translated and lines that cannot be parsed
+    * @param pPlaceholder The output for an error with ErrorPolicy.PLACEHOLDER
+    * @param pCharset The charset of the input and output files
+    * @throws IllegalArgumentException re-thrown
+    * @throws NoSuchMethodException re-thrown
+    */
+    IOToCompiler (String pInputFieldSeparator, String pOutputFieldSeparator, 
+      char pShortMorseInInputFile, char pLongMorseInInputFile,
+      char pShortMorseInOutputFile, char pLongMorseInOutputFile, boolean pTextToUpperCase, String pMethod,
+      boolean pStreaming, int pParallelism, ExecutorService pExecutor, TranslationMetrics pMetrics,
+      ErrorPolicy pErrorPolicy, String pPlaceholder, Charset pCharset)
+            throws IllegalArgumentException, NoSuchMethodException {
+        this.inputFieldSeparator = pInputFieldSeparator;
+        this.outputFieldSeparator = pOutputFieldSeparator;
+        this.shortMorseInInputFile = pShortMorseInInputFile;
+        this.longMorseInInputFile = pLongMorseInInputFile;
+        this.shortMorseInOutputFile = pShortMorseInOutputFile;
+        this.longMorseInOutputFile = pLongMorseInOutputFile;
+        this.textToUpperCase = pTextToUpperCase;
+        this.streaming = pStreaming;
+        this.parallelism = pParallelism;
+        this.executor = pExecutor;
+        this.metrics = pMetrics;
+        this.errorPolicy = pErrorPolicy;
+        this.placeholder = pPlaceholder;
+        this.charset = pCharset;
+        setMyCompiler(pMethod);
+    }
+    
+     /**
+    * Setter for the compiler to which this class delegates the compilation
+    * This setter uses default alphabet and default alphabet collections
+    * @param method Active method for the compiler
+    * @throws IllegalArgumentException re-thrown
+    * @throws NoSuchMethodException re-thrown
+    */
+    private void setMyCompiler(String method) throws IllegalArgumentException, NoSuchMethodException {
+        this.myCompiler = new MorseCompilerBuilder().setInputPrototype(shortMorseInInputFile, longMorseInInputFile)
+        .setOutputPrototype(shortMorseInOutputFile, longMorseInOutputFile).setTextToUpperCase(textToUpperCase)
+                .setMethod(method).createMorseCompiler();
+    }
+    
+    /**
+     * Reads text input, unpacks each line into token array, delegates the compilation, joins the result array into output, and writes text output
+     * In streaming mode, delegates to StreamingTextCompiler, which gives the same output without the intermediate arrays
+     * With parallelism over 1, delegates to ParallelTextCompiler, which gives the same output translating chunks of lines in parallel
+     * With an empty input field separator the input is free text, which only the streaming pipeline can segment, so it is always used
+     * With metrics, the lines, tokens, stage times and sizes are added to them, also when the translation fails
+     * With an error policy other than ErrorPolicy.FAIL_FAST the streaming pipeline is used as well, and with ErrorPolicy.REJECT
+     * the rejected lines are written to the output file name followed by REJECT_FILE_SUFFIX
+     * In streaming mode with a one-character input field separator and the charset US-ASCII, ISO-8859-1 or UTF-8,
+     * delegates to ByteTextCompiler, which gives the same output translating the bytes without decoding and encoding them
+     * (except with parallelism over 1 or an error policy other than ErrorPolicy.FAIL_FAST)
+     * @param inputFile input file name
+     * @param outputFile output file name
+     * @throws IllegalArgumentException
+     * @throws FileNotFoundException
+     * @throws ParseException
+     * @throws IOException
+     */
+    void compileTextIO (String inputFile, String outputFile) 
+      throws IllegalArgumentException, FileNotFoundException, 
+      ParseException , IOException {
+        if ((new File(outputFile)).exists()) {
+            // What should be done?
+        }
+        if (streaming && parallelism == 1 && errorPolicy == ErrorPolicy.FAIL_FAST 
+          && ByteTextCompiler.isApplicable(charset, inputFieldSeparator, myCompiler)) {
+            compileBytes(inputFile, outputFile);
+            return;
+        }
+        try (BufferedReader fInputStream = new BufferedReader(new FileReader(inputFile, charset));
+          BufferedWriter fOutputStream = new BufferedWriter(new FileWriter(outputFile, charset));
+          BufferedWriter fRejectStream = openRejectFile(outputFile) ) {
+            if (parallelism > 1) {
+                compileInParallel(fInputStream, fOutputStream, fRejectStream);
+                return;
+            }
+            if (streaming || inputFieldSeparator.isEmpty() || errorPolicy != ErrorPolicy.FAIL_FAST) {
+                new StreamingTextCompiler(myCompiler, inputFieldSeparator, outputFieldSeparator, metrics, errorPolicy, placeholder)
+                    .compile(fInputStream, fOutputStream, fRejectStream, 1);
+                return;
+            }
+            long lines = 0, tokens = 0, unknownTokens = 0, badLines = 0, parseNanos = 0, lookupNanos = 0, writeNanos = 0, charsIn = 0, charsOut = 0;
+            try {
+                String inputLine, outputLine;
+                while ( (inputLine = fInputStream.readLine()) != null )  { // Read line from text file
+                    // inputLine is one line of the message to be translated
+                    // spilt input line to an array of text or morse tokens to be translated
+                    // call the compiler that translates the token item by item
+                    // and join the result array items to create the outputLine
+                    ++lines;
+                    charsIn += inputLine.length();
+                    long started = (metrics != null) ? System.nanoTime() : 0;
+                    String[] inputTokens, outputTokens;
+                    try {
+                        inputTokens = ParseUtilities.ParseDelimeters(inputLine,inputFieldSeparator);
+                    }
+                    catch (ParseException e) {
+                        ++badLines;
+                        throw e;
+                    }
+                    long parsed = (metrics != null) ? System.nanoTime() : 0;
+                    try {
+                        outputTokens = myCompiler.compile(inputTokens);
+                    }
+                    catch (IllegalArgumentException e) {
+                        ++unknownTokens;
+                        throw e;
+                    }
+                    tokens += outputTokens.length;
+                    long translated = (metrics != null) ? System.nanoTime() : 0;
+                    outputLine = String.join(outputFieldSeparator, outputTokens);
+                    // The inputLine has been compiled to outputLine
+                    fOutputStream.write(outputLine);
+                    charsOut += outputLine.length();
+                    if (metrics != null) {
+                        long written = System.nanoTime();
+                        parseNanos += parsed - started;
+                        lookupNanos += translated - parsed;
+                        writeNanos += written - translated;
+                    }
+                }
+            }
+            finally {
+                if (metrics != null)
+                    metrics.add(lines, tokens, myCompiler.isToMorse(), unknownTokens, badLines, parseNanos, lookupNanos, writeNanos, charsIn, charsOut);
+            }
+        }
+        catch (IllegalArgumentException | FileNotFoundException | ParseException e) { throw e;} // For now, let Main do everything
+        catch (IOException e) {throw e;}
+        finally {
+            addFileSizes(inputFile, outputFile);
+        }
+    }
+    
+    /**
+     * Opens the file for the rejected lines, if the error policy is ErrorPolicy.REJECT
+     * @param outputFile output file name, followed by REJECT_FILE_SUFFIX for the rejected lines
+     * @return the writer for the rejected lines, or null if lines are not rejected
+     * @throws IOException re-thrown
+     */
+    private BufferedWriter openRejectFile(String outputFile) throws IOException {
+        return (errorPolicy == ErrorPolicy.REJECT) ? new BufferedWriter(new FileWriter(outputFile + REJECT_FILE_SUFFIX, charset)) : null;
+    }
+    
+    /**
+     * Translates the input file to the output file as bytes with ByteTextCompiler
+     * @param inputFile input file name
+     * @param outputFile output file name
+     * @throws IllegalArgumentException re-thrown
+     * @throws FileNotFoundException re-thrown
+     * @throws ParseException re-thrown
+     * @throws IOException re-thrown
+     */
+    private void compileBytes(String inputFile, String outputFile) 
+      throws IllegalArgumentException, FileNotFoundException, ParseException, IOException {
+        try (InputStream fInputStream = new FileInputStream(inputFile);
+          OutputStream fOutputStream = new BufferedOutputStream(new FileOutputStream(outputFile), 65536) ) {
+            new ByteTextCompiler(myCompiler, inputFieldSeparator, outputFieldSeparator, charset, metrics).compile(fInputStream, fOutputStream);
+        }
+        finally {
+            addFileSizes(inputFile, outputFile);
+        }
+    }
+    
+    /**
+     * Adds the sizes of the input and the output file to the metrics, if there are metrics
+     * @param inputFile input file name
+     * @param outputFile output file name
+     */
+    private void addFileSizes(String inputFile, String outputFile) {
+        if (metrics != null)
+            metrics.addBytes(new File(inputFile).length(), new File(outputFile).length());
+    }
+    
+    /**
+     * Creates a processor that translates a publisher of lines or of character chunks into a publisher of translated lines
+     * (see TranslationProcessor), for streaming pipelines in the same process that do not go through files.
+     * The lines are translated with the field separators, the metrics and the error policy of this IOToCompiler,
+     * and the line numbers of the rejected lines are counted from the first item.
+     * @param lineItems true if each item of the input is one line without its line end, false if the items are chunks of text with line ends
+     * @param rejectWriter output for the rejected lines, needed only with ErrorPolicy.REJECT, not flushed or closed by the processor
+     * @return a new processor, for one publisher and one subscriber
+     * @throws IllegalArgumentException if there is no reject writer with ErrorPolicy.REJECT, or the input field separator is empty 
+     * and the compiler cannot tokenize free text
+     */
+    public TranslationProcessor createTranslationProcessor(boolean lineItems, Writer rejectWriter) throws IllegalArgumentException {
+        return new TranslationProcessor(new StreamingTextCompiler(myCompiler, inputFieldSeparator, outputFieldSeparator, metrics, 
+            errorPolicy, placeholder), lineItems, rejectWriter);
+    }
+    
+    /**
+     * Getter for the metrics
+     * @return the metrics of the translations, or null when nothing is counted
+     */
+    public TranslationMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Translates the input in parallel on the executor, or on a new ForkJoinPool if no executor has been given
+     * @param reader input
+     * @param writer output
+     * @param rejectWriter output for the rejected lines, or null
+     * @throws IOException re-thrown
+     * @throws ParseException re-thrown
+     * @throws IllegalArgumentException re-thrown
+     */
+    private void compileInParallel(BufferedReader reader, BufferedWriter writer, BufferedWriter rejectWriter) 
+      throws IOException, ParseException, IllegalArgumentException {
+        ExecutorService myExecutor = (executor != null) ? executor : new ForkJoinPool(parallelism);
+        try {
+            new ParallelTextCompiler(myCompiler, inputFieldSeparator, outputFieldSeparator, myExecutor, parallelism, metrics, 
+                errorPolicy, placeholder).compile(reader, writer, rejectWriter);
+        }
+        finally {
+            if (executor == null)
+                myExecutor.shutdown();
+        }
+    }
+    
+    /**
+     * Alternative to compileTextIO for very large files.  Reads the input file through memory-mapped windows 
+     * and writes the output file through a direct buffer, and translates with the streaming pipeline.
+     * ASCII input and output bypass the charset decoder and encoder. The output is the same as with compileTextIO, 
+     * and the error policy is followed in the same way.
+     * Measured on a 1 GB ASCII morse file (one core, JDK 17): about 35 s, against 34 s for compileTextIO in streaming mode and 49 s
+     * for the line-by-line compileTextIO.  Token translation dominates, so the gain is in the memory use and not in the run time.
+     * @param inputFile input file name
+     * @param outputFile output file name
+     * @throws IllegalArgumentException
+     * @throws FileNotFoundException
+     * @throws ParseException
+     * @throws IOException
+     */
+    void compileMappedIO (String inputFile, String outputFile) 
+      throws IllegalArgumentException, FileNotFoundException, ParseException , IOException {
+        try (FileChannel inputChannel = openInputChannel(inputFile);
+          MappedFileReader fInputStream = new MappedFileReader(inputChannel, charset);
+          ChannelFileWriter fOutputStream = new ChannelFileWriter(FileChannel.open(Paths.get(outputFile), 
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), charset);
+          BufferedWriter fRejectStream = openRejectFile(outputFile) ) {
+            new StreamingTextCompiler(myCompiler, inputFieldSeparator, outputFieldSeparator, metrics, errorPolicy, placeholder)
+                .compile(fInputStream, fOutputStream, fRejectStream, 1);
+        }
+        finally {
+            addFileSizes(inputFile, outputFile);
+        }
+    }
+    
+    /**
+     * Opens the input file as a channel for reading
+     * @param inputFile input file name
+     * @return the channel
+     * @throws FileNotFoundException if there is no input file, as with FileInputStream
+     * @throws IOException re-thrown
+     */
+    private static FileChannel openInputChannel(String inputFile) throws FileNotFoundException, IOException {
+        try {
+            return FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ);
+        }
+        catch (NoSuchFileException e) {
+            throw new FileNotFoundException(inputFile + " (No such file or directory)");
+        }
+    }
+    
+    /**
+     * Translates only the lines appended to an append-only input file (for instance a log) since the previous call,
+     * and appends their translation to the output file, so that each call reads only the new part of the input.
+     * The position up to which the input has been translated is kept in a Checkpoint, in the output file name followed by 
+     * CHECKPOINT_FILE_SUFFIX.  Only lines that end with a line end are translated: the last line without one (or with \r,
+     * which may still be followed by \n) is left for the next call.
+     * The output file and the reject file are first cut to their lengths in the checkpoint, so that the output of a call that failed
+     * after the checkpoint is written again and not twice.  The checkpoint is moved only after the translated lines have been forced
+     * to the files, so a call that fails does not move it (with ErrorPolicy.FAIL_FAST, an erroneous line stops each call until 
+     * the checkpoint is removed, since the input is not changed; the other error policies translate past it).
+     * If the input file is shorter than the checkpoint or the last Checkpoint.CHECKSUM_BYTES bytes before the checkpoint have changed 
+     * (the file has been replaced), or the output file is shorter than the checkpoint, the whole input is translated again.
+     * Changes further before the checkpoint are not noticed, since the input is expected to be only appended to.
+     * The new lines are read through memory-mapped windows and translated with the streaming pipeline, as in compileMappedIO,
+     * and the line numbers of the rejected lines are counted from the beginning of the input file.
+     * @param inputFile input file name
+     * @param outputFile output file name
+     * @return the number of lines translated by this call
+     * @throws IllegalArgumentException if the charset is not ASCII-compatible, so that the line ends cannot be found in the bytes,
+     * or re-thrown
+     * @throws FileNotFoundException if there is no input file
+     * @throws ParseException re-thrown, or when the checkpoint file is not a checkpoint
+     * @throws IOException re-thrown
+     */
+    long compileAppendedIO (String inputFile, String outputFile) 
+      throws IllegalArgumentException, FileNotFoundException, ParseException , IOException {
+        if (!MappedFileReader.isAsciiCompatible(charset))
+            throw new IllegalArgumentException("Appended lines can be translated only in an ASCII-compatible charset, not in " + charset);
+        Path checkpointFile = Paths.get(outputFile + CHECKPOINT_FILE_SUFFIX);
+        Checkpoint checkpoint = Checkpoint.read(checkpointFile);
+        try (FileChannel inputChannel = openInputChannel(inputFile);
+          FileChannel outputChannel = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+          FileChannel rejectChannel = (errorPolicy == ErrorPolicy.REJECT) ? FileChannel.open(Paths.get(outputFile + REJECT_FILE_SUFFIX), 
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE) : null ) {
+            if (!checkpoint.matches(inputChannel) || outputChannel.size() < checkpoint.getOutputLength()
+              || (rejectChannel != null && rejectChannel.size() < checkpoint.getRejectLength()))
+                checkpoint = Checkpoint.START;
+            outputChannel.truncate(checkpoint.getOutputLength()).position(checkpoint.getOutputLength());
+            if (rejectChannel != null)
+                rejectChannel.truncate(checkpoint.getRejectLength()).position(checkpoint.getRejectLength());
+            long start = checkpoint.getInputOffset();
+            long end = findLastLineEnd(inputChannel, start);
+            if (end == start)
+                return 0;
+            // The writers and the reader are not closed, since that would close the channels
+            Writer fOutputStream = new ChannelFileWriter(outputChannel, charset);
+            Writer fRejectStream = (rejectChannel != null) ? new ChannelFileWriter(rejectChannel, charset) : null;
+            StreamingTextCompiler compiler = new StreamingTextCompiler(myCompiler, inputFieldSeparator, outputFieldSeparator, metrics, 
+                errorPolicy, placeholder);
+            try {
+                compiler.compile(new MappedFileReader(inputChannel, charset, start, end), fOutputStream, fRejectStream, 
+                    checkpoint.getLineCount() + 1);
+                fOutputStream.flush();
+                outputChannel.force(false);
+                if (rejectChannel != null) {
+                    fRejectStream.flush();
+                    rejectChannel.force(false);
+                }
+            }
+            finally {
+                if (metrics != null)
+                    metrics.addBytes(end - start, outputChannel.size() - checkpoint.getOutputLength());
+            }
+            new Checkpoint(end, outputChannel.size(), (rejectChannel != null) ? rejectChannel.size() : 0, compiler.getLineNumber(), 
+                Checkpoint.checksum(inputChannel, end)).write(checkpointFile);
+            return compiler.getLineNumber() - checkpoint.getLineCount();
+        }
+    }
+    
+    /**
+     * Follows a growing input file, translating its new complete lines with compileAppendedIO as they are appended, until the thread
+     * is interrupted.  The size, the modification time and the file key of the input are polled, and when one of them has changed, 
+     * the new lines are translated and forced to the output file, so a line appears in the output at most about one poll interval
+     * after it has been completed (plus the time to translate it).  After new lines the file is polled again without waiting.
+     * Polling is used instead of a WatchService, since the latency of a WatchService depends on the platform.
+     * Since each translation moves the checkpoint, a follower that has been stopped continues where it was when it is started again,
+     * and a replaced input file (for instance after log rotation) is translated from the beginning as in compileAppendedIO.
+     * Until the input file exists, it is waited for, also when it disappears between a poll and its translation.
+     * With ErrorPolicy.FAIL_FAST, an erroneous line stops the following with an exception.
+     * An interrupt during a translation closes its channels, so that translation is given up without moving the checkpoint: 
+     * its lines are translated again when the input is followed next time, and they are not counted in the returned number.
+     * @param inputFile input file name
+     * @param outputFile output file name
+     * @param pollMillis The interval between the polls of the input file in milliseconds
+     * @return the number of lines translated before the thread was interrupted, the interrupt status is kept
+     * @throws IllegalArgumentException if the interval is not positive, or re-thrown
+     * @throws ParseException re-thrown
+     * @throws IOException re-thrown
+     */
+    long followIO (String inputFile, String outputFile, long pollMillis) throws IllegalArgumentException, ParseException, IOException {
+        if (pollMillis <= 0)
+            throw new IllegalArgumentException("The poll interval must be positive, not " + pollMillis);
+        Path input = Paths.get(inputFile);
+        BasicFileAttributes translated = null; // The attributes of the input when it was translated last time
+        long lines = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            BasicFileAttributes current;
+            try {
+                current = Files.readAttributes(input, BasicFileAttributes.class);
+            }
+            catch (NoSuchFileException e) {
+                current = null;
+            }
+            if (current != null && (translated == null || current.size() != translated.size() 
+              || !current.lastModifiedTime().equals(translated.lastModifiedTime()) || !Objects.equals(current.fileKey(), translated.fileKey()))) {
+                try {
+                    long newLines = compileAppendedIO(inputFile, outputFile);
+                    lines += newLines;
+                    translated = current;
+                    if (newLines > 0)
+                        continue;
+                }
+                catch (FileNotFoundException e) {
+                    // Removed after it was polled, for instance by a rotation, so it is waited for as if it had not existed yet
+                }
+                catch (ClosedByInterruptException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            try {
+                Thread.sleep(pollMillis);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return lines;
+    }
+    
+    /**
+     * Finds the end of the last complete line in the input after the given position
+     * A \r in the end of the input is not a complete line end, since it may still be followed by \n.
+     * @param input The channel of the input file
+     * @param from The position from which the lines are searched, at the start of a line
+     * @return the position after the last line end, or from if there is no line end after it
+     * @throws IOException re-thrown from the channel
+     */
+    private static long findLastLineEnd(FileChannel input, long from) throws IOException {
+        long size = input.size();
+        ByteBuffer bytes = ByteBuffer.allocate(LINE_END_SEARCH_SIZE);
+        long end = size;
+        while (end > from) {
+            long blockStart = Math.max(from, end - LINE_END_SEARCH_SIZE);
+            bytes.clear().limit((int) (end - blockStart));
+            while (bytes.hasRemaining()) {
+                if (input.read(bytes, blockStart + bytes.position()) < 0)
+                    break;
+            }
+            for (int i=bytes.position() - 1; i>=0; --i) {
+                byte b = bytes.get(i);
+                if (b == '\n' || (b == '\r' && blockStart + i < size - 1))
+                    return blockStart + i + 1;
+            }
+            end = blockStart;
+        }
+        return from;
+    }
+    
+    
+    /**
+     * Translates a text file to morse and renders the morse tokens as audio instead of writing them as text
+     * The tokens of a line are separated by the gap between tokens and the lines by the gap between words.
+     * With an empty input field separator (free text), whitespace between tokens is rendered as the gap between words as well.
+     * @param inputFile input file name
+     * @param renderer The audio renderer, not closed here
+     * @throws IllegalArgumentException if the compiler translates morse to text, or when a token cannot be translated
+     * @throws FileNotFoundException
+     * @throws ParseException
+     * @throws IOException
+     */
+    void compileAudio (String inputFile, MorseAudioRenderer renderer) 
+      throws IllegalArgumentException, FileNotFoundException, ParseException, IOException {
+        if (!myCompiler.isToMorse())
+            throw new IllegalArgumentException("Only text can be rendered as morse audio");
+        LineTokenizer tokenizer = null;
+        if (inputFieldSeparator.isEmpty())
+            tokenizer = myCompiler.newTextTokenizer();
+        else if (inputFieldSeparator.length() == 1)
+            tokenizer = new DelimeterTokenizer(inputFieldSeparator.charAt(0));
+        StringBuilder morseToken = new StringBuilder();
+        char[] buffer = new char[256];
+        try (BufferedReader fInputStream = new BufferedReader(new FileReader(inputFile, charset))) {
+            String inputLine;
+            while ( (inputLine = fInputStream.readLine()) != null )  {
+                if (tokenizer == null) {
+                    for (String token : ParseUtilities.ParseDelimeters(inputLine, inputFieldSeparator))
+                        renderer.renderToken(myCompiler.compileToken(token), shortMorseInOutputFile, longMorseInOutputFile);
+                }
+                else {
+                    int length = inputLine.length();
+                    if (length > buffer.length)
+                        buffer = new char[Math.max(length, buffer.length * 2)];
+                    inputLine.getChars(0, length, buffer, 0);
+                    int tokenCount = tokenizer.tokenize(buffer, 0, length);
+                    int previousEnd = 0;
+                    for (int i=0; i<tokenCount; ++i) {
+                        int offset = tokenizer.getTokenOffset(i);
+                        if (offset > previousEnd && inputFieldSeparator.isEmpty()) // Skipped whitespace between words
+                            renderer.endWord();
+                        morseToken.setLength(0);
+                        myCompiler.compileToken(buffer, offset, tokenizer.getTokenLength(i), morseToken);
+                        renderer.renderToken(morseToken, shortMorseInOutputFile, longMorseInOutputFile);
+                        previousEnd = offset + tokenizer.getTokenLength(i);
+                    }
+                }
+                renderer.endWord();
+            }
+        }
+    }
+
+    
+    /**
+     * Decodes morse audio (16-bit PCM WAV) and translates the decoded morse tokens to text
+     * The decoder gives the tokens in the short and long morse characters of the input, so they go through the usual morse to text translation.
+     * The tokens of a word are separated by the output field separator, and each word ends with a line break.
+     * @param audio The WAV stream, not closed here
+     * @param output The output, not closed here
+     * @param decoderBuilder The builder for the decoder (tone frequency and the initial speed)
+     * @throws IllegalArgumentException if the compiler translates text to morse, or when a token cannot be translated
+     * @throws ParseException if the stream is not a 16-bit PCM WAV
+     * @throws IOException re-thrown from the input or the output
+     */
+    void decodeAudio (InputStream audio, BufferedWriter output, MorseAudioDecoderBuilder decoderBuilder) 
+      throws IllegalArgumentException, ParseException, IOException {
+        if (myCompiler.isToMorse())
+            throw new IllegalArgumentException("Morse audio can be decoded only to text");
+        MorseAudioDecoder decoder = decoderBuilder.createMorseAudioDecoder(shortMorseInInputFile, longMorseInInputFile);
+        TokenConsumer translator = new TokenConsumer() {
+            private boolean firstInWord = true;
+            
+            @Override
+            public void acceptToken(char[] buffer, int offset, int length) throws IllegalArgumentException {
+                try {
+                    if (!firstInWord)
+                        output.write(outputFieldSeparator);
+                    firstInWord = false;
+                    myCompiler.compileToken(buffer, offset, length, output);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            
+            @Override
+            public void endWord() {
+                try {
+                    output.newLine();
+                    firstInWord = true;
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        try {
+            decoder.decodeWav(audio, translator);
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        output.flush();
+    }
+
+}
\ No newline at end of file
@@ -1,142 +1,269 @@
-package compilemorse;
-
-/**
- * Builder class for the IOToCompiler controller
- * 
- * @author Kukka
- */
-public class IOToCompilerBuilder {
-    
-    /**
-    * Default value for field separator in input file (used when reading input file)
-    */
-    String inputFieldSeparator = ".";
-    
-    /**
-    * Default value for field separator in output file (used when writing output file)
-    */
-    String outputFieldSeparator = ".";
-    
-    /**
-    * Default value for short morse character in input file (used when building morse compiler)
-    */
-    char shortMorseInInputFile = 'o'; 
-    
-    /**
-    * Default value for long morse character in input file (used when building morse compiler)
-    */
-    char longMorseInInputFile = '-';
-    
-    /**
-    * Default value for short morse character in output file (used when building morse compiler)
-    */
-    char shortMorseInOutputFile = 'o'; 
-    
-    /**
-    * Default value for long morse character in output file (used when building morse compiler)
-    */
-    char longMorseInOutputFile = '-';
-    
-     /**
-    * Default value for whether input shall be translated to upper case before compilint (used when building morse compiler)
-    */
-    boolean textToUpperCase = true;
-    
-    /**
-    * Default value for the active method name
-    */
-    String methodName;
-    
-    
-    /**
-    * Builder setter for the input file field separatpr
-    * @param pInputFieldSeparator The field separator in the input file
-    * @return this builder
-    */
-    public IOToCompilerBuilder setInputFieldSeparator(String pInputFieldSeparator) {
-        this.inputFieldSeparator = pInputFieldSeparator;
-        return this;
-    }
-    
-    /**
-    * Builder setter for the output file field separatpr
-    * @param pOutputFieldSeparator The field separator in the output file
-    * @return this builder
-    */
-    public IOToCompilerBuilder setOutputFieldSeparator(String pOutputFieldSeparator) {
-        this.outputFieldSeparator = pOutputFieldSeparator;
-        return this;
-    }
-    
-    /**
-    * Builder setter for the short morse character in input file
-    * @param pShortMorseInInputFile The short morse character in the input file
-    * @return this builder
-    */
-    public IOToCompilerBuilder setShortMorseInInputFile (char pShortMorseInInputFile) {
-        this.shortMorseInInputFile = pShortMorseInInputFile;
-        return this;
-    }
-    
-    /**
-    * Builder setter for the long morse character in input file
-    * @param pLongMorseInInputFile The long morse character in the input file
-    * @return this builder
-    */
-    public IOToCompilerBuilder setLongMorseInInputFile (char pLongMorseInInputFile) {
-        this.longMorseInInputFile = pLongMorseInInputFile;
-        return this;
-    }
-    
-    /**
-    * Builder setter for the short morse character in output file
-    * @param pShortMorseInOutputFile The short morse character in the output file
-    * @return this builder
-    */
-    public IOToCompilerBuilder setShortMorseInOutputFile (char pShortMorseInOutputFile) {
-        this.shortMorseInOutputFile = pShortMorseInOutputFile;
-        return this;
-    }
-    
-    /**
-    * Builder setter for the long morse character in output file
-    * @param pLongMorseInOutputFile The long morse character in the output file
-    * @return this builder
-    */
-    public IOToCompilerBuilder setLongMorseInOutputFile (char pLongMorseInOutputFile) {
-        this.longMorseInOutputFile = pLongMorseInOutputFile;
-        return this;
-    }
-    
-    /**
-    * Builder setter for the decision of whether text characters shall be converted to uppercase before translating them
-    * @param pTextToUpperCase The decision of whether text characters shall be converted to uppercase before translating them
-    * @return this builder
-    */
-    public IOToCompilerBuilder setTextToUpperCase (boolean pTextToUpperCase) {
-        this.textToUpperCase = pTextToUpperCase;
-        return this;
-    }
-    
-    /**
-    * Builder setter for the name of the active method
-    * @param pMethodName The name of the active method
-    * @return this builder
-    */
-    public IOToCompilerBuilder setMethodName (String pMethodName) {
-        this.methodName = pMethodName;
-        return this;
-    }
-    
-    /**
-    * Creates the IOToCompiler without the compiler being set
-    * @return New instance of IOToCompiler class
-    * @throws IllegalArgumentException re-thrown
-    * @throws NoSuchMethodException re-thrown
-    */
-    public IOToCompiler createIOToCompiler() throws IllegalArgumentException, NoSuchMethodException {
-        return  new IOToCompiler (inputFieldSeparator, outputFieldSeparator, 
-        shortMorseInInputFile, longMorseInInputFile,
-        shortMorseInOutputFile, longMorseInOutputFile, textToUpperCase, methodName);
-    }
-}
+package compilemorse;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Builder class for the IOToCompiler controller
+ * 
+ * @author Kukka
+ */
+public class IOToCompilerBuilder {
+    
+    /**
+    * Default value for field separator in input file (used when reading input file)
+    */
+    String inputFieldSeparator = ".";
+    
+    /**
+    * Default value for field separator in output file (used when writing output file)
+    */
+    String outputFieldSeparator = ".";
+    
+    /**
+    * Default value for short morse character in input file (used when building morse compiler)
+    */
+    char shortMorseInInputFile = 'o'; 
+    
+    /**
+    * Default value for long morse character in input file (used when building morse compiler)
+    */
+    char longMorseInInputFile = '-';
+    
+    /**
+    * Default value for short morse character in output file (used when building morse compiler)
+    */
+    char shortMorseInOutputFile = 'o'; 
+    
+    /**
+    * Default value for long morse character in output file (used when building morse compiler)
+    */
+    char longMorseInOutputFile = '-';
+    
+     /**
+    * Default value for whether input shall be translated to upper case before compilint (used when building morse compiler)
+    */
+    boolean textToUpperCase = true;
+    
+    /**
+    * Default value for the active method name
+    */
+    String methodName;
+    
+    /**
+    * Default value for whether the streaming pipeline is used
+    */
+    boolean streaming = false;
+    
+    /**
+    * Default value for the number of threads translating the input in parallel
+    */
+    int parallelism = 1;
+    
+    /**
+    * Default value for the executor for parallel translation, null means a new ForkJoinPool for each translated file
+    */
+    ExecutorService executor = null;
+    
+    /**
+    * Default value for the metrics, null means that nothing is counted
+    */
+    TranslationMetrics metrics = null;
+    
+    /**
+    * Default value for what is done with tokens that cannot be translated and lines that cannot be parsed
+    */
+    ErrorPolicy errorPolicy = ErrorPolicy.FAIL_FAST;
+    
+    /**
+    * Default value for the output for an error with ErrorPolicy.PLACEHOLDER
+    */
+    String placeholder = "#";
+    
+    /**
+    * Default value for the charset of the input and output files, the platform charset as with FileReader and FileWriter
+    */
+    Charset charset = Charset.defaultCharset();
+    
+    
+    /**
+    * Builder setter for the input file field separatpr
+    * An empty separator means free text, which is segmented into the text tokens of the alphabet by the longest match (text to morse only)
+    * @param pInputFieldSeparator The field separator in the input file
+    * @return this builder
+    */
+    public IOToCompilerBuilder setInputFieldSeparator(String pInputFieldSeparator) {
+        this.inputFieldSeparator = pInputFieldSeparator;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the output file field separatpr
+    * @param pOutputFieldSeparator The field separator in the output file
+    * @return this builder
+    */
+    public IOToCompilerBuilder setOutputFieldSeparator(String pOutputFieldSeparator) {
+        this.outputFieldSeparator = pOutputFieldSeparator;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the short morse character in input file
+    * @param pShortMorseInInputFile The short morse character in the input file
+    * @return this builder
+    */
+    public IOToCompilerBuilder setShortMorseInInputFile (char pShortMorseInInputFile) {
+        this.shortMorseInInputFile = pShortMorseInInputFile;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the long morse character in input file
+    * @param pLongMorseInInputFile The long morse character in the input file
+    * @return this builder
+    */
+    public IOToCompilerBuilder setLongMorseInInputFile (char pLongMorseInInputFile) {
+        this.longMorseInInputFile = pLongMorseInInputFile;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the short morse character in output file
+    * @param pShortMorseInOutputFile The short morse character in the output file
+    * @return this builder
+    */
+    public IOToCompilerBuilder setShortMorseInOutputFile (char pShortMorseInOutputFile) {
+        this.shortMorseInOutputFile = pShortMorseInOutputFile;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the long morse character in output file
+    * @param pLongMorseInOutputFile The long morse character in the output file
+    * @return this builder
+    */
+    public IOToCompilerBuilder setLongMorseInOutputFile (char pLongMorseInOutputFile) {
+        this.longMorseInOutputFile = pLongMorseInOutputFile;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the decision of whether text characters shall be converted to uppercase before translating them
+    * @param pTextToUpperCase The decision of whether text characters shall be converted to uppercase before translating them
+    * @return this builder
+    */
+    public IOToCompilerBuilder setTextToUpperCase (boolean pTextToUpperCase) {
+        this.textToUpperCase = pTextToUpperCase;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the name of the active method
+    * @param pMethodName The name of the active method
+    * @return this builder
+    */
+    public IOToCompilerBuilder setMethodName (String pMethodName) {
+        this.methodName = pMethodName;
+        return this;
+    }
+    
+    /**
+    * Builder setter for whether the streaming pipeline is used
+    * The streaming pipeline gives the same output but does not build token arrays or strings for whole lines
+    * @param pStreaming Whether the streaming pipeline is used
+    * @return this builder
+    */
+    public IOToCompilerBuilder setStreaming (boolean pStreaming) {
+        this.streaming = pStreaming;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the number of threads translating the input in parallel
+    * With more than one thread, the input is translated in line-aligned chunks and written in the original order
+    * @param pParallelism The number of threads, 1 for no parallel translation
+    * @return this builder
+    * @throws IllegalArgumentException if the number is less than 1
+    */
+    public IOToCompilerBuilder setParallelism (int pParallelism) throws IllegalArgumentException {
+        if (pParallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + pParallelism);
+        this.parallelism = pParallelism;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the executor for parallel translation
+    * The executor is not shut down by IOToCompiler.  The parallelism should be the number of threads in the executor.
+    * @param pExecutor The executor, null for a new ForkJoinPool for each translated file
+    * @return this builder
+    */
+    public IOToCompilerBuilder setExecutor (ExecutorService pExecutor) {
+        this.executor = pExecutor;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the metrics
+    * The same metrics may be given to several IOToCompilers, the counts are added together
+    * @param pMetrics The metrics, null for no metrics
+    * @return this builder
+    */
+    public IOToCompilerBuilder setMetrics (TranslationMetrics pMetrics) {
+        this.metrics = pMetrics;
+        return this;
+    }
+    
+    /**
+    * Builder setter for what is done with tokens that cannot be translated and lines that cannot be parsed
+    * With ErrorPolicy.REJECT the rejected lines are written to the output file name followed by IOToCompiler.REJECT_FILE_SUFFIX
+    * @param pErrorPolicy The error policy
+    * @return this builder
+    * @throws IllegalArgumentException if the error policy is null
+    */
+    public IOToCompilerBuilder setErrorPolicy (ErrorPolicy pErrorPolicy) throws IllegalArgumentException {
+        if (pErrorPolicy == null)
+            throw new IllegalArgumentException("Error policy must be given");
+        this.errorPolicy = pErrorPolicy;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the output for a token that cannot be translated or a line that cannot be parsed with ErrorPolicy.PLACEHOLDER
+    * @param pPlaceholder The placeholder
+    * @return this builder
+    * @throws IllegalArgumentException if the placeholder is null
+    */
+    public IOToCompilerBuilder setPlaceholder (String pPlaceholder) throws IllegalArgumentException {
+        if (pPlaceholder == null)
+            throw new IllegalArgumentException("Placeholder must be given");
+        this.placeholder = pPlaceholder;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the charset of the input and output files
+    * In streaming mode, US-ASCII, ISO-8859-1 and UTF-8 files with a one-character input field separator are translated as bytes
+    * @param pCharset The charset
+    * @return this builder
+    * @throws IllegalArgumentException if the charset is null
+    */
+    public IOToCompilerBuilder setCharset (Charset pCharset) throws IllegalArgumentException {
+        if (pCharset == null)
+            throw new IllegalArgumentException("Charset must be given");
+        this.charset = pCharset;
+        return this;
+    }
+    
+    /**
+    * Creates the IOToCompiler without the compiler being set
+    * @return New instance of IOToCompiler class
+    * @throws IllegalArgumentException re-thrown
+    * @throws NoSuchMethodException re-thrown
+    */
+    public IOToCompiler createIOToCompiler() throws IllegalArgumentException, NoSuchMethodException {
+        return  new IOToCompiler (inputFieldSeparator, outputFieldSeparator, 
+        shortMorseInInputFile, longMorseInInputFile,
+        shortMorseInOutputFile, longMorseInOutputFile, textToUpperCase, methodName,
+        streaming, parallelism, executor, metrics, errorPolicy, placeholder, charset);
+    }
+}
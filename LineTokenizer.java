@@ -0,0 +1,52 @@
+package compilemorse;
+import java.text.ParseException;
+
+/**
+ * Tokenizer that splits a line in a buffer into tokens and records their boundaries (offset and length) instead of building strings.
+ * The boundaries are reused from line to line, so an instance must not be shared between threads.
+ * 
+ * @author Kukka
+ */
+interface LineTokenizer {
+    
+    /**
+    * Tokenizes one line in a buffer.  The token offsets are indexes in the buffer.
+    * @param buffer The buffer that contains the line
+    * @param start index of the first character of the line
+    * @param end index after the last character of the line
+    * @return the number of tokens
+    * @throws ParseException when the line cannot be split into tokens
+    */
+    int tokenize(char[] buffer, int start, int end) throws ParseException;
+    
+    /**
+    * Tokenizes one line in a buffer as tokenize, but tells about an error by the return value instead of an exception
+    * @param buffer The buffer that contains the line
+    * @param start index of the first character of the line
+    * @param end index after the last character of the line
+    * @return -1 if the line was tokenized, otherwise the offset of the error (relative to start) that tokenize would throw
+    */
+    int tryTokenize(char[] buffer, int start, int end);
+    
+    /**
+    * @return the message of the error found by the last tryTokenize, or null if there was none
+    */
+    String getError();
+    
+    /**
+    * @return the number of tokens in the last tokenized line
+    */
+    int getTokenCount();
+    
+    /**
+    * @param i index of the token
+    * @return the offset of the token in the buffer
+    */
+    int getTokenOffset(int i);
+    
+    /**
+    * @param i index of the token
+    * @return the length of the token
+    */
+    int getTokenLength(int i);
+}
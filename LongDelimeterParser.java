@@ -0,0 +1,152 @@
+package compilemorse;
+import java.util.regex.Pattern;
+
+/**
+ * Parser for lines where the field separator is longer than one character (or empty), with the rules of ParseUtilities.ParseDelimeters.
+ * The single-pass DelimeterTokenizer is not used here, since with a delimeter of several characters
+ * the occurrences may overlap, and removing three delimeters may join the text around them into two delimeters.
+ * This class keeps the exact results of the string operations in those cases.
+ * An error is told by the return value and getError, so that a caller that skips the erroneous lines does not need exceptions.
+ * The error of the last line is kept, so an instance must not be shared between threads.
+ *
+ * @author Kukka
+ */
+final class LongDelimeterParser {
+    
+    /**
+    * The delimeter
+    */
+    final private String delimeter;
+    
+    /**
+    * Two delimeters
+    */
+    final private String dels2;
+    
+    /**
+    * Three delimeters
+    */
+    final private String dels3;
+    
+    /**
+    * Four delimeters
+    */
+    final private String dels4;
+    
+    /**
+    * The delimeter as a regular expression that matches it literally
+    */
+    final private Pattern delimeterPattern;
+    
+    /**
+    * Message of the error found by the last tryParse, or null
+    */
+    private String error = null;
+    
+    /**
+    * Offset of the error found by the last tryParse
+    */
+    private int errorOffset = -1;
+    
+    /**
+    * Constructor for the parser
+    * @param pDelimeter The delimeter
+    */
+    LongDelimeterParser(String pDelimeter) {
+        delimeter = pDelimeter;
+        dels2 = pDelimeter + pDelimeter;
+        dels3 = dels2 + pDelimeter;
+        dels4 = dels3 + pDelimeter;
+        delimeterPattern = Pattern.compile(Pattern.quote(pDelimeter));
+    }
+    
+    /**
+    * Parses the input line as ParseUtilities.ParseDelimeters, but tells about an error by the return value and getError
+    * @param inputString input string for the parser
+    * @return the tokens, or null when the characters are not separated by delimeters in a correct way
+    */
+    String[] tryParse(String inputString) {
+        error = null;
+        errorOffset = -1;
+        int delLength = delimeter.length();
+    
+        // If input string contains four or more consequtive delimeters, there is an error
+        if (inputString.contains(dels4))
+            return fail("Parse error: input string contains at least one " + dels4, inputString.indexOf(dels4));
+    
+        // Empty input string, return an empty output array
+        if (inputString.equals("")) {
+            return new String[0];
+        }
+    
+        // Input string contains nothing but 1-3 consequtive delimeters, so the input will be one character with the same value as delimeter
+        if (inputString.equals(delimeter) || inputString.equals(dels2) || inputString.equals(dels3)) {
+            String[] outputTable = new String[1];
+            outputTable[0] = delimeter;
+            return outputTable;
+        }
+    
+        // Input string does not only consist of delimeters but also contains other characters
+    
+        // Parse the beginning
+    
+         // begin, 2-3 delimeters and then another character, convert the delemeter sequence to the delimeter
+        if (inputString.startsWith(dels3)) // 3 delimeters
+            inputString = inputString.substring(delLength);
+        if (inputString.startsWith(dels2)) // 2 delimeters (originally 2 or 3)
+            inputString = inputString.substring(delLength);
+        else if (inputString.startsWith(delimeter))
+            // begin, delimeter and then another character, remove the delimeter
+            inputString = inputString.substring(delLength);
+    
+        // Parse the end
+    
+         // another character, 2-3 delimeters and then end, convert the delemeter sequence to the delimeter
+        if (inputString.endsWith(dels3)) // 3 delimeters
+            inputString = inputString.substring(0, inputString.length()-delLength);
+        if (inputString.endsWith(dels2)) // 2 delimeters (originally 2 or 3)
+            inputString = inputString.substring(0, inputString.length()-delLength);
+        else if (inputString.endsWith(delimeter))
+            // another character, deimeter, and end, remove the delimeter
+            inputString = inputString.substring(0, inputString.length()-delLength);
+    
+        if (inputString.contains(dels2)) {
+            String testString = inputString.replace(dels3, "");
+            if (testString.contains(dels2))
+                return fail("Parse error: two consequtive delemeters in input string at least once", inputString.indexOf(dels2));
+        }
+    
+         // Finally parse the string into token array
+         // At first convert three consequtive delimeters to two, so that split makes an empty item for each character that is the same as delimeter character
+        String[] returnInput = delimeterPattern.split(inputString.replace(dels3, dels2), -1);
+        for (int i=0; i<returnInput.length; ++i) // Replace each empty item with the character that correspondences the delimeter
+            if (returnInput[i].equals("")) returnInput[i] = delimeter;
+        return returnInput;
+    }
+    
+    /**
+    * @return the message of the error found by the last tryParse, or null if there was none
+    */
+    String getError() {
+        return error;
+    }
+    
+    /**
+    * @return the offset of the error found by the last tryParse, or -1 if there was none
+    */
+    int getErrorOffset() {
+        return errorOffset;
+    }
+    
+    /**
+    * Records an error of the line
+    * @param message The message of the error
+    * @param offset The offset of the error in the line
+    * @return null, for the return value of tryParse
+    */
+    private String[] fail(String message, int offset) {
+        error = message;
+        errorOffset = offset;
+        return null;
+    }
+}
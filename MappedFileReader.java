@@ -0,0 +1,169 @@
+package compilemorse;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reader that reads a file through memory-mapped windows of the file channel.
+ * When the charset is ASCII-compatible, ASCII bytes are copied to characters directly from the mapped window,
+ * and only the other bytes go through the charset decoder.  Malformed input is replaced as with FileReader.
+ * The file is mapped one window at a time, so files larger than memory and larger than 2 GB can be read.
+ * The reader can be limited to a part of the file, which starts and ends between characters.
+ * 
+ * @author Kukka
+ */
+final class MappedFileReader extends Reader {
+    
+    /**
+    * Size of one mapped window
+    */
+    static final long WINDOW_SIZE = 64L << 20;
+    
+    /**
+    * The channel of the input file
+    */
+    final private FileChannel channel;
+    
+    /**
+    * End of the part of the input file that is read, the size of the file by default
+    */
+    final private long size;
+    
+    /**
+    * The decoder for the charset
+    */
+    final private CharsetDecoder decoder;
+    
+    /**
+    * Tells whether the charset decodes each byte below 0x80 to the character with the same value
+    */
+    final private boolean asciiCompatible;
+    
+    /**
+    * The currently mapped window
+    */
+    private MappedByteBuffer window = null;
+    
+    /**
+    * Position of the current window in the file, the start of the part that is read until the first window is mapped
+    */
+    private long windowStart;
+    
+    /**
+    * Constructor for the reader
+    * @param pChannel The channel of the input file, closed when the reader is closed
+    * @param pCharset The charset of the input file
+    * @throws IOException re-thrown from the channel
+    */
+    MappedFileReader(FileChannel pChannel, Charset pCharset) throws IOException {
+        this(pChannel, pCharset, 0, pChannel.size());
+    }
+    
+    /**
+    * Constructor for a reader of a part of the file
+    * @param pChannel The channel of the input file, closed when the reader is closed
+    * @param pCharset The charset of the input file
+    * @param pStart The position of the first byte that is read
+    * @param pEnd The position after the last byte that is read
+    */
+    MappedFileReader(FileChannel pChannel, Charset pCharset, long pStart, long pEnd) {
+        channel = pChannel;
+        windowStart = pStart;
+        size = pEnd;
+        decoder = pCharset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        asciiCompatible = isAsciiCompatible(pCharset);
+    }
+    
+    /**
+    * Checks whether the charset decodes and encodes each byte below 0x80 as the character with the same value
+    * @param charset The charset
+    * @return true if the charset is ASCII-compatible
+    */
+    static boolean isAsciiCompatible(Charset charset) {
+        if (charset.equals(StandardCharsets.US_ASCII) || charset.equals(StandardCharsets.ISO_8859_1) 
+          || charset.equals(StandardCharsets.UTF_8))
+            return true;
+        byte[] ascii = new byte[128];
+        for (int i=0; i<ascii.length; ++i)
+            ascii[i] = (byte) i;
+        String decoded = new String(ascii, charset);
+        if (decoded.length() != ascii.length)
+            return false;
+        for (int i=0; i<ascii.length; ++i)
+            if (decoded.charAt(i) != i)
+                return false;
+        return Arrays.equals(decoded.getBytes(charset), ascii);
+    }
+    
+    /**
+    * Maps the next window if the current window has been read
+    * @return false if the whole file has been read
+    * @throws IOException re-thrown from the channel
+    */
+    private boolean ensureWindow() throws IOException {
+        if (window != null && window.hasRemaining())
+            return true;
+        long next = (window == null) ? windowStart : windowStart + window.position();
+        if (next >= size)
+            return false;
+        windowStart = next;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_SIZE, size - windowStart));
+        return true;
+    }
+    
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!ensureWindow())
+            return -1;
+        int count = 0;
+        if (asciiCompatible) {
+            ByteBuffer myWindow = window;
+            int limit = Math.min(len, myWindow.remaining());
+            int position = myWindow.position();
+            while (count < limit) {
+                byte b = myWindow.get(position + count);
+                if (b < 0)
+                    break;
+                cbuf[off + count] = (char) b;
+                ++count;
+            }
+            myWindow.position(position + count);
+            if (count == len || !myWindow.hasRemaining())
+                return count;
+        }
+        // Non-ASCII byte or charset: decode from the window.  An incomplete sequence in the end of the window is left in the window,
+        // and the next window is mapped starting from it.
+        CharBuffer out = CharBuffer.wrap(cbuf, off + count, len - count);
+        int windowPosition = window.position();
+        boolean lastWindow = windowStart + window.limit() >= size;
+        decoder.decode(window, out, lastWindow);
+        if (lastWindow && !window.hasRemaining()) {
+            decoder.flush(out);
+            decoder.reset();
+        }
+        count = out.position() - off;
+        if (count == 0 && window.position() == windowPosition) { // Incomplete sequence in the end of a window
+            windowStart += windowPosition;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_SIZE, size - windowStart));
+            return read(cbuf, off, len);
+        }
+        return count;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
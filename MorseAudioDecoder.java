@@ -0,0 +1,465 @@
+package compilemorse;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+
+/**
+ * Decodes morse audio (16-bit PCM, WAV or raw) into morse tokens.
+ * The audio is read in fixed-size blocks and processed incrementally, so the memory use does not depend on the length of the audio.
+ * A Goertzel filter measures the power of the tone frequency in windows of 5 ms, and the tone is on when the magnitude is above
+ * half of the recent peak (with hysteresis, and never below a minimum level).  The lengths of the tones and the silences are classified
+ * by an estimate of the dit length, which is calibrated from the first tones and then follows the speed of the audio:
+ * a tone shorter than two dits is a dit, a longer one a dah; a silence shorter than two dits is inside a token,
+ * shorter than five dits ends the token, and longer ends the word.  Tones shorter than a quarter of a dit are ignored as noise.
+ * The first tones and silences are kept until CALIBRATION_TONES tones have been heard.  If they have two lengths, the shorter ones are dits,
+ * and if they all have about the same length, the given speed tells whether they are dits or dahs.
+ * A token is given to the consumer as soon as the silence after it is long enough, without waiting for the next tone.
+ * An instance must not be shared between threads.
+ * 
+ * @author Kukka
+ */
+public class MorseAudioDecoder {
+    
+    /**
+    * Length of a Goertzel window in seconds
+    */
+    static final double WINDOW_SECONDS = 0.005;
+    
+    /**
+    * Number of sample frames read at a time
+    */
+    static final int BLOCK_FRAMES = 8192;
+    
+    /**
+    * Maximum number of elements in a token, a longer token is given to the consumer in pieces
+    */
+    static final int MAX_TOKEN_LENGTH = 64;
+    
+    /**
+    * Number of tones from which the dit length is calibrated
+    */
+    static final int CALIBRATION_TONES = 8;
+    
+    /**
+    * Number of bytes read from the format chunk, the fields of PCM that are used; the rest of the chunk is skipped
+    */
+    static final int FORMAT_SIZE = 16;
+    
+    /**
+    * Minimum magnitude of a tone, in sample units
+    */
+    static final double MIN_LEVEL = 300;
+    
+    /**
+    * Decay of the peak magnitude per window, about seven seconds half-life
+    */
+    static final double PEAK_DECAY = 0.9995;
+    
+    /**
+    * Tone frequency in hertz
+    */
+    final private double frequency;
+    
+    /**
+    * The initial estimate of the speed in words per minute
+    */
+    final private double wordsPerMinute;
+    
+    /**
+    * The short morse character in the tokens
+    */
+    final private char myShort;
+    
+    /**
+    * The long morse character in the tokens
+    */
+    final private char myLong;
+    
+    /**
+    * Constructor for the decoder, used by the builder
+    * @param pFrequency Tone frequency in hertz
+    * @param pWordsPerMinute The initial estimate of the speed in words per minute
+    * @param pShort The short morse character in the tokens
+    * @param pLong The long morse character in the tokens
+    */
+    MorseAudioDecoder(double pFrequency, double pWordsPerMinute, char pShort, char pLong) {
+        frequency = pFrequency;
+        wordsPerMinute = pWordsPerMinute;
+        myShort = pShort;
+        myLong = pLong;
+    }
+    
+    /**
+    * Decodes a WAV stream.  The samples of the first channel are decoded.
+    * A data size of 0xFFFFFFFF (streamed WAV) means that the data continues to the end of the stream.
+    * @param input The WAV stream, not closed here
+    * @param consumer Receives the tokens and the ends of words
+    * @throws IOException re-thrown from the input
+    * @throws ParseException if the stream is not a 16-bit PCM WAV, the error offset is the byte position
+    * @throws IllegalArgumentException re-thrown from the consumer
+    */
+    public void decodeWav(InputStream input, TokenConsumer consumer) throws IOException, ParseException, IllegalArgumentException {
+        byte[] header = new byte[12];
+        readFully(input, header, 12);
+        if (!isId(header, 0, "RIFF") || !isId(header, 8, "WAVE"))
+            throw new ParseException("Not a WAV stream", 0);
+        long position = 12;
+        int sampleRate = 0;
+        int channels = 0;
+        byte[] chunkHeader = new byte[8];
+        byte[] format = new byte[FORMAT_SIZE];
+        while (true) {
+            readFully(input, chunkHeader, 8);
+            long chunkSize = littleEndianInt(chunkHeader, 4) & 0xFFFFFFFFL;
+            if (isId(chunkHeader, 0, "fmt ")) {
+                if (chunkSize < FORMAT_SIZE)
+                    throw new ParseException("Too short format chunk in WAV stream", (int) position);
+                readFully(input, format, FORMAT_SIZE);
+                skipFully(input, chunkSize - FORMAT_SIZE + (chunkSize & 1)); // The extension of the format is not needed
+                int formatTag = littleEndianShort(format, 0);
+                channels = littleEndianShort(format, 2);
+                sampleRate = littleEndianInt(format, 4);
+                int bitsPerSample = littleEndianShort(format, 14);
+                if ((formatTag != 1 && formatTag != 0xFFFE) || bitsPerSample != 16 || channels < 1 || sampleRate <= 0)
+                    throw new ParseException("Only 16-bit PCM WAV can be decoded", (int) position);
+            }
+            else if (isId(chunkHeader, 0, "data")) {
+                if (sampleRate == 0)
+                    throw new ParseException("Data chunk before format chunk in WAV stream", (int) position);
+                long frames = (chunkSize == 0xFFFFFFFFL) ? -1 : chunkSize / (2 * channels);
+                decodeSamples(input, sampleRate, channels, frames, consumer);
+                return;
+            }
+            else
+                skipFully(input, chunkSize + (chunkSize & 1));
+            position += 8 + chunkSize + (chunkSize & 1);
+        }
+    }
+    
+    /**
+    * Decodes raw 16-bit little-endian PCM until the end of the stream
+    * @param input The PCM stream, not closed here
+    * @param sampleRate Sample rate in samples per second
+    * @param channels Number of interleaved channels, the first channel is decoded
+    * @param consumer Receives the tokens and the ends of words
+    * @throws IOException re-thrown from the input
+    * @throws IllegalArgumentException if the sample rate cannot carry the tone, or re-thrown from the consumer
+    */
+    public void decodePcm(InputStream input, int sampleRate, int channels, TokenConsumer consumer) throws IOException, IllegalArgumentException {
+        decodeSamples(input, sampleRate, channels, -1, consumer);
+    }
+    
+    /**
+    * Runs the tone detector and the timing classifier over the samples
+    * @param input The stream positioned at the first sample
+    * @param sampleRate Sample rate in samples per second
+    * @param channels Number of interleaved channels
+    * @param frames Number of frames to decode, or -1 for all until the end of the stream
+    * @param consumer Receives the tokens and the ends of words
+    * @throws IOException re-thrown from the input
+    * @throws IllegalArgumentException if the sample rate cannot carry the tone, or re-thrown from the consumer
+    */
+    private void decodeSamples(InputStream input, int sampleRate, int channels, long frames, TokenConsumer consumer) 
+      throws IOException, IllegalArgumentException {
+        if (frequency >= sampleRate / 2.0)
+            throw new IllegalArgumentException("Frequency must be below half of the sample rate " + frequency);
+        int windowLength = Math.max(8, (int) Math.round(sampleRate * WINDOW_SECONDS));
+        double coefficient = 2 * Math.cos(2 * Math.PI * frequency / sampleRate);
+        Classifier classifier = new Classifier(1.2 / wordsPerMinute / ((double) windowLength / sampleRate), consumer);
+        
+        int frameSize = 2 * channels;
+        byte[] block = new byte[BLOCK_FRAMES * frameSize];
+        int carried = 0; // Bytes of an incomplete frame carried to the next block
+        long framesLeft = frames;
+        double s1 = 0, s2 = 0; // Goertzel state
+        int inWindow = 0;
+        double peak = 0;
+        boolean toneOn = false;
+        int read;
+        while (framesLeft != 0 && (read = input.read(block, carried, block.length - carried)) != -1) {
+            int available = carried + read;
+            int blockFrames = available / frameSize;
+            if (framesLeft > 0 && blockFrames > framesLeft)
+                blockFrames = (int) framesLeft;
+            for (int f=0; f<blockFrames; ++f) {
+                int i = f * frameSize;
+                double sample = (short) ((block[i] & 0xFF) | (block[i + 1] << 8));
+                double s0 = sample + coefficient * s1 - s2;
+                s2 = s1;
+                s1 = s0;
+                if (++inWindow == windowLength) {
+                    double magnitude = Math.sqrt(Math.max(0, s1 * s1 + s2 * s2 - coefficient * s1 * s2)) * 2 / windowLength;
+                    s1 = s2 = 0;
+                    inWindow = 0;
+                    peak = Math.max(magnitude, peak * PEAK_DECAY);
+                    double onLevel = Math.max(MIN_LEVEL, peak * 0.5);
+                    toneOn = toneOn ? magnitude > onLevel * 0.7 : magnitude > onLevel;
+                    classifier.window(toneOn);
+                }
+            }
+            if (framesLeft > 0)
+                framesLeft -= blockFrames;
+            carried = available - blockFrames * frameSize;
+            if (framesLeft != 0 && carried > 0)
+                System.arraycopy(block, blockFrames * frameSize, block, 0, carried);
+        }
+        classifier.finish();
+    }
+    
+    /**
+    * Adaptive classifier of the tone and silence lengths, measured in windows
+    */
+    private final class Classifier {
+        
+        /**
+        * Receives the tokens and the ends of words
+        */
+        final private TokenConsumer consumer;
+        
+        /**
+        * The elements of the current token
+        */
+        final private char[] token = new char[MAX_TOKEN_LENGTH];
+        
+        /**
+        * Number of elements in the current token
+        */
+        private int tokenLength = 0;
+        
+        /**
+        * The estimate of the dit length in windows
+        */
+        private double ditLength;
+        
+        /**
+        * Tells whether the tone was on in the previous window
+        */
+        private boolean wasOn = false;
+        
+        /**
+        * Length of the current tone or silence in windows
+        */
+        private int runLength = 0;
+        
+        /**
+        * Tells whether a word has tokens that have not been ended by endWord
+        */
+        private boolean inWord = false;
+        
+        /**
+        * The lengths of the first tones (positive) and silences (negative), kept until the dit length is calibrated
+        */
+        final private int[] calibrationRuns = new int[2 * CALIBRATION_TONES + 1];
+        
+        /**
+        * Number of runs kept for calibration, -1 when the dit length has been calibrated
+        */
+        private int calibrationCount = 0;
+        
+        /**
+        * Number of tones kept for calibration
+        */
+        private int calibrationTones = 0;
+        
+        /**
+        * @param pDitLength The initial estimate of the dit length in windows
+        * @param pConsumer Receives the tokens and the ends of words
+        */
+        Classifier(double pDitLength, TokenConsumer pConsumer) {
+            ditLength = pDitLength;
+            consumer = pConsumer;
+        }
+        
+        /**
+        * Processes one window
+        * @param on Tells whether the tone is on in the window
+        * @throws IllegalArgumentException re-thrown from the consumer
+        */
+        void window(boolean on) throws IllegalArgumentException {
+            if (on != wasOn) {
+                if (calibrationCount >= 0) {
+                    if (runLength > 0 && (wasOn || calibrationCount > 0)) { // The silence before the first tone is not kept
+                        calibrationRuns[calibrationCount++] = wasOn ? runLength : -runLength;
+                        if (wasOn && ++calibrationTones == CALIBRATION_TONES)
+                            calibrate();
+                    }
+                }
+                else if (wasOn)
+                    endTone(runLength);
+                wasOn = on;
+                runLength = 0;
+            }
+            ++runLength;
+            if (!on && calibrationCount < 0) // Give the token and the end of word as soon as the silence is long enough
+                endSilence(runLength);
+        }
+        
+        /**
+        * Calibrates the dit length from the kept tones, and classifies the kept tones and silences
+        * @throws IllegalArgumentException re-thrown from the consumer
+        */
+        private void calibrate() throws IllegalArgumentException {
+            int shortest = Integer.MAX_VALUE, longest = 0;
+            for (int i=0; i<calibrationCount; ++i) {
+                if (calibrationRuns[i] > 0) {
+                    shortest = Math.min(shortest, calibrationRuns[i]);
+                    longest = Math.max(longest, calibrationRuns[i]);
+                }
+            }
+            if (longest > 0) {
+                if (longest >= 2 * shortest) { // Dits and dahs, the dit length is the mean of the short tones
+                    int sum = 0, count = 0;
+                    for (int i=0; i<calibrationCount; ++i) {
+                        if (calibrationRuns[i] > 0 && calibrationRuns[i] < 2 * shortest) {
+                            sum += calibrationRuns[i];
+                            ++count;
+                        }
+                    }
+                    ditLength = (double) sum / count;
+                }
+                else { // All tones of about the same length, dits or dahs by the given speed
+                    double mean = (shortest + longest) / 2.0;
+                    ditLength = (Math.abs(Math.log(mean / ditLength)) < Math.abs(Math.log(mean / (3 * ditLength)))) ? mean : mean / 3;
+                }
+            }
+            int count = calibrationCount;
+            calibrationCount = -1;
+            for (int i=0; i<count; ++i) {
+                int run = calibrationRuns[i];
+                if (run > 0)
+                    endTone(run);
+                else
+                    endSilence(-run);
+            }
+        }
+        
+        /**
+        * Ends the token and the word after a silence that has ended
+        * @param length The length of the silence in windows
+        * @throws IllegalArgumentException re-thrown from the consumer
+        */
+        private void endSilence(int length) throws IllegalArgumentException {
+            if (length > 2 * ditLength)
+                endToken();
+            if (length > 5 * ditLength && inWord) {
+                consumer.endWord();
+                inWord = false;
+            }
+        }
+        
+        /**
+        * Classifies a tone as a dit or a dah and adapts the dit length
+        * @param length The length of the tone in windows
+        * @throws IllegalArgumentException re-thrown from the consumer
+        */
+        private void endTone(int length) throws IllegalArgumentException {
+            if (length < ditLength / 4) // Noise
+                return;
+            if (tokenLength == MAX_TOKEN_LENGTH)
+                endToken();
+            if (length < 2 * ditLength) {
+                token[tokenLength++] = myShort;
+                ditLength = 0.7 * ditLength + 0.3 * length;
+            }
+            else {
+                token[tokenLength++] = myLong;
+                ditLength = 0.7 * ditLength + 0.3 * length / 3;
+            }
+        }
+        
+        /**
+        * Gives the current token to the consumer
+        * @throws IllegalArgumentException re-thrown from the consumer
+        */
+        private void endToken() throws IllegalArgumentException {
+            if (tokenLength == 0)
+                return;
+            consumer.acceptToken(token, 0, tokenLength);
+            tokenLength = 0;
+            inWord = true;
+        }
+        
+        /**
+        * Ends the last tone, token and word at the end of the audio
+        * @throws IllegalArgumentException re-thrown from the consumer
+        */
+        void finish() throws IllegalArgumentException {
+            if (calibrationCount >= 0) {
+                if (wasOn && runLength > 0)
+                    calibrationRuns[calibrationCount++] = runLength;
+                wasOn = false;
+                calibrate();
+            }
+            if (wasOn)
+                endTone(runLength);
+            endToken();
+            if (inWord)
+                consumer.endWord();
+        }
+    }
+    
+    /**
+    * @param bytes The bytes
+    * @param offset The offset of the identifier
+    * @param id The identifier
+    * @return true if the bytes at the offset are the identifier
+    */
+    private static boolean isId(byte[] bytes, int offset, String id) {
+        for (int i=0; i<4; ++i)
+            if (bytes[offset + i] != id.charAt(i))
+                return false;
+        return true;
+    }
+    
+    /**
+    * @param bytes The bytes
+    * @param offset The offset of the value
+    * @return the unsigned 16-bit little-endian value
+    */
+    private static int littleEndianShort(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+    }
+    
+    /**
+    * @param bytes The bytes
+    * @param offset The offset of the value
+    * @return the 32-bit little-endian value
+    */
+    private static int littleEndianInt(byte[] bytes, int offset) {
+        return littleEndianShort(bytes, offset) | littleEndianShort(bytes, offset + 2) << 16;
+    }
+    
+    /**
+    * Reads exactly the given number of bytes
+    * @param input The input
+    * @param bytes The buffer
+    * @param length The number of bytes
+    * @throws IOException re-thrown from the input, or EOFException if the stream ends
+    */
+    private static void readFully(InputStream input, byte[] bytes, int length) throws IOException {
+        int done = 0;
+        while (done < length) {
+            int read = input.read(bytes, done, length - done);
+            if (read == -1)
+                throw new EOFException("Unexpected end of WAV stream");
+            done += read;
+        }
+    }
+    
+    /**
+    * Skips exactly the given number of bytes
+    * @param input The input
+    * @param length The number of bytes
+    * @throws IOException re-thrown from the input, or EOFException if the stream ends
+    */
+    private static void skipFully(InputStream input, long length) throws IOException {
+        byte[] skipBuffer = new byte[(int) Math.min(length, 8192)];
+        while (length > 0) {
+            int read = input.read(skipBuffer, 0, (int) Math.min(length, skipBuffer.length));
+            if (read == -1)
+                throw new EOFException("Unexpected end of WAV stream");
+            length -= read;
+        }
+    }
+}
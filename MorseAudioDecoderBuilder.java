@@ -0,0 +1,61 @@
+package compilemorse;
+
+/**
+ * Builder class for the audio decoder.
+ * 
+ * @author Kukka
+ */
+public class MorseAudioDecoderBuilder {
+    
+    /**
+    * Tone frequency in hertz
+    */
+    private double frequency = 600;
+    
+    /**
+    * The initial estimate of the speed in words per minute
+    */
+    private double wordsPerMinute = 20;
+    
+    /**
+    * Constructor for the audio decoder builder
+    */
+    public MorseAudioDecoderBuilder() {
+    }
+    
+    /**
+    * Builder setter for the tone frequency
+    * @param pFrequency Tone frequency in hertz, must be positive
+    * @return this builder
+    * @throws IllegalArgumentException if the frequency is not positive
+    */
+    public MorseAudioDecoderBuilder setFrequency(double pFrequency) throws IllegalArgumentException {
+        if (!(pFrequency > 0))
+            throw new IllegalArgumentException("Frequency must be positive " + pFrequency);
+        this.frequency = pFrequency;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the initial estimate of the speed, the decoder follows the actual speed of the audio
+    * @param pWordsPerMinute Speed in words per minute (PARIS), must be positive
+    * @return this builder
+    * @throws IllegalArgumentException if the speed is not positive
+    */
+    public MorseAudioDecoderBuilder setWordsPerMinute(double pWordsPerMinute) throws IllegalArgumentException {
+        if (!(pWordsPerMinute > 0))
+            throw new IllegalArgumentException("Words per minute must be positive " + pWordsPerMinute);
+        this.wordsPerMinute = pWordsPerMinute;
+        return this;
+    }
+    
+    /**
+    * Creates the decoder
+    * @param pShort The short morse character in the decoded tokens
+    * @param pLong The long morse character in the decoded tokens
+    * @return new audio decoder
+    */
+    public MorseAudioDecoder createMorseAudioDecoder(char pShort, char pLong) {
+        return new MorseAudioDecoder(frequency, wordsPerMinute, pShort, pLong);
+    }
+}
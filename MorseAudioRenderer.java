@@ -0,0 +1,360 @@
+package compilemorse;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Renders morse tokens as 16-bit mono PCM in a WAV file or stream.
+ * The tone of a dit and a dah and the silence of the gaps are computed once in the constructor as little-endian samples,
+ * and rendering only copies them into the output buffer, so no sample is synthesized while rendering.
+ * Timing follows the PARIS standard: a dit is 1.2 / WPM seconds, a dah is three dits, the gap inside a token is one dit,
+ * the gap between tokens three dits and the gap between words seven dits.  Each tone starts and ends with a short ramp to avoid clicks.
+ * Written to a file, the sizes in the WAV header are filled in when the renderer is closed.  Written to a stream (for instance a pipe),
+ * the sizes are written as unknown (0xFFFFFFFF), which common players and tools accept for streamed WAV.
+ * An instance must not be shared between threads.
+ * 
+ * @author Kukka
+ */
+public class MorseAudioRenderer implements Closeable {
+    
+    /**
+    * Size of the WAV header in bytes
+    */
+    static final int HEADER_SIZE = 44;
+    
+    /**
+    * Size written in the header when the size is not known
+    */
+    static final int UNKNOWN_SIZE = 0xFFFFFFFF;
+    
+    /**
+    * Length of the ramp at the beginning and end of a tone in seconds
+    */
+    static final double RAMP_SECONDS = 0.005;
+    
+    /**
+    * Size of the output buffer in bytes
+    */
+    static final int BUFFER_SIZE = 65536;
+    
+    /**
+    * The samples of a dit
+    */
+    final private byte[] dit;
+    
+    /**
+    * The samples of a dah
+    */
+    final private byte[] dah;
+    
+    /**
+    * Silence of one dit, between the elements of a token
+    */
+    final private byte[] elementGap;
+    
+    /**
+    * Silence of three dits, between tokens
+    */
+    final private byte[] tokenGap;
+    
+    /**
+    * Silence of seven dits, between words
+    */
+    final private byte[] wordGap;
+    
+    /**
+    * The sample rate in samples per second
+    */
+    final private int sampleRate;
+    
+    /**
+    * The output stream, or null when writing to a file channel
+    */
+    final private OutputStream stream;
+    
+    /**
+    * The output file channel, or null when writing to a stream
+    */
+    final private FileChannel channel;
+    
+    /**
+    * The output buffer
+    */
+    final private byte[] buffer = new byte[BUFFER_SIZE];
+    
+    /**
+    * Number of bytes in the output buffer
+    */
+    private int buffered = 0;
+    
+    /**
+    * Number of sample bytes written, without the header
+    */
+    private long dataSize = 0;
+    
+    /**
+    * Tells whether no token has been rendered yet, so no gap is needed before the next token
+    */
+    private boolean atStart = true;
+    
+    /**
+    * Tells whether the next token starts a new word
+    */
+    private boolean wordEnded = false;
+    
+    /**
+    * Constructor for a renderer writing to a stream
+    * @param pStream The output stream, not closed by the renderer
+    * @param pWordsPerMinute Speed in words per minute (PARIS)
+    * @param pFrequency Tone frequency in hertz
+    * @param pSampleRate Sample rate in samples per second
+    * @param pAmplitude Amplitude of the tone, from 0 to 1
+    * @throws IOException re-thrown from writing the header
+    */
+    MorseAudioRenderer(OutputStream pStream, double pWordsPerMinute, double pFrequency, int pSampleRate, double pAmplitude) 
+      throws IOException {
+        this(pStream, null, pWordsPerMinute, pFrequency, pSampleRate, pAmplitude);
+        stream.write(header(UNKNOWN_SIZE));
+    }
+    
+    /**
+    * Constructor for a renderer writing to a file
+    * @param pFile The output file, replaced if it exists
+    * @param pWordsPerMinute Speed in words per minute (PARIS)
+    * @param pFrequency Tone frequency in hertz
+    * @param pSampleRate Sample rate in samples per second
+    * @param pAmplitude Amplitude of the tone, from 0 to 1
+    * @throws IOException re-thrown from opening the file or writing the header
+    */
+    MorseAudioRenderer(Path pFile, double pWordsPerMinute, double pFrequency, int pSampleRate, double pAmplitude) throws IOException {
+        this(null, FileChannel.open(pFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING),
+            pWordsPerMinute, pFrequency, pSampleRate, pAmplitude);
+        try {
+            writeFully(ByteBuffer.wrap(header(UNKNOWN_SIZE)));
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+    * Constructor shared by the stream and file renderers, computes the tones and the gaps but writes nothing
+    * @param pStream The output stream, or null when writing to a file channel
+    * @param pChannel The output file channel, or null when writing to a stream
+    * @param pWordsPerMinute Speed in words per minute (PARIS)
+    * @param pFrequency Tone frequency in hertz
+    * @param pSampleRate Sample rate in samples per second
+    * @param pAmplitude Amplitude of the tone, from 0 to 1
+    */
+    private MorseAudioRenderer(OutputStream pStream, FileChannel pChannel, double pWordsPerMinute, double pFrequency, int pSampleRate,
+      double pAmplitude) {
+        stream = pStream;
+        channel = pChannel;
+        sampleRate = pSampleRate;
+        int ditSamples = (int) Math.round(pSampleRate * 1.2 / pWordsPerMinute);
+        dit = tone(ditSamples, pFrequency, pAmplitude);
+        dah = tone(3 * ditSamples, pFrequency, pAmplitude);
+        elementGap = new byte[2 * ditSamples];
+        tokenGap = new byte[2 * 3 * ditSamples];
+        wordGap = new byte[2 * 7 * ditSamples];
+    }
+    
+    /**
+    * Computes a tone with a raised cosine ramp in the beginning and the end
+    * @param samples Number of samples
+    * @param frequency Tone frequency in hertz
+    * @param amplitude Amplitude from 0 to 1
+    * @return the samples as 16-bit little-endian PCM
+    */
+    private byte[] tone(int samples, double frequency, double amplitude) {
+        byte[] bytes = new byte[2 * samples];
+        int ramp = Math.max(1, Math.min((int) (RAMP_SECONDS * sampleRate), samples / 4));
+        double step = 2 * Math.PI * frequency / sampleRate;
+        for (int i=0; i<samples; ++i) {
+            double envelope = 1;
+            if (i < ramp)
+                envelope = 0.5 - 0.5 * Math.cos(Math.PI * i / ramp);
+            else if (i >= samples - ramp)
+                envelope = 0.5 - 0.5 * Math.cos(Math.PI * (samples - 1 - i) / ramp);
+            int sample = (int) Math.round(Math.sin(step * i) * envelope * amplitude * Short.MAX_VALUE);
+            bytes[2 * i] = (byte) sample;
+            bytes[2 * i + 1] = (byte) (sample >> 8);
+        }
+        return bytes;
+    }
+    
+    /**
+    * Builds the WAV header
+    * @param size The number of sample bytes, or UNKNOWN_SIZE
+    * @return the header
+    */
+    private byte[] header(int size) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] {'R', 'I', 'F', 'F'});
+        header.putInt(size == UNKNOWN_SIZE ? UNKNOWN_SIZE : size + HEADER_SIZE - 8);
+        header.put(new byte[] {'W', 'A', 'V', 'E', 'f', 'm', 't', ' '});
+        header.putInt(16); // Size of the format chunk
+        header.putShort((short) 1); // PCM
+        header.putShort((short) 1); // Mono
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * 2); // Bytes per second
+        header.putShort((short) 2); // Bytes per sample
+        header.putShort((short) 16); // Bits per sample
+        header.put(new byte[] {'d', 'a', 't', 'a'});
+        header.putInt(size);
+        return header.array();
+    }
+    
+    /**
+    * @return the sample rate in samples per second
+    */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    
+    /**
+    * @return the length of the audio rendered so far in seconds, including the data still in the buffer
+    */
+    public double getSeconds() {
+        return (dataSize + buffered) / 2.0 / sampleRate;
+    }
+    
+    /**
+    * Renders a morse token, preceded by the gap between tokens or words unless it is the first token
+    * @param token The morse token
+    * @param myShort The short morse character in the token
+    * @param myLong The long morse character in the token
+    * @throws IOException re-thrown from the output
+    * @throws IllegalArgumentException when the token contains other characters than myShort and myLong
+    */
+    public void renderToken(CharSequence token, char myShort, char myLong) throws IOException, IllegalArgumentException {
+        startToken();
+        for (int i=0; i<token.length(); ++i)
+            renderElement(token.charAt(i), i, myShort, myLong);
+    }
+    
+    /**
+    * Renders a morse token given as a slice of a buffer, preceded by the gap between tokens or words unless it is the first token
+    * @param tokenBuffer The buffer that contains the morse token
+    * @param offset The index of the first character of the token
+    * @param length The number of characters in the token
+    * @param myShort The short morse character in the token
+    * @param myLong The long morse character in the token
+    * @throws IOException re-thrown from the output
+    * @throws IllegalArgumentException when the token contains other characters than myShort and myLong
+    */
+    public void renderToken(char[] tokenBuffer, int offset, int length, char myShort, char myLong) throws IOException, IllegalArgumentException {
+        startToken();
+        for (int i=0; i<length; ++i)
+            renderElement(tokenBuffer[offset + i], i, myShort, myLong);
+    }
+    
+    /**
+    * Ends the current word, so that the next token is preceded by the gap between words
+    */
+    public void endWord() {
+        wordEnded = true;
+    }
+    
+    /**
+    * Writes the gap before a token
+    * @throws IOException re-thrown from the output
+    */
+    private void startToken() throws IOException {
+        if (!atStart)
+            copy(wordEnded ? wordGap : tokenGap);
+        atStart = false;
+        wordEnded = false;
+    }
+    
+    /**
+    * Writes one element of a token, preceded by the gap between elements unless it is the first element
+    * @param c The morse character
+    * @param index The index of the character in the token
+    * @param myShort The short morse character
+    * @param myLong The long morse character
+    * @throws IOException re-thrown from the output
+    * @throws IllegalArgumentException when the character is neither myShort nor myLong
+    */
+    private void renderElement(char c, int index, char myShort, char myLong) throws IOException, IllegalArgumentException {
+        byte[] element;
+        if (c == myShort)
+            element = dit;
+        else if (c == myLong)
+            element = dah;
+        else
+            throw new IllegalArgumentException("Morse token contains other characters than dashes or dots " + c);
+        if (index > 0)
+            copy(elementGap);
+        copy(element);
+    }
+    
+    /**
+    * Copies samples into the output buffer, writing the buffer out when it is full
+    * @param samples The samples
+    * @throws IOException re-thrown from the output
+    */
+    private void copy(byte[] samples) throws IOException {
+        int copied = 0;
+        while (copied < samples.length) {
+            int n = Math.min(samples.length - copied, buffer.length - buffered);
+            System.arraycopy(samples, copied, buffer, buffered, n);
+            buffered += n;
+            copied += n;
+            if (buffered == buffer.length)
+                flushBuffer();
+        }
+    }
+    
+    /**
+    * Writes the output buffer out
+    * @throws IOException re-thrown from the output
+    */
+    private void flushBuffer() throws IOException {
+        if (stream != null)
+            stream.write(buffer, 0, buffered);
+        else
+            writeFully(ByteBuffer.wrap(buffer, 0, buffered));
+        dataSize += buffered;
+        buffered = 0;
+    }
+    
+    /**
+    * Writes all bytes to the file channel
+    * @param bytes The bytes
+    * @throws IOException re-thrown from the channel
+    */
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining())
+            channel.write(bytes);
+    }
+    
+    /**
+    * Writes the rest of the samples out.  A file gets the sizes in its header and is closed,
+    * a stream is flushed but not closed.
+    * @throws IOException re-thrown from the output
+    */
+    @Override
+    public void close() throws IOException {
+        if (stream != null) {
+            flushBuffer();
+            stream.flush();
+            return;
+        }
+        try {
+            flushBuffer();
+            int size = (dataSize + HEADER_SIZE - 8 <= 0xFFFFFFFFL) ? (int) dataSize : UNKNOWN_SIZE;
+            channel.position(0);
+            writeFully(ByteBuffer.wrap(header(size)));
+        }
+        finally {
+            channel.close();
+        }
+    }
+}
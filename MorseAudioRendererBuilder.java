@@ -0,0 +1,123 @@
+package compilemorse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Builder class for the audio renderer.
+ * 
+ * @author Kukka
+ */
+public class MorseAudioRendererBuilder {
+    
+    /**
+    * Speed in words per minute
+    */
+    private double wordsPerMinute = 20;
+    
+    /**
+    * Tone frequency in hertz
+    */
+    private double frequency = 600;
+    
+    /**
+    * Sample rate in samples per second
+    */
+    private int sampleRate = 8000;
+    
+    /**
+    * Amplitude of the tone, from 0 to 1
+    */
+    private double amplitude = 0.8;
+    
+    /**
+    * Constructor for the audio renderer builder
+    */
+    public MorseAudioRendererBuilder() {
+    }
+    
+    /**
+    * Builder setter for the speed
+    * @param pWordsPerMinute Speed in words per minute (PARIS), must be positive
+    * @return this builder
+    * @throws IllegalArgumentException if the speed is not positive
+    */
+    public MorseAudioRendererBuilder setWordsPerMinute(double pWordsPerMinute) throws IllegalArgumentException {
+        if (!(pWordsPerMinute > 0))
+            throw new IllegalArgumentException("Words per minute must be positive " + pWordsPerMinute);
+        this.wordsPerMinute = pWordsPerMinute;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the tone frequency
+    * @param pFrequency Tone frequency in hertz, must be positive
+    * @return this builder
+    * @throws IllegalArgumentException if the frequency is not positive
+    */
+    public MorseAudioRendererBuilder setFrequency(double pFrequency) throws IllegalArgumentException {
+        if (!(pFrequency > 0))
+            throw new IllegalArgumentException("Frequency must be positive " + pFrequency);
+        this.frequency = pFrequency;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the sample rate
+    * @param pSampleRate Sample rate in samples per second, must be positive
+    * @return this builder
+    * @throws IllegalArgumentException if the sample rate is not positive
+    */
+    public MorseAudioRendererBuilder setSampleRate(int pSampleRate) throws IllegalArgumentException {
+        if (pSampleRate <= 0)
+            throw new IllegalArgumentException("Sample rate must be positive " + pSampleRate);
+        this.sampleRate = pSampleRate;
+        return this;
+    }
+    
+    /**
+    * Builder setter for the amplitude
+    * @param pAmplitude Amplitude of the tone, from 0 to 1
+    * @return this builder
+    * @throws IllegalArgumentException if the amplitude is not between 0 and 1
+    */
+    public MorseAudioRendererBuilder setAmplitude(double pAmplitude) throws IllegalArgumentException {
+        if (!(pAmplitude >= 0 && pAmplitude <= 1))
+            throw new IllegalArgumentException("Amplitude must be between 0 and 1 " + pAmplitude);
+        this.amplitude = pAmplitude;
+        return this;
+    }
+    
+    /**
+    * Checks that the tone can be represented at the sample rate
+    * @throws IllegalArgumentException if the frequency is not below half of the sample rate
+    */
+    private void check() throws IllegalArgumentException {
+        if (frequency >= sampleRate / 2.0)
+            throw new IllegalArgumentException("Frequency must be below half of the sample rate " + frequency);
+    }
+    
+    /**
+    * Creates a renderer writing to a stream, for instance standard output
+    * @param pStream The output stream, not closed by the renderer
+    * @return new audio renderer
+    * @throws IllegalArgumentException if the frequency is not below half of the sample rate
+    * @throws IOException re-thrown from writing the header
+    */
+    public MorseAudioRenderer createMorseAudioRenderer(OutputStream pStream) throws IllegalArgumentException, IOException {
+        check();
+        return new MorseAudioRenderer(pStream, wordsPerMinute, frequency, sampleRate, amplitude);
+    }
+    
+    /**
+    * Creates a renderer writing to a file
+    * @param pFile The output file, replaced if it exists
+    * @return new audio renderer
+    * @throws IllegalArgumentException if the frequency is not below half of the sample rate
+    * @throws IOException re-thrown from opening the file or writing the header
+    */
+    public MorseAudioRenderer createMorseAudioRenderer(Path pFile) throws IllegalArgumentException, IOException {
+        check();
+        return new MorseAudioRenderer(pFile, wordsPerMinute, frequency, sampleRate, amplitude);
+    }
+}
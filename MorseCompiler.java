@@ -1,145 +1,222 @@
-package compilemorse;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-
-/**
- * Takes care of translation
- * Compiles a message.  Takes an input array and compiles it character by character into an output array.
- * 
- * @author Kukka
- */
-public class MorseCompiler {
-    
-    /**
-     * The The prototype for morse input for the compiler
-     */
-    final private MorseTokenPrototype InputPrototype;
-    
-    /**
-     * The The prototype for morse output for the compiler
-     */
-    final private MorseTokenPrototype OutputPrototype;
-    
-    /**
-     * Tells whether input text message will be converted to uppercaes before compiling it to morse message
-     */
-    final private boolean textToUpperCase;
-    
-    /**
-     * Active alphabet container (default is HashMap)
-     */
-    final private AlphabetCollections myAlphabetMap;
-    
-    /**
-     * Alphabet container method to be called (morseTokenToTextToken or textTokenToMorseToken)
-     */
-    private Method activeMethod;
-    
-    /**
-     * Tells whether we are compiling from text to morse or morse to text
-     */
-    private boolean toMorse = false;
-    
-     /**
-     * The constructor that takes everythong but the flag as a parameter.  The parameters can be built with a builder class MorseCompilerBuilder
-     * @param inputPrototype The prototype for morse input for the compiler
-     * @param outputPrototype The prototype for morse output for the compiler
-     * @param pTextToUpperCase Tells whether lowercase text tokens should be translated to upper case before compiling them to morse tokens
-     * @param method The method to be used in compilation
-     * @param alphabetContainer The alphabet container, may use for example hashtables and/or radix trees (both the container and its alhpabet can be chosen in the builder)
-     * @throws IllegalArgumentException thrown by subroutine if the user has chosen a non-existing translation map
-     * @throws NoSuchMethodException thrown by subroutine if the compiler does not find the chosen method (internal error)
-     */
-    MorseCompiler(MorseTokenPrototype inputPrototype, MorseTokenPrototype outputPrototype, boolean pTextToUpperCase, String method,
-        AlphabetCollections alphabetContainer) throws NoSuchMethodException, IllegalArgumentException {
-        InputPrototype = inputPrototype;
-        OutputPrototype = outputPrototype;
-        textToUpperCase = pTextToUpperCase;
-        myAlphabetMap = alphabetContainer;
-        setActiveMethod(method);
-    }
-    
-     /**
-     * Checks whether the desired method exists and if so, sets it as the active compiling method
-     * Method should be chosen based on active alphabet and translation direction
-     * Also sets the internal flag about the translation direction (to or from morse)
-     * @param method the desired active method
-     * @throws IllegalArgumentException if the user has chosen a non-existing translation map
-     * @throws NoSuchMethodException if the compiler does not find the chosen method (internal error)
-     */
-    final public void setActiveMethod (String method) throws NoSuchMethodException, IllegalArgumentException {
-        String methodSeparator = "To";
-        String prefix = myAlphabetMap.getTextAlphabetName();
-        String postfix = myAlphabetMap.getMorseAlphabetName();
-        Class[] cArg = new Class[1];
-        cArg[0] = String.class;
-        if ((prefix + methodSeparator + postfix).equals(postfix + methodSeparator + prefix)) {
-            throw new IllegalArgumentException("Active method (argument 3 for main) is not unique " + method);
-        }
-        if (method.equals(prefix + methodSeparator + postfix))
-        {
-            activeMethod = AlphabetCollections.class.getMethod("textTokenToMorseToken", cArg);
-            toMorse = true;
-        }
-        else if (method.equals(postfix + methodSeparator + prefix))
-        {
-            activeMethod = AlphabetCollections.class.getMethod("morseTokenToTextToken", cArg);
-            toMorse = false; // Also the default value
-        }
-        else throw new IllegalArgumentException ("No translation map found for translation method (argument 3 for main) " + method);
-    }
-    
-     /**
-     * Compiles a message from text to morse or vice verse
-     * @param data A string array of input tokens (text or morse)
-     * @return the translated output array
-     * @throws IllegalAccessException if the chosen method has too strict an access specifier to be accessed here (internal error)
-     * @throws InvocationTargetException if the compiler does not find the chosen method (internal error)
-     * @throws IllegalArgumentException if the active method called or pre-process or post-process method returns IllegalArgumentException
-     */
-    String[] compile(String[] data) throws IllegalAccessException, InvocationTargetException, IllegalArgumentException {
-        String[] returnData = new String[data.length];
-        for (int i=0; i<data.length; ++i) {
-            String currentData = data[i];
-            currentData = preProcess(currentData);
-            currentData = (String) activeMethod.invoke(myAlphabetMap, currentData);
-            returnData[i] = postProcess(currentData);
-        }
-        return returnData;
-    }
-    
-    /**
-     * Prepares the input string for translation
-     * If the input is text token, converts text token to lower case if desired
-     * If the input is morse token, converts it from input format to the translation alphabet format
-     * @param b the input string to be translated
-     * @return the input string in an appropriate format for compilation
-     * @throws IllegalArgumentException (re-throwns from convertToken)
-     */
-    String preProcess (String b) throws IllegalArgumentException {
-        if (toMorse) {
-            if (textToUpperCase)
-                b = b.toUpperCase();
-        }
-        else {
-            b = this.myAlphabetMap.getInternalPrototype().convertToken(b, InputPrototype);
-        }
-        return b;
-    }
-    
-    /**
-     * Post-processes the translated output string
-     * If the output is morse token, converts it from the translation alphabet format to output format
-     * @param c the translated output string
-     * @return the output string in an appropriate format for output
-     * @throws IllegalArgumentException (re-throws from convertToken)
-     */
-    String postProcess (String c) throws IllegalArgumentException {
-        if (toMorse) {
-            c =  this.OutputPrototype.convertToken(c, this.myAlphabetMap.getInternalPrototype());
-        }
-        return c;
-    }
-    
-    
+package compilemorse;
+import java.io.IOException;
+
+/**
+ * Takes care of translation
+ * Compiles a message.  Takes an input array and compiles it character by character into an output array.
+ * A compiler is immutable and translates in one direction, chosen when it is built.  All its state is final and the alphabet container
+ * and the translators are not changed after construction, so one compiler can be shared by any number of threads.
+ * Use withActiveMethod to get a compiler for the other direction.
+ * 
+ * @author Kukka
+ */
+public class MorseCompiler {
+    
+    /**
+     * The The prototype for morse input for the compiler
+     */
+    final private MorseTokenPrototype InputPrototype;
+    
+    /**
+     * The The prototype for morse output for the compiler
+     */
+    final private MorseTokenPrototype OutputPrototype;
+    
+    /**
+     * Tells whether input text message will be converted to uppercaes before compiling it to morse message
+     */
+    final private boolean textToUpperCase;
+    
+    /**
+     * Active alphabet container (default is HashMap)
+     */
+    final private AlphabetCollections myAlphabetMap;
+    
+    /**
+     * Translator to be called for each token (text to morse or morse to text)
+     */
+    final private TokenTranslator activeTranslator;
+    
+    /**
+     * Tells whether we are compiling from text to morse or morse to text
+     */
+    final private boolean toMorse;
+    
+     /**
+     * The constructor that takes everythong but the flag as a parameter.  The parameters can be built with a builder class MorseCompilerBuilder
+     * @param inputPrototype The prototype for morse input for the compiler
+     * @param outputPrototype The prototype for morse output for the compiler
+     * @param pTextToUpperCase Tells whether lowercase text tokens should be translated to upper case before compiling them to morse tokens
+     * @param method The method to be used in compilation
+     * @param alphabetContainer The alphabet container, may use for example hashtables and/or radix trees (both the container and its alhpabet can be chosen in the builder)
+     * @throws IllegalArgumentException thrown by subroutine if the user has chosen a non-existing translation map
+     * @throws NoSuchMethodException thrown by subroutine if the compiler does not find the chosen method (internal error)
+     */
+    MorseCompiler(MorseTokenPrototype inputPrototype, MorseTokenPrototype outputPrototype, boolean pTextToUpperCase, String method,
+        AlphabetCollections alphabetContainer) throws NoSuchMethodException, IllegalArgumentException {
+        this(inputPrototype, outputPrototype, pTextToUpperCase, method, alphabetContainer, null);
+    }
+    
+     /**
+     * The constructor with a translator that has been built already, for instance one shared by AlphabetRegistry (see MorseCompilerBuilder)
+     * @param inputPrototype The prototype for morse input for the compiler
+     * @param outputPrototype The prototype for morse output for the compiler
+     * @param pTextToUpperCase Tells whether lowercase text tokens should be translated to upper case before compiling them to morse tokens
+     * @param method The method to be used in compilation
+     * @param alphabetContainer The alphabet container, may use for example hashtables and/or radix trees (both the container and its alhpabet can be chosen in the builder)
+     * @param translator The translator of the container for the direction of the method with these prototypes, or null to build a new one
+     * @throws IllegalArgumentException thrown by subroutine if the user has chosen a non-existing translation map
+     * @throws NoSuchMethodException thrown by subroutine if the compiler does not find the chosen method (internal error)
+     */
+    MorseCompiler(MorseTokenPrototype inputPrototype, MorseTokenPrototype outputPrototype, boolean pTextToUpperCase, String method,
+        AlphabetCollections alphabetContainer, TokenTranslator translator) throws NoSuchMethodException, IllegalArgumentException {
+        InputPrototype = inputPrototype;
+        OutputPrototype = outputPrototype;
+        textToUpperCase = pTextToUpperCase;
+        myAlphabetMap = alphabetContainer;
+        toMorse = translatesToMorse(method, alphabetContainer);
+        if (translator != null)
+            activeTranslator = translator;
+        else if (toMorse)
+            activeTranslator = new TextToMorseTranslator(myAlphabetMap, OutputPrototype, textToUpperCase);
+        else
+            activeTranslator = new MorseToTextTranslator(myAlphabetMap, InputPrototype);
+    }
+    
+     /**
+     * Tells the direction of a method
+     * @param method The method to be used in compilation
+     * @param alphabetContainer The alphabet container
+     * @return true if the method translates text to morse, false if morse to text
+     * @throws IllegalArgumentException if the method is not one of the container, or the text and morse alphabets have the same name
+     */
+    static boolean translatesToMorse(String method, AlphabetCollections alphabetContainer) throws IllegalArgumentException {
+        String methodSeparator = "To";
+        String prefix = alphabetContainer.getTextAlphabetName();
+        String postfix = alphabetContainer.getMorseAlphabetName();
+        if ((prefix + methodSeparator + postfix).equals(postfix + methodSeparator + prefix)) {
+            throw new IllegalArgumentException("Active method (argument 3 for main) is not unique " + method);
+        }
+        if (method.equals(prefix + methodSeparator + postfix))
+            return true;
+        else if (method.equals(postfix + methodSeparator + prefix))
+            return false;
+        else throw new IllegalArgumentException ("No translation map found for translation method (argument 3 for main) " + method);
+    }
+    
+     /**
+     * Builds a compiler with the same prototypes and alphabet container for another method, for instance the other direction
+     * This compiler is not changed.
+     * @param method the desired active method
+     * @return a new compiler for the method
+     * @throws IllegalArgumentException if the user has chosen a non-existing translation map
+     * @throws NoSuchMethodException not thrown any more, kept for the callers that expect it
+     */
+    public MorseCompiler withActiveMethod (String method) throws NoSuchMethodException, IllegalArgumentException {
+        return new MorseCompiler(InputPrototype, OutputPrototype, textToUpperCase, method, myAlphabetMap);
+    }
+    
+     /**
+     * @return true if this compiler translates text to morse, false if it translates morse to text
+     */
+    public boolean isToMorse() {
+        return toMorse;
+    }
+
+     /**
+     * @return the prototype for morse input
+     */
+    MorseTokenPrototype getInputPrototype() {
+        return InputPrototype;
+    }
+    
+     /**
+     * Creates a tokenizer that segments free text without field separators into the text tokens of the alphabet by the longest match
+     * The tokenizer converts the text to upper case for matching if the compiler does.
+     * @return a new tokenizer, to be used by one thread
+     * @throws IllegalArgumentException if the compiler translates morse to text, or the alphabet container does not give its alphabet
+     */
+    TextTokenizer newTextTokenizer() throws IllegalArgumentException {
+        if (!toMorse)
+            throw new IllegalArgumentException("Input without field separators can be translated only from text to morse");
+        Alphabet alphabet = myAlphabetMap.getAlphabet();
+        if (alphabet == null)
+            throw new IllegalArgumentException("Alphabet container does not give its text tokens for input without field separators");
+        return new TextTokenizer(alphabet.getAlphabetMap().keySet(), textToUpperCase);
+    }
+    
+     /**
+     * Compiles a message from text to morse or vice verse
+     * @param data A string array of input tokens (text or morse)
+     * @return the translated output array
+     * @throws IllegalArgumentException if the active translator cannot translate a token
+     */
+    String[] compile(String[] data) throws IllegalArgumentException {
+        String[] returnData = new String[data.length];
+        TokenTranslator translator = activeTranslator;
+        for (int i=0; i<data.length; ++i) {
+            returnData[i] = translator.translate(data[i]);
+        }
+        return returnData;
+    }
+    
+     /**
+     * Compiles one token from text to morse or vice verse
+     * @param token The input token (text or morse)
+     * @return the translated token
+     * @throws IllegalArgumentException if the active translator cannot translate the token
+     */
+    String compileToken(String token) throws IllegalArgumentException {
+        return activeTranslator.translate(token);
+    }
+    
+     /**
+     * Compiles one token given as a slice of a buffer and appends the result to the output
+     * With AlphabetTree or AlphabetArrays, no string is built for a token (except for mnemonics and errors).
+     * @param buffer The buffer that contains the input token (text or morse)
+     * @param offset The index of the first character of the token
+     * @param length The number of characters in the token
+     * @param output The output, for instance a StringBuilder or a CharBuffer
+     * @throws IOException re-thrown from the output
+     * @throws IllegalArgumentException if the active translator cannot translate the token
+     */
+    void compileToken(char[] buffer, int offset, int length, Appendable output) throws IOException, IllegalArgumentException {
+        activeTranslator.translate(buffer, offset, length, output);
+    }
+
+     /**
+     * Compiles one token given as a slice of a buffer as compileToken, but tells about a token that cannot be translated
+     * by the return value instead of an exception.  Nothing is appended for such a token.
+     * @param buffer The buffer that contains the input token (text or morse)
+     * @param offset The index of the first character of the token
+     * @param length The number of characters in the token
+     * @param output The output, for instance a StringBuilder or a CharBuffer
+     * @return true if the token was translated, false if the active translator cannot translate it
+     * @throws IOException re-thrown from the output
+     */
+    boolean tryCompileToken(char[] buffer, int offset, int length, Appendable output) throws IOException {
+        return activeTranslator.tryTranslate(buffer, offset, length, output);
+    }
+    
+     /**
+     * Compiles all tokens of a tokenized line and appends the results, separated by the output field separator, to the output
+     * @param buffer The buffer that contains the line
+     * @param tokenizer The tokenizer that has tokenized the line in the buffer
+     * @param outputFieldSeparator The field separator between the translated tokens
+     * @param output The output, for instance a StringBuilder or a CharBuffer
+     * @throws IOException re-thrown from the output
+     * @throws IllegalArgumentException if the active translator cannot translate a token
+     */
+    void compile(char[] buffer, LineTokenizer tokenizer, String outputFieldSeparator, Appendable output) 
+      throws IOException, IllegalArgumentException {
+        TokenTranslator translator = activeTranslator;
+        int tokenCount = tokenizer.getTokenCount();
+        for (int i=0; i<tokenCount; ++i) {
+            if (i > 0)
+                output.append(outputFieldSeparator);
+            translator.translate(buffer, tokenizer.getTokenOffset(i), tokenizer.getTokenLength(i), output);
+        }
+    }
+    
+    
 }
\ No newline at end of file
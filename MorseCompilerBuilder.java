@@ -118,6 +118,8 @@ public class MorseCompilerBuilder {
     /**
     * Builder setter for the alphabet collections for the compiler
     * The previous alphabet of the builder is destroyed since the collections object has alphabet
+    * For instance, new AlphabetTree(alphabet) translates morse tokens by walking a binary tree instead of hashing them,
+    * and new AlphabetArrays(alphabet) translates them by packed codes and single characters by array indexes
     * @param pAlphabetCollections The alphabet container, which is an instance of a class that implements the AlphabetCollections interface
     * @return this builder
     */
@@ -130,22 +132,34 @@ public class MorseCompilerBuilder {
     
     /**
     * Creates the morse compiler that has been built with the builder
+    * The compiler precomputes the alphabet in the input and output formats of the morse tokens (and in lower case, if text is converted to upper case),
+    * so that the tokens are not converted one by one in translation
+    * If no alphabet container has been set, the container is taken from AlphabetRegistry, so the alphabet is built only once per process,
+    * and the translator of a registered container is taken from AlphabetRegistry as well
     * @return new morse compiler
     * @throws IllegalArgumentException one tries to put duplicate token into alphabet container
     * @throws NoSuchMethodException thrown originally by morse compiler constructor that is called in this method
     */
     public MorseCompiler createMorseCompiler() throws IllegalArgumentException, NoSuchMethodException {
-        if (!isAlphabetSet)
-            alphabet = new AlphabetBuilder().createAlphabet(); // Default value
-        // Alphabet may be chosen here for now, needs some UI for easier use
-    /* For instance for methods KidsToOwnMorse and OwnMorseToKids: import HashMap and 
-     alphabet = new AlphabetBuilder().setTextAlphabetName("Kids").setMorseAlphabetName("OwnMorse")
-         .setMyMap(new HashMap<>()).addToken("HI","-").addToken("BYE","o").createAlphabet(); */
+        if (!isAlphabetCollectionsSet) {
+            if (isAlphabetSet)
+                alphabetCollections = AlphabetRegistry.getContainer(alphabet);
+            else { // Default value: the shared container registered for the method, or the default alphabet
+                alphabetCollections = AlphabetRegistry.getContainer(method);
+                if (alphabetCollections == null)
+                    alphabetCollections = AlphabetRegistry.getDefaultContainer();
+            }
+        }
+        // Custom alphabets are registered in AlphabetRegistry, for instance for methods KidsToOwnMorse and OwnMorseToKids: import HashMap and 
+        /* AlphabetRegistry.register(new AlphabetBuilder().setTextAlphabetName("Kids").setMorseAlphabetName("OwnMorse")
+             .setMyMap(new HashMap<>()).addToken("HI","-").addToken("BYE","o").createAlphabet()); */
         // If you use AlphabetBuilder.addToken, take care of exception processing
         // In addition, the translation method (3rd input argument for main) is text alphabet name + "To" + morse alphabet name or vice verse
-        if (!isAlphabetCollectionsSet)
-            alphabetCollections = new AlphabetMaps(alphabet);
-        return new MorseCompiler(inputPrototype, outputPrototype, textToUpperCase, method, alphabetCollections);
+        // The translator is shared by the compilers of a registered container with the same settings
+        TokenTranslator translator = MorseCompiler.translatesToMorse(method, alphabetCollections)
+            ? AlphabetRegistry.getTranslator(alphabetCollections, true, outputPrototype, textToUpperCase)
+            : AlphabetRegistry.getTranslator(alphabetCollections, false, inputPrototype, false);
+        return new MorseCompiler(inputPrototype, outputPrototype, textToUpperCase, method, alphabetCollections, translator);
     }
     
 }
@@ -0,0 +1,140 @@
+package compilemorse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Local load generator for the translation server.
+ * Opens the given number of connections, sends the same request the given number of times on each connection,
+ * waiting for each response before the next request, and prints the throughput and the latency percentiles.
+ * 
+ * @author Kukka
+ */
+public class MorseLoadGenerator {
+    
+    /**
+     * Checks arguments, runs the load and prints the summary
+     * @param args the command line arguments:
+     * server address as port number or unix:socketfile, number of connections, number of requests per connection,
+     * optional request line, default is an EnglishToMorse request
+     * @throws IllegalArgumentException
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws IllegalArgumentException, IOException, InterruptedException {
+        String errorMessage = "Usage: MorseLoadGenerator port|unix:socketfile connections requests [request]";
+        if (args.length < 3 || args.length > 4) {
+            System.out.println(errorMessage);
+            throw new IllegalArgumentException (errorMessage);
+        }
+        int connections, requests;
+        try {
+            connections = Integer.parseInt(args[1]);
+            requests = Integer.parseInt(args[2]);
+        }
+        catch (NumberFormatException e) {
+            System.out.println(errorMessage);
+            throw new IllegalArgumentException (errorMessage, e);
+        }
+        String request = args.length == 4 ? args[3] : "EnglishToMorse\t.\t.\to-\to-\tH.E.L.L.O.W.O.R.L.D";
+        
+        long[] latencies = new long[connections * requests];
+        ExecutorService executor = MorseServer.newConnectionExecutor();
+        List<Future<Integer>> clients = new ArrayList<>(connections);
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            int first = i * requests;
+            clients.add(executor.submit( () -> runClient(args[0], request, latencies, first, requests) ));
+        }
+        int errors = 0;
+        for (Future<Integer> client : clients) {
+            try {
+                errors += client.get();
+            }
+            catch (ExecutionException e) {
+                System.out.println("Client failed: " + e.getCause());
+                errors += requests;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        
+        Arrays.sort(latencies);
+        System.out.println(latencies.length + " requests on " + connections + " connections in " + elapsed / 1000000 + " ms, "
+            + (long) (latencies.length / (elapsed / 1e9)) + " requests/s, " + errors + " errors");
+        System.out.println("Latency us: p50 " + percentile(latencies, 50) + ", p99 " + percentile(latencies, 99)
+            + ", p99.9 " + percentile(latencies, 99.9) + ", max " + latencies[latencies.length - 1] / 1000);
+    }
+    
+    /**
+     * Sends the requests on one connection and records the latency of each
+     * @param address The server address
+     * @param request The request line
+     * @param latencies Latencies in nanoseconds of all clients
+     * @param first The index of the first latency of this client
+     * @param requests The number of requests
+     * @return the number of error responses
+     * @throws IOException if the connection fails
+     */
+    private static int runClient(String address, String request, long[] latencies, int first, int requests) throws IOException {
+        byte[] requestBytes = (request + "\n").getBytes(StandardCharsets.UTF_8);
+        int errors = 0;
+        try (SocketChannel channel = connect(address);
+          OutputStream out = Channels.newOutputStream(channel);
+          BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < requests; i++) {
+                long sent = System.nanoTime();
+                out.write(requestBytes);
+                String response = in.readLine();
+                latencies[first + i] = System.nanoTime() - sent;
+                if (response == null)
+                    throw new IOException("Server closed the connection");
+                if (!response.startsWith("OK\t"))
+                    errors++;
+            }
+        }
+        return errors;
+    }
+    
+    /**
+     * @param address A port number on the loopback interface, or unix: followed by a socket file path
+     * @return a channel connected to the server
+     * @throws IOException if the connection fails
+     */
+    private static SocketChannel connect(String address) throws IOException {
+        if (address.startsWith(MorseServer.UNIX_PREFIX)) {
+            SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.connect(UnixDomainSocketAddress.of(address.substring(MorseServer.UNIX_PREFIX.length())));
+            return channel;
+        }
+        SocketAddress socketAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+        SocketChannel channel = SocketChannel.open(socketAddress);
+        channel.socket().setTcpNoDelay(true);
+        return channel;
+    }
+    
+    /**
+     * @param sorted Sorted latencies in nanoseconds
+     * @param percent The percentile
+     * @return the latency at the percentile in microseconds
+     */
+    private static long percentile(long[] sorted, double percent) {
+        int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000;
+    }
+}
@@ -0,0 +1,254 @@
+package compilemorse;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local translation server.  Uses the alphabet loaded once per process by AlphabetRegistry, listens on a loopback TCP port or a Unix domain socket,
+ * and translates requests with compilers that are built once per configuration and shared by all connections.
+ * Each connection is handled on its own thread: a virtual thread when the JVM has them (Java 21 or later), 
+ * otherwise a platform thread from a cached pool.
+ * 
+ * The protocol is line based, UTF-8.  A connection may send any number of requests, and each request gets one response line.
+ * Request: method TAB input field separator TAB output field separator TAB input prototype TAB output prototype TAB message
+ * where the method is for instance EnglishToMorse or MorseToEnglish, a prototype is the short and the long morse character (for instance .-),
+ * and the message is one line as in an input file.
+ * Response: OK TAB translated message, or ERROR TAB error message.
+ * 
+ * @author Kukka
+ */
+public class MorseServer implements Closeable {
+    
+    /**
+    * Prefix of an address that is a Unix domain socket path instead of a port
+    */
+    static final String UNIX_PREFIX = "unix:";
+    
+    /**
+    * Number of tab-separated fields in a request
+    */
+    static final int REQUEST_FIELDS = 6;
+    
+    /**
+    * Maximum number of compilers kept, since the prototypes of the requests can be any characters
+    * A request with another configuration after that gets a compiler built for it only, with a translator shared by the registry
+    * if there is room for it there.
+    */
+    static final int MAX_COMPILERS = 64;
+    
+    /**
+    * The listening channel
+    */
+    final private ServerSocketChannel serverChannel;
+    
+    /**
+    * The Unix domain socket file, deleted when the server is closed, or null for TCP
+    */
+    final private Path socketFile;
+    
+    /**
+    * The executor that runs one task per connection
+    */
+    final private ExecutorService connectionExecutor;
+    
+    /**
+    * The alphabet container shared by all compilers, the registered container of the default alphabet,
+    * so the compilers share its translators as well (see AlphabetRegistry.getTranslator)
+    */
+    final private AlphabetCollections alphabetContainer;
+    
+    /**
+    * The compilers built so far, by method and prototypes, at most MAX_COMPILERS
+    */
+    final private ConcurrentHashMap<String, MorseCompiler> compilers = new ConcurrentHashMap<>();
+    
+    /**
+    * Opens the server on the address
+    * @param address A port number on the loopback interface, or unix: followed by a socket file path
+    * @throws IOException if the address cannot be bound
+    * @throws IllegalArgumentException if the address is not a port number or a unix: path
+    */
+    public MorseServer(String address) throws IOException, IllegalArgumentException {
+        SocketAddress socketAddress;
+        if (address.startsWith(UNIX_PREFIX)) {
+            socketFile = Path.of(address.substring(UNIX_PREFIX.length()));
+            Files.deleteIfExists(socketFile);
+            socketAddress = UnixDomainSocketAddress.of(socketFile);
+            serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        }
+        else {
+            socketFile = null;
+            try {
+                socketAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Address must be a port number or " + UNIX_PREFIX + "path: " + address, e);
+            }
+            serverChannel = ServerSocketChannel.open(StandardProtocolFamily.INET);
+        }
+        serverChannel.bind(socketAddress, 1024);
+        alphabetContainer = AlphabetRegistry.getDefaultContainer();
+        connectionExecutor = newConnectionExecutor();
+    }
+    
+    /**
+    * Creates an executor with a virtual thread per task if the JVM has virtual threads, otherwise a cached pool of platform threads.
+    * Looked up once at start-up, so the server builds and runs on Java 17 as well.
+    * @return the executor
+    */
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+    
+    /**
+    * @return the address the server listens to, useful when the port was 0
+    * @throws IOException re-thrown from the channel
+    */
+    public SocketAddress getAddress() throws IOException {
+        return serverChannel.getLocalAddress();
+    }
+    
+    /**
+    * Accepts connections until the server is closed
+    * @throws IOException if accepting fails for other reason than closing the server
+    */
+    public void serve() throws IOException {
+        try {
+            while (true) {
+                SocketChannel connection = serverChannel.accept();
+                if (socketFile == null)
+                    connection.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connectionExecutor.execute(() -> handleConnection(connection));
+            }
+        }
+        catch (ClosedChannelException e) {
+            // The server has been closed
+        }
+    }
+    
+    /**
+    * Reads requests from the connection and writes a response for each until the client closes the connection
+    * @param connection The connection
+    */
+    private void handleConnection(SocketChannel connection) {
+        try (SocketChannel myConnection = connection;
+          BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(myConnection), StandardCharsets.UTF_8));
+          BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(myConnection), StandardCharsets.UTF_8))) {
+            String request;
+            while ((request = reader.readLine()) != null) {
+                writer.write(handle(request));
+                writer.write('\n');
+                if (!reader.ready()) // Flush when the client waits for the responses, several pipelined requests are flushed together
+                    writer.flush();
+            }
+            writer.flush();
+        }
+        catch (IOException e) {
+            // The client has gone, nothing to answer
+        }
+    }
+    
+    /**
+    * Translates one request
+    * @param request The request line
+    * @return the response line
+    */
+    String handle(String request) {
+        String[] fields = request.split("\t", REQUEST_FIELDS);
+        if (fields.length != REQUEST_FIELDS)
+            return "ERROR\tRequest must have " + REQUEST_FIELDS + " tab-separated fields";
+        if (fields[3].length() != 2 || fields[4].length() != 2)
+            return "ERROR\tPrototype must be the short and the long morse character";
+        try {
+            MorseCompiler compiler = getCompiler(fields[0], fields[3], fields[4]);
+            StringWriter output = new StringWriter();
+            new StreamingTextCompiler(compiler, fields[1], fields[2]).compile(new StringReader(fields[5]), output);
+            return "OK\t" + output;
+        }
+        catch (ParseException e) {
+            return "ERROR\t" + oneLine(e.getMessage()) + ", first index in position " + e.getErrorOffset();
+        }
+        catch (IOException | IllegalArgumentException | NoSuchMethodException e) {
+            return "ERROR\t" + oneLine(e.getMessage());
+        }
+    }
+    
+    /**
+    * Gets the compiler for the configuration, building it on the first request with the configuration
+    * The compiler is kept for the later requests if fewer than MAX_COMPILERS compilers are kept.
+    * @param method The active method
+    * @param inputPrototype The short and the long morse character in input
+    * @param outputPrototype The short and the long morse character in output
+    * @return the compiler
+    * @throws IllegalArgumentException if there is no such method
+    * @throws NoSuchMethodException re-thrown from the builder
+    */
+    private MorseCompiler getCompiler(String method, String inputPrototype, String outputPrototype) 
+      throws IllegalArgumentException, NoSuchMethodException {
+        String key = method + '\t' + inputPrototype + '\t' + outputPrototype;
+        MorseCompiler compiler = compilers.get(key);
+        if (compiler == null) {
+            compiler = new MorseCompilerBuilder().setAlphabetContainer(alphabetContainer)
+                .setInputPrototype(inputPrototype.charAt(0), inputPrototype.charAt(1))
+                .setOutputPrototype(outputPrototype.charAt(0), outputPrototype.charAt(1))
+                .setMethod(method).createMorseCompiler();
+            if (compilers.size() < MAX_COMPILERS) {
+                MorseCompiler previous = compilers.putIfAbsent(key, compiler);
+                if (previous != null)
+                    compiler = previous;
+            }
+        }
+        return compiler;
+    }
+    
+    /**
+    * @param message An error message
+    * @return the message with line breaks and tabs replaced by spaces, so that it fits into a response line
+    */
+    private static String oneLine(String message) {
+        return String.valueOf(message).replace('\n', ' ').replace('\r', ' ').replace('\t', ' ');
+    }
+    
+    /**
+    * Stops accepting connections and closes the server.  Connections being handled are finished.
+    * @throws IOException re-thrown from the channel
+    */
+    @Override
+    public void close() throws IOException {
+        try {
+            serverChannel.close();
+            connectionExecutor.shutdown();
+        }
+        finally {
+            if (socketFile != null)
+                Files.deleteIfExists(socketFile);
+        }
+    }
+}
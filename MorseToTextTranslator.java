@@ -0,0 +1,117 @@
+package compilemorse;
+import java.io.IOException;
+
+/**
+ * Translator from a morse token to a text token.
+ * When the alphabet container gives its alphabet, the translator precomputes the text tokens by packed morse code (see PackedMorse).
+ * The code does not depend on the characters of the prototype, so the input token is packed with the characters of the input prototype
+ * and looked up without converting it to the internal format.
+ * Other tokens are looked up from the alphabet container with the morse token still in the input format,
+ * so that the container may decide whether it needs to convert the token to the internal format.
+ * 
+ * @author Kukka
+ */
+final class MorseToTextTranslator implements TokenTranslator {
+    
+    /**
+     * The alphabet container where the text tokens are looked up
+     */
+    final private AlphabetCollections alphabetContainer;
+    
+    /**
+     * The prototype for morse input
+     */
+    final private MorseTokenPrototype inputPrototype;
+    
+    /**
+     * The character corresponding short morse character in input
+     */
+    final private char inputShort;
+    
+    /**
+     * The character corresponding long morse character in input
+     */
+    final private char inputLong;
+    
+    /**
+     * Precomputed text tokens by packed morse code, null where there is none
+     */
+    final private String[] textByCode;
+    
+    /**
+     * Tells whether the precomputed text tokens are all the tokens that can be translated 
+     * (the container gives its alphabet and all its morse tokens can be packed)
+     */
+    final private boolean precomputed;
+    
+    /**
+     * Constructor for the translator, precomputes the text tokens by packed morse code
+     * @param pAlphabetContainer The alphabet container where the text tokens are looked up
+     * @param pInputPrototype The prototype for morse input
+     */
+    MorseToTextTranslator(AlphabetCollections pAlphabetContainer, MorseTokenPrototype pInputPrototype) {
+        alphabetContainer = pAlphabetContainer;
+        inputPrototype = pInputPrototype;
+        inputShort = pInputPrototype.getShortCharacter();
+        inputLong = pInputPrototype.getLongCharacter();
+        
+        Alphabet alphabet = pAlphabetContainer.getAlphabet();
+        char internalShort = pAlphabetContainer.getInternalPrototype().getShortCharacter();
+        char internalLong = pAlphabetContainer.getInternalPrototype().getLongCharacter();
+        int maxCode = 0;
+        boolean allPacked = (alphabet != null);
+        if (alphabet != null)
+            for (String morseToken : alphabet.getAlphabetMap().values()) {
+                int code = PackedMorse.pack(morseToken, internalShort, internalLong);
+                maxCode = Math.max(maxCode, code);
+                allPacked &= (code > 0);
+            }
+        precomputed = allPacked;
+        textByCode = new String[maxCode + 1];
+        if (alphabet != null) {
+            for (String morseToken : alphabet.getAlphabetMap().values()) {
+                int code = PackedMorse.pack(morseToken, internalShort, internalLong);
+                if (code > 0) // The container decides the text token if there are duplicate morse tokens
+                    textByCode[code] = alphabetContainer.morseTokenToTextToken(morseToken);
+            }
+        }
+    }
+    
+    /**
+    * Looks up the precomputed text token
+    * @param code The packed code of the token in the input format
+    * @return the text token, or null if it has not been precomputed
+    */
+    private String lookUp(int code) {
+        return (code > 0 && code < textByCode.length) ? textByCode[code] : null;
+    }
+    
+    @Override
+    public String translate(String token) throws IllegalArgumentException {
+        String textToken = lookUp(PackedMorse.pack(token, inputShort, inputLong));
+        return (textToken != null) ? textToken : alphabetContainer.morseTokenToTextToken(token, inputPrototype);
+    }
+    
+    @Override
+    public void translate(char[] buffer, int offset, int length, Appendable output) throws IOException, IllegalArgumentException {
+        String textToken = lookUp(PackedMorse.pack(buffer, offset, length, inputShort, inputLong));
+        output.append((textToken != null) ? textToken : alphabetContainer.morseTokenToTextToken(buffer, offset, length, inputPrototype));
+    }
+    
+    @Override
+    public boolean tryTranslate(char[] buffer, int offset, int length, Appendable output) throws IOException {
+        String textToken = lookUp(PackedMorse.pack(buffer, offset, length, inputShort, inputLong));
+        if (textToken == null && !precomputed) {
+            try {
+                textToken = alphabetContainer.morseTokenToTextToken(buffer, offset, length, inputPrototype);
+            }
+            catch (IllegalArgumentException e) {
+                // Only without the precomputed text tokens
+            }
+        }
+        if (textToken == null)
+            return false;
+        output.append(textToken);
+        return true;
+    }
+}
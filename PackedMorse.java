@@ -0,0 +1,125 @@
+package compilemorse;
+
+/**
+ * Packs a morse token into an int so that it can be used as an array index.
+ * The code is a leading 1 bit followed by one bit per morse character, 0 for short and 1 for long,
+ * so the length of the token is the position of the leading bit and different lengths never collide.
+ * For instance "o-" is 0b101 and "-oo" is 0b1100.  The empty token is 1.
+ * 
+ * @author Kukka
+ */
+final class PackedMorse {
+    
+    /**
+     * The longest morse token that can be packed.  The longest token in the default alphabet has six characters.
+     */
+    static final int MAX_LENGTH = 16;
+    
+    /**
+     * Returned when the token cannot be packed
+     */
+    static final int INVALID = -1;
+    
+    /**
+     * Returned when the token contains other characters than the short and long characters
+     */
+    static final int BAD_CHARACTER = -2;
+    
+    /**
+     * No instances, only static utilities
+     */
+    private PackedMorse() {
+    }
+    
+    /**
+    * Packs the morse token into an int
+    * @param token The morse token
+    * @param myShort The short morse character used in the token
+    * @param myLong The long morse character used in the token
+    * @return the packed code, INVALID if the token is longer than MAX_LENGTH, 
+    * or BAD_CHARACTER if the token contains other characters than myShort and myLong
+    */
+    static int pack(CharSequence token, char myShort, char myLong) {
+        int length = token.length();
+        if (length > MAX_LENGTH)
+            return INVALID;
+        int code = 1;
+        for (int i=0; i<length; ++i) {
+            char c = token.charAt(i);
+            if (c == myShort)
+                code = code << 1;
+            else if (c == myLong)
+                code = (code << 1) | 1;
+            else
+                return BAD_CHARACTER;
+        }
+        return code;
+    }
+    
+    /**
+    * Packs the morse token in the buffer into an int
+    * @param buffer The buffer that contains the morse token
+    * @param offset The index of the first character of the morse token
+    * @param length The number of characters in the morse token
+    * @param myShort The short morse character used in the token
+    * @param myLong The long morse character used in the token
+    * @return the packed code, INVALID or BAD_CHARACTER as in pack(CharSequence, char, char)
+    */
+    static int pack(char[] buffer, int offset, int length, char myShort, char myLong) {
+        if (length > MAX_LENGTH)
+            return INVALID;
+        int code = 1;
+        for (int i=offset; i<offset+length; ++i) {
+            char c = buffer[i];
+            if (c == myShort)
+                code = code << 1;
+            else if (c == myLong)
+                code = (code << 1) | 1;
+            else
+                return BAD_CHARACTER;
+        }
+        return code;
+    }
+    
+    /**
+    * Packs the morse token in the byte buffer into an int, for input where each byte is one character
+    * @param buffer The buffer that contains the morse token
+    * @param offset The index of the first byte of the morse token
+    * @param length The number of bytes in the morse token
+    * @param myShort The byte of the short morse character used in the token
+    * @param myLong The byte of the long morse character used in the token
+    * @return the packed code, INVALID or BAD_CHARACTER as in pack(CharSequence, char, char)
+    */
+    static int pack(byte[] buffer, int offset, int length, byte myShort, byte myLong) {
+        if (length > MAX_LENGTH)
+            return INVALID;
+        int code = 1;
+        for (int i=offset; i<offset+length; ++i) {
+            byte b = buffer[i];
+            if (b == myShort)
+                code = code << 1;
+            else if (b == myLong)
+                code = (code << 1) | 1;
+            else
+                return BAD_CHARACTER;
+        }
+        return code;
+    }
+    
+    /**
+    * Unpacks the code into a morse token
+    * @param code The packed code, must be positive
+    * @param myShort The short morse character for the token
+    * @param myLong The long morse character for the token
+    * @return the morse token
+    */
+    static String unpack(int code, char myShort, char myLong) {
+        int length = 31 - Integer.numberOfLeadingZeros(code);
+        char[] tokenCharacters = new char[length];
+        for (int i=length-1; i>=0; --i) {
+            tokenCharacters[i] = ((code & 1) == 0) ? myShort : myLong;
+            code = code >>> 1;
+        }
+        return String.valueOf(tokenCharacters);
+    }
+}
@@ -0,0 +1,259 @@
+package compilemorse;
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel version of the line pipeline of IOToCompiler.
+ * Reads the input in line-aligned chunks, translates each chunk with its own StreamingTextCompiler on the executor,
+ * and writes the translated chunks in the original order.  Translation of a line never depends on another line.
+ * At most a fixed number of chunks per worker are in memory at a time.
+ * The output is the same as with the line-by-line pipeline, also when a line fails: 
+ * the lines before the failing line are written and then the exception of the failing line is thrown.
+ * With ErrorPolicy.REJECT, the reader counts the lines of each chunk so that the rejected lines get the same line numbers
+ * as with one StreamingTextCompiler, and the rejected lines of each chunk are written in the original order as well.
+ * 
+ * @author Kukka
+ */
+final class ParallelTextCompiler {
+    
+    /**
+    * Default number of characters read for one chunk, the chunk is cut after the last line end in it
+    */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    
+    /**
+    * Number of chunks per worker that may be read ahead of the writer
+    */
+    static final int CHUNKS_PER_WORKER = 2;
+    
+    /**
+    * The compiler to which the tokens are delegated, shared by the chunks
+    */
+    final private MorseCompiler myCompiler;
+    
+    /**
+    * Field separator in input
+    */
+    final private String inputFieldSeparator;
+    
+    /**
+    * Field separator in output
+    */
+    final private String outputFieldSeparator;
+    
+    /**
+    * The executor on which the chunks are translated
+    */
+    final private ExecutorService executor;
+    
+    /**
+    * The number of chunks that may be in memory at a time
+    */
+    final private int maxChunksInFlight;
+    
+    /**
+    * The metrics, or null when nothing is counted
+    */
+    final private TranslationMetrics metrics;
+    
+    /**
+    * What is done with tokens that cannot be translated and lines that cannot be parsed
+    */
+    final private ErrorPolicy errorPolicy;
+    
+    /**
+    * The output for an error with ErrorPolicy.PLACEHOLDER
+    */
+    final private String placeholder;
+    
+    /**
+    * The translated chunk, and the exception if the translation of the chunk failed
+    */
+    private static final class ChunkResult {
+        
+        /**
+        * The translated lines of the chunk, up to the failing line if there is one
+        */
+        final CharArrayWriter output = new CharArrayWriter();
+        
+        /**
+        * The rejected lines of the chunk, or null without ErrorPolicy.REJECT
+        */
+        CharArrayWriter rejects = null;
+        
+        /**
+        * The exception thrown by the failing line, or null
+        */
+        Exception error = null;
+    }
+    
+    /**
+    * Constructor for the parallel compiler
+    * @param pCompiler The compiler to which the tokens are delegated
+    * @param pInputFieldSeparator Field separator in input
+    * @param pOutputFieldSeparator Field separator in output
+    * @param pExecutor The executor on which the chunks are translated
+    * @param pParallelism The number of workers in the executor
+    * @param pMetrics The metrics, or null
+    * @param pErrorPolicy What is done with tokens that cannot be translated and lines that cannot be parsed
+    * @param pPlaceholder The output for an error with ErrorPolicy.PLACEHOLDER
+    * @throws IllegalArgumentException if the placeholder is null with ErrorPolicy.PLACEHOLDER
+    */
+    ParallelTextCompiler(MorseCompiler pCompiler, String pInputFieldSeparator, String pOutputFieldSeparator,
+      ExecutorService pExecutor, int pParallelism, TranslationMetrics pMetrics, ErrorPolicy pErrorPolicy, String pPlaceholder) {
+        if (pErrorPolicy == ErrorPolicy.PLACEHOLDER && pPlaceholder == null)
+            throw new IllegalArgumentException("No placeholder for the errors");
+        myCompiler = pCompiler;
+        inputFieldSeparator = pInputFieldSeparator;
+        outputFieldSeparator = pOutputFieldSeparator;
+        executor = pExecutor;
+        maxChunksInFlight = Math.max(1, pParallelism) * CHUNKS_PER_WORKER;
+        metrics = pMetrics;
+        errorPolicy = pErrorPolicy;
+        placeholder = pPlaceholder;
+    }
+    
+    /**
+    * Reads all lines from the reader, translates them in parallel, and writes the result to the writer in the original order
+    * @param reader input
+    * @param writer output
+    * @param rejectWriter output for the rejected lines, needed only with ErrorPolicy.REJECT
+    * @throws IOException re-thrown from the reader or the writers, or when a chunk is interrupted
+    * @throws ParseException when a line is not separated by delimeters in a correct way, with ErrorPolicy.FAIL_FAST
+    * @throws IllegalArgumentException when a token cannot be translated with ErrorPolicy.FAIL_FAST,
+    * or there is no reject writer with ErrorPolicy.REJECT
+    */
+    void compile(Reader reader, Writer writer, Writer rejectWriter) throws IOException, ParseException, IllegalArgumentException {
+        if (errorPolicy == ErrorPolicy.REJECT && rejectWriter == null)
+            throw new IllegalArgumentException("No output for the rejected lines");
+        long nextLineNumber = 1;
+        ArrayDeque<Future<ChunkResult>> inFlight = new ArrayDeque<>();
+        char[] buffer = new char[DEFAULT_CHUNK_SIZE];
+        int filled = 0;
+        boolean endOfInput = false;
+        try {
+            while (!endOfInput) {
+                int read = reader.read(buffer, filled, buffer.length - filled);
+                if (read == -1)
+                    endOfInput = true;
+                else
+                    filled += read;
+                if (!endOfInput && filled < buffer.length)
+                    continue;
+                // Cut the chunk after the last line end.  A \r in the end of the buffer may be followed by \n,
+                // so the chunk is cut before its line, and \r\n is never cut between the characters.
+                int cut = filled;
+                if (!endOfInput) {
+                    while (cut > 0 && buffer[cut - 1] != '\n' && buffer[cut - 1] != '\r')
+                        --cut;
+                    if (cut == filled && buffer[cut - 1] == '\r') {
+                        --cut;
+                        while (cut > 0 && buffer[cut - 1] != '\n' && buffer[cut - 1] != '\r')
+                            --cut;
+                    }
+                    if (cut == 0) { // The line does not fit into the buffer
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                        continue;
+                    }
+                }
+                if (cut > 0) {
+                    char[] chunk = Arrays.copyOf(buffer, cut);
+                    long firstLineNumber = nextLineNumber;
+                    if (errorPolicy == ErrorPolicy.REJECT)
+                        nextLineNumber += countLines(chunk);
+                    if (inFlight.size() == maxChunksInFlight)
+                        writeResult(inFlight.removeFirst(), writer, rejectWriter);
+                    inFlight.addLast(executor.submit(() -> compileChunk(chunk, firstLineNumber)));
+                    System.arraycopy(buffer, cut, buffer, 0, filled - cut);
+                    filled -= cut;
+                }
+            }
+            while (!inFlight.isEmpty())
+                writeResult(inFlight.removeFirst(), writer, rejectWriter);
+        }
+        finally {
+            inFlight.forEach( (future) -> future.cancel(true) );
+        }
+    }
+    
+    /**
+    * Counts the lines of a chunk of complete lines, \r\n is one line end as in StreamingTextCompiler
+    * @param chunk The lines
+    * @return the number of line ends in the chunk
+    */
+    private static long countLines(char[] chunk) {
+        long count = 0;
+        for (int i=0; i<chunk.length; ++i) {
+            char c = chunk[i];
+            if (c == '\n' && (i == 0 || chunk[i - 1] != '\r'))
+                ++count;
+            else if (c == '\r')
+                ++count;
+        }
+        return count;
+    }
+    
+    /**
+    * Translates one chunk of complete lines
+    * @param chunk The lines
+    * @param firstLineNumber The line number of the first line of the chunk in the input
+    * @return the translated lines and the rejected lines, and the exception if a line failed
+    */
+    private ChunkResult compileChunk(char[] chunk, long firstLineNumber) {
+        ChunkResult result = new ChunkResult();
+        if (errorPolicy == ErrorPolicy.REJECT)
+            result.rejects = new CharArrayWriter();
+        try {
+            new StreamingTextCompiler(myCompiler, inputFieldSeparator, outputFieldSeparator, metrics, errorPolicy, placeholder)
+                .compile(new CharArrayReader(chunk), result.output, result.rejects, firstLineNumber);
+        }
+        catch (IOException | ParseException | IllegalArgumentException e) {
+            result.error = e;
+        }
+        return result;
+    }
+    
+    /**
+    * Waits for the chunk, writes its translated and rejected lines, and throws the exception of the chunk if there is one
+    * @param future The translated chunk
+    * @param writer output
+    * @param rejectWriter output for the rejected lines, or null
+    * @throws IOException re-thrown from the writers or the chunk, or when waiting is interrupted
+    * @throws ParseException re-thrown from the chunk
+    * @throws IllegalArgumentException re-thrown from the chunk
+    */
+    private void writeResult(Future<ChunkResult> future, Writer writer, Writer rejectWriter) throws IOException, ParseException, IllegalArgumentException {
+        ChunkResult result;
+        try {
+            result = future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while translating in parallel", e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException("Translation of a chunk failed", e.getCause());
+        }
+        long started = (metrics != null) ? System.nanoTime() : 0;
+        result.output.writeTo(writer);
+        if (metrics != null)
+            metrics.addWriteNanos(System.nanoTime() - started);
+        if (result.rejects != null)
+            result.rejects.writeTo(rejectWriter);
+        if (result.error instanceof ParseException)
+            throw (ParseException) result.error;
+        if (result.error instanceof IOException)
+            throw (IOException) result.error;
+        if (result.error instanceof IllegalArgumentException)
+            throw (IllegalArgumentException) result.error;
+    }
+}
@@ -0,0 +1,84 @@
+package compilemorse;
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * The main class for rendering a text file as morse audio (16-bit mono PCM WAV).
+ * The output is a file, or standard output when the output file name is -, so the audio can be piped to a player or an encoder.
+ * 
+ * @author Kukka
+ */
+public class RenderMorse {
+    
+    /**
+     * Checks arguments, builds the controller and the renderer, and renders the file
+     * @param args the command line arguments:
+     * String method name in format [character language]To[morse version]
+     * String input file name, text tokens separated by the default field separator
+     * String output file name, or - for standard output
+     * optional words per minute (default 20), tone frequency in hertz (default 600) and sample rate (default 8000)
+     * @throws IllegalArgumentException
+     * @throws NoSuchMethodException
+     * @throws FileNotFoundException
+     * @throws ParseException
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IllegalArgumentException, NoSuchMethodException, FileNotFoundException, 
+            ParseException, IOException {
+        String errorMessage = "Usage: RenderMorse translation_method inputfile outputfile|- [wpm [frequency [samplerate]]]";
+        if (args.length < 3 || args.length > 6) {
+            System.out.println(errorMessage);
+            throw new IllegalArgumentException (errorMessage);
+        }
+        
+        IOToCompiler myController;
+        MorseAudioRendererBuilder rendererBuilder = new MorseAudioRendererBuilder();
+        try {
+            myController = new IOToCompilerBuilder().setMethodName(args[0]).createIOToCompiler();
+            if (args.length > 3)
+                rendererBuilder.setWordsPerMinute(Double.parseDouble(args[3]));
+            if (args.length > 4)
+                rendererBuilder.setFrequency(Double.parseDouble(args[4]));
+            if (args.length > 5)
+                rendererBuilder.setSampleRate(Integer.parseInt(args[5]));
+        }
+        catch (IllegalArgumentException e) { // Also NumberFormatException
+            System.out.println(e.getMessage());
+            throw e;
+        }
+        
+        boolean toStandardOutput = args[2].equals("-");
+        OutputStream standardOutput = toStandardOutput ? new BufferedOutputStream(System.out, 65536) : null;
+        long start = System.nanoTime();
+        try (MorseAudioRenderer renderer = toStandardOutput ? rendererBuilder.createMorseAudioRenderer(standardOutput)
+            : rendererBuilder.createMorseAudioRenderer(Path.of(args[2]))) {
+            myController.compileAudio(args[1], renderer);
+            if (!toStandardOutput) // Standard output is the audio, nothing else may be written there
+                System.out.println(String.format("Rendered %.1f s of audio in %.3f s", renderer.getSeconds(), (System.nanoTime() - start) / 1e9));
+        }
+        catch (FileNotFoundException e) {
+            System.err.println("File not found");
+            System.err.println(e.getMessage());
+            throw e;
+        }
+        catch (ParseException e) {
+            System.err.println("Erroneous input line in input file.");
+            System.err.println(e.getMessage());
+            System.err.println("first index in position " + e.getErrorOffset());
+            throw e;
+        }
+        catch (IOException e) {
+            System.err.println("IO exception");
+            System.err.println(e.getMessage());
+            throw e;
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            throw e;
+        }
+    }
+}
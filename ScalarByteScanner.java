@@ -0,0 +1,62 @@
+package compilemorse;
+
+/**
+ * Byte scanner that looks at one byte at a time, and chooses the scanner at startup (see ByteScanner).
+ * 
+ * @author Kukka
+ */
+final class ScalarByteScanner implements ByteScanner {
+    
+    /**
+    * Chooses the vector scanner if the Vector API is available and useful, otherwise a scalar scanner
+    * @return the scanner
+    */
+    static ByteScanner choose() {
+        if (!Boolean.parseBoolean(System.getProperty("compilemorse.vector", "true")))
+            return new ScalarByteScanner();
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) // Not added with --add-modules
+            return new ScalarByteScanner();
+        try {
+            return (ByteScanner) Class.forName("compilemorse.VectorByteScanner").getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+            return new ScalarByteScanner();
+        }
+    }
+    
+    /**
+    * @return 1, the bytes are looked at one at a time
+    */
+    @Override
+    public int getWidth() {
+        return 1;
+    }
+    
+    @Override
+    public int indexOfLineEnd(byte[] buffer, int from, int to) {
+        for (int i=from; i<to; ++i) {
+            byte b = buffer[i];
+            if (b == '\n' || b == '\r')
+                return i;
+        }
+        return to;
+    }
+    
+    @Override
+    public int indexOfOther(byte[] buffer, int from, int to, byte first, byte second, byte third) {
+        for (int i=from; i<to; ++i) {
+            byte b = buffer[i];
+            if (b != first && b != second && b != third)
+                return i;
+        }
+        return to;
+    }
+    
+    @Override
+    public int indexOfPair(byte[] buffer, int from, int to, byte value) {
+        for (int i=from; i<to-1; ++i)
+            if (buffer[i] == value && buffer[i + 1] == value)
+                return i;
+        return to;
+    }
+}
@@ -0,0 +1,44 @@
+package compilemorse;
+import java.io.IOException;
+
+/**
+ * The main class for running the local translation server.
+ * The alphabet is loaded once, and the server runs until the process is stopped.
+ * 
+ * @author Kukka
+ */
+public class ServeMorse {
+    
+    /**
+     * Checks arguments, opens the server and serves until the process is stopped
+     * @param args the command line arguments:
+     * port number on the loopback interface, or unix: followed by a socket file path
+     * @throws IllegalArgumentException
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IllegalArgumentException, IOException {
+        String errorMessage = "Usage: ServeMorse port | ServeMorse unix:socketfile";
+        if (args.length != 1) {
+            System.out.println(errorMessage);
+            throw new IllegalArgumentException (errorMessage);
+        }
+        MorseServer server;
+        try {
+            server = new MorseServer(args[0]);
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println(errorMessage);
+            throw e;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread( () -> {
+            try {
+                server.close();
+            }
+            catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+        }));
+        System.out.println("Listening on " + server.getAddress());
+        server.serve();
+    }
+}
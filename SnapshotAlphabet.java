@@ -0,0 +1,55 @@
+package compilemorse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * The main class for writing a snapshot of the default alphabet (see AlphabetSnapshot).
+ * The snapshot is read back and checked against the alphabet before the tool returns.
+ * Custom alphabets are written in code with AlphabetSnapshot.write.
+ * 
+ * @author Kukka
+ */
+public class SnapshotAlphabet {
+    
+    /**
+     * Checks arguments, builds the default alphabet, writes the snapshot and verifies it
+     * @param args the command line arguments:
+     * String snapshot file name
+     * @throws IllegalArgumentException
+     * @throws ParseException
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IllegalArgumentException, ParseException, IOException {
+        String errorMessage = "Usage: SnapshotAlphabet snapshotfile";
+        if (args.length != 1) {
+            System.out.println(errorMessage);
+            throw new IllegalArgumentException (errorMessage);
+        }
+        Path file = Path.of(args[0]);
+        AlphabetArrays container = new AlphabetArrays(new AlphabetBuilder().createAlphabet());
+        try {
+            AlphabetSnapshot.write(container, file);
+        }
+        catch (IOException e) {
+            System.out.println("IO exception");
+            System.out.println(e.getMessage());
+            throw e;
+        }
+        
+        AlphabetArrays loaded = AlphabetSnapshot.read(file);
+        if (!loaded.getAlphabet().getAlphabetMap().equals(container.getAlphabet().getAlphabetMap())) {
+            System.out.println("Snapshot differs from the alphabet");
+            throw new IllegalStateException("Snapshot differs from the alphabet");
+        }
+        for (String morseToken : container.getAlphabet().getAlphabetMap().values()) {
+            if (!loaded.morseTokenToTextToken(morseToken).equals(container.morseTokenToTextToken(morseToken))) {
+                System.out.println("Snapshot translates differently " + morseToken);
+                throw new IllegalStateException("Snapshot translates differently " + morseToken);
+            }
+        }
+        System.out.println("Wrote " + container.getTextAlphabetName() + AlphabetRegistry.METHOD_SEPARATOR + container.getMorseAlphabetName()
+            + ", " + container.getAlphabet().getAlphabetMap().size() + " tokens, " + Files.size(file) + " bytes to " + file);
+    }
+}
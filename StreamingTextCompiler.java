@@ -0,0 +1,519 @@
+package compilemorse;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.text.ParseException;
+
+/**
+ * Streaming version of the line pipeline of IOToCompiler.
+ * Scans the lines directly from a character buffer filled from the reader, translates the tokens as slices of the buffer,
+ * and writes the translated line to the writer, without building the input line, the token strings and arrays or the joined output line.
+ * The output is the same as with the line-by-line pipeline: lines end at \n, \r or \r\n as with BufferedReader.readLine,
+ * and the translated lines are written one after another.
+ * With a one-character input field separator the line is tokenized on the buffer directly with DelimeterTokenizer, 
+ * with a longer separator each line is parsed as a string with LongDelimeterParser.
+ * With an empty input field separator the lines are free text, which is segmented into the text tokens of the alphabet 
+ * by the longest match with TextTokenizer (only from text to morse).
+ * With metrics, the counts are kept in fields and added to the metrics at the end of compile, and the stages are timed once per line.
+ * A caller that gets the input as lines and not from a reader translates them one at a time with startLines, compileLine and addToMetrics.
+ * The error policy tells what is done with tokens that cannot be translated and lines that cannot be parsed.
+ * Except with ErrorPolicy.FAIL_FAST, the errors are found with LineTokenizer.tryTokenize (LongDelimeterParser.tryParse) 
+ * and MorseCompiler.tryCompileToken without exceptions.
+ * A rejected line is written to the reject writer as its line number, the offset of the first error in the line
+ * (-1 for a token that cannot be translated when the separator has several characters), the reason and the line itself, separated by tabs.
+ * 
+ * @author Kukka
+ */
+final class StreamingTextCompiler {
+    
+    /**
+    * Initial size of the input buffer, grows if a line does not fit into it
+    */
+    static final int DEFAULT_BUFFER_SIZE = 65536;
+    
+    /**
+    * The compiler to which the tokens are delegated
+    */
+    final private MorseCompiler myCompiler;
+    
+    /**
+    * Field separator in input
+    */
+    final private String inputFieldSeparator;
+    
+    /**
+    * Field separator in output
+    */
+    final private String outputFieldSeparator;
+    
+    /**
+    * The tokenizer for a one-character or an empty input field separator, null for a longer separator
+    */
+    final private LineTokenizer tokenizer;
+    
+    /**
+    * The parser for an input field separator of several characters, null for a shorter separator
+    */
+    final private LongDelimeterParser longDelimeterParser;
+    
+    /**
+    * Buffer for the characters of a token parsed with an input field separator of several characters
+    */
+    private char[] tokenBuffer = new char[64];
+    
+    /**
+    * The translated line, reused for each line so that a line that fails is not written partially
+    */
+    final private StringBuilder outputLine = new StringBuilder();
+    
+    /**
+    * Buffer for copying the translated line to the writer
+    */
+    private char[] outputBuffer = new char[256];
+    
+    /**
+    * Tells whether the current output line has no tokens yet
+    */
+    private boolean firstToken;
+    
+    /**
+    * What is done with tokens that cannot be translated and lines that cannot be parsed
+    */
+    final private ErrorPolicy errorPolicy;
+    
+    /**
+    * The output for a token that cannot be translated or a line that cannot be parsed with ErrorPolicy.PLACEHOLDER
+    */
+    final private String placeholder;
+    
+    /**
+    * The output for the rejected lines of the current compile call with ErrorPolicy.REJECT
+    */
+    private Writer rejectWriter = null;
+    
+    /**
+    * Line number of the current line, counted from the first line number given to compile
+    */
+    private long lineNumber;
+    
+    /**
+    * The metrics, or null when nothing is counted
+    */
+    final private TranslationMetrics metrics;
+    
+    /**
+    * Counts and times of the current compile call, added to the metrics at its end
+    */
+    private long lines, tokens, unknownTokens, badLines, parseNanos, lookupNanos, writeNanos, charsIn, charsOut;
+    
+    /**
+    * Constructor for the streaming compiler
+    * @param pCompiler The compiler to which the tokens are delegated
+    * @param pInputFieldSeparator Field separator in input
+    * @param pOutputFieldSeparator Field separator in output
+    * @throws IllegalArgumentException if the input field separator is empty and the compiler cannot tokenize free text
+    */
+    StreamingTextCompiler(MorseCompiler pCompiler, String pInputFieldSeparator, String pOutputFieldSeparator) {
+        this(pCompiler, pInputFieldSeparator, pOutputFieldSeparator, null);
+    }
+    
+    /**
+    * Constructor for the streaming compiler with metrics
+    * @param pCompiler The compiler to which the tokens are delegated
+    * @param pInputFieldSeparator Field separator in input
+    * @param pOutputFieldSeparator Field separator in output
+    * @param pMetrics The metrics, or null
+    * @throws IllegalArgumentException if the input field separator is empty and the compiler cannot tokenize free text
+    */
+    StreamingTextCompiler(MorseCompiler pCompiler, String pInputFieldSeparator, String pOutputFieldSeparator, TranslationMetrics pMetrics) {
+        this(pCompiler, pInputFieldSeparator, pOutputFieldSeparator, pMetrics, ErrorPolicy.FAIL_FAST, null);
+    }
+    
+    /**
+    * Constructor for the streaming compiler with metrics and an error policy
+    * @param pCompiler The compiler to which the tokens are delegated
+    * @param pInputFieldSeparator Field separator in input
+    * @param pOutputFieldSeparator Field separator in output
+    * @param pMetrics The metrics, or null
+    * @param pErrorPolicy What is done with tokens that cannot be translated and lines that cannot be parsed
+    * @param pPlaceholder The output for an error with ErrorPolicy.PLACEHOLDER
+    * @throws IllegalArgumentException if the input field separator is empty and the compiler cannot tokenize free text,
+    * or the placeholder is null with ErrorPolicy.PLACEHOLDER
+    */
+    StreamingTextCompiler(MorseCompiler pCompiler, String pInputFieldSeparator, String pOutputFieldSeparator, TranslationMetrics pMetrics,
+      ErrorPolicy pErrorPolicy, String pPlaceholder) {
+        if (pErrorPolicy == ErrorPolicy.PLACEHOLDER && pPlaceholder == null)
+            throw new IllegalArgumentException("No placeholder for the errors");
+        errorPolicy = pErrorPolicy;
+        placeholder = pPlaceholder;
+        metrics = pMetrics;
+        myCompiler = pCompiler;
+        inputFieldSeparator = pInputFieldSeparator;
+        outputFieldSeparator = pOutputFieldSeparator;
+        if (pInputFieldSeparator.isEmpty())
+            tokenizer = pCompiler.newTextTokenizer();
+        else
+            tokenizer = (pInputFieldSeparator.length() == 1) ? new DelimeterTokenizer(pInputFieldSeparator.charAt(0)) : null;
+        longDelimeterParser = (pInputFieldSeparator.length() > 1) ? new LongDelimeterParser(pInputFieldSeparator) : null;
+    }
+    
+    /**
+    * Reads all lines from the reader, translates them, and writes the result to the writer
+    * @param reader input
+    * @param writer output
+    * @throws IOException re-thrown from the reader or the writer
+    * @throws ParseException when a line is not separated by delimeters in a correct way
+    * @throws IllegalArgumentException when a token cannot be translated
+    */
+    void compile(Reader reader, Writer writer) throws IOException, ParseException, IllegalArgumentException {
+        compile(reader, writer, null, 1);
+    }
+    
+    /**
+    * Reads all lines from the reader, translates them, and writes the result to the writer and the rejected lines to the reject writer
+    * @param reader input
+    * @param writer output
+    * @param pRejectWriter output for the rejected lines, needed only with ErrorPolicy.REJECT
+    * @param firstLineNumber line number of the first line read from the reader, for the rejected lines
+    * @throws IOException re-thrown from the reader or the writers
+    * @throws ParseException when a line is not separated by delimeters in a correct way, with ErrorPolicy.FAIL_FAST
+    * @throws IllegalArgumentException when a token cannot be translated with ErrorPolicy.FAIL_FAST,
+    * or there is no reject writer with ErrorPolicy.REJECT
+    */
+    void compile(Reader reader, Writer writer, Writer pRejectWriter, long firstLineNumber) 
+      throws IOException, ParseException, IllegalArgumentException {
+        startLines(pRejectWriter, firstLineNumber);
+        try {
+            compileLines(reader, writer);
+        }
+        finally {
+            addToMetrics();
+        }
+    }
+    
+    /**
+    * Starts translating lines, by compile or one at a time by compileLine for the callers that do not read the lines from a reader
+    * (see TranslationProcessor)
+    * @param pRejectWriter output for the rejected lines, needed only with ErrorPolicy.REJECT
+    * @param firstLineNumber line number of the first line, for the rejected lines
+    * @throws IllegalArgumentException if there is no reject writer with ErrorPolicy.REJECT
+    */
+    void startLines(Writer pRejectWriter, long firstLineNumber) throws IllegalArgumentException {
+        if (errorPolicy == ErrorPolicy.REJECT && pRejectWriter == null)
+            throw new IllegalArgumentException("No output for the rejected lines");
+        rejectWriter = pRejectWriter;
+        lineNumber = firstLineNumber - 1;
+        lines = tokens = unknownTokens = badLines = parseNanos = lookupNanos = writeNanos = charsIn = charsOut = 0;
+    }
+    
+    /**
+    * Adds the counts and times since startLines or the previous call to the metrics, if there are metrics
+    */
+    void addToMetrics() {
+        if (metrics != null)
+            metrics.add(lines, tokens, myCompiler.isToMorse(), unknownTokens, badLines, parseNanos, lookupNanos, writeNanos, charsIn, charsOut);
+        lines = tokens = unknownTokens = badLines = parseNanos = lookupNanos = writeNanos = charsIn = charsOut = 0;
+    }
+    
+    /**
+    * Translates one line after startLines, following the error policy
+    * @param buffer The buffer that contains the line, without the line end
+    * @param start index of the first character of the line
+    * @param end index after the last character of the line
+    * @return the translated line, or null if the line is left out
+    * @throws IOException re-thrown from the reject writer
+    * @throws ParseException when the line is not separated by delimeters in a correct way, with ErrorPolicy.FAIL_FAST
+    * @throws IllegalArgumentException when a token cannot be translated, with ErrorPolicy.FAIL_FAST
+    */
+    String compileLine(char[] buffer, int start, int end) throws IOException, ParseException, IllegalArgumentException {
+        charsIn += end - start;
+        if (!translateLine(buffer, start, end))
+            return null;
+        charsOut += outputLine.length();
+        return outputLine.toString();
+    }
+    
+    /**
+    * @return the line number of the last line read by compile, counted from the first line number given to it
+    */
+    long getLineNumber() {
+        return lineNumber;
+    }
+    
+    /**
+    * Reads all lines from the reader, translates them, and writes the result to the writer
+    * @param reader input
+    * @param writer output
+    * @throws IOException re-thrown from the reader or the writer
+    * @throws ParseException when a line is not separated by delimeters in a correct way
+    * @throws IllegalArgumentException when a token cannot be translated
+    */
+    private void compileLines(Reader reader, Writer writer) throws IOException, ParseException, IllegalArgumentException {
+        char[] buffer = new char[DEFAULT_BUFFER_SIZE];
+        int filled = 0; // Number of characters in the buffer
+        int lineStart = 0; // Start of the current line in the buffer
+        int scan = 0; // Where to continue looking for the end of the current line
+        boolean skipLF = false; // The previous line ended with \r, so a \n right after it belongs to the same line end
+        int read;
+        while ((read = reader.read(buffer, filled, buffer.length - filled)) != -1) {
+            filled += read;
+            charsIn += read;
+            if (skipLF && scan < filled) {
+                if (buffer[scan] == '\n')
+                    lineStart = ++scan;
+                skipLF = false;
+            }
+            while (scan < filled) {
+                char c = buffer[scan];
+                if (c == '\n' || c == '\r') {
+                    compileLine(buffer, lineStart, scan, writer);
+                    ++scan;
+                    if (c == '\r') {
+                        if (scan == filled)
+                            skipLF = true;
+                        else if (buffer[scan] == '\n')
+                            ++scan;
+                    }
+                    lineStart = scan;
+                    if (skipLF)
+                        break;
+                }
+                else
+                    ++scan;
+            }
+            // Move the unfinished line to the beginning of the buffer, and grow the buffer if the line fills it
+            if (lineStart > 0) {
+                System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+                filled -= lineStart;
+                scan -= lineStart;
+                lineStart = 0;
+            }
+            if (filled == buffer.length) {
+                char[] newBuffer = new char[buffer.length * 2];
+                System.arraycopy(buffer, 0, newBuffer, 0, filled);
+                buffer = newBuffer;
+            }
+        }
+        if (lineStart < filled) // The last line does not end with a line separator
+            compileLine(buffer, lineStart, filled, writer);
+    }
+    
+    /**
+    * Translates one line and writes it to the writer
+    * @param buffer The buffer that contains the line
+    * @param start index of the first character of the line
+    * @param end index after the last character of the line
+    * @param writer output
+    * @throws IOException re-thrown from the writers
+    * @throws ParseException when the line is not separated by delimeters in a correct way, with ErrorPolicy.FAIL_FAST
+    * @throws IllegalArgumentException when a token cannot be translated, with ErrorPolicy.FAIL_FAST
+    */
+    private void compileLine(char[] buffer, int start, int end, Writer writer) throws IOException, ParseException, IllegalArgumentException {
+        if (!translateLine(buffer, start, end))
+            return;
+        long translated = (metrics != null) ? System.nanoTime() : 0;
+        int length = outputLine.length();
+        if (length > outputBuffer.length)
+            outputBuffer = new char[Math.max(length, outputBuffer.length * 2)];
+        outputLine.getChars(0, length, outputBuffer, 0);
+        writer.write(outputBuffer, 0, length);
+        charsOut += length;
+        if (metrics != null)
+            writeNanos += System.nanoTime() - translated;
+    }
+    
+    /**
+    * Translates one line into the output line
+    * @param buffer The buffer that contains the line
+    * @param start index of the first character of the line
+    * @param end index after the last character of the line
+    * @return true if the output line is written, false if the line is left out
+    * @throws IOException re-thrown from the reject writer
+    * @throws ParseException when the line is not separated by delimeters in a correct way, with ErrorPolicy.FAIL_FAST
+    * @throws IllegalArgumentException when a token cannot be translated, with ErrorPolicy.FAIL_FAST
+    */
+    private boolean translateLine(char[] buffer, int start, int end) throws IOException, ParseException, IllegalArgumentException {
+        outputLine.setLength(0);
+        firstToken = true;
+        ++lines;
+        ++lineNumber;
+        long parsed = 0, started = (metrics != null) ? System.nanoTime() : 0;
+        boolean written; // A line that is left out is timed as well
+        if (tokenizer != null) {
+            int errorOffset = tokenizer.tryTokenize(buffer, start, end);
+            if (metrics != null)
+                parsed = System.nanoTime();
+            if (errorOffset >= 0) {
+                ++badLines;
+                if (errorPolicy == ErrorPolicy.FAIL_FAST)
+                    throw new ParseException(tokenizer.getError(), errorOffset);
+                written = badLine(buffer, start, end, errorOffset, tokenizer.getError());
+            }
+            else if (errorPolicy == ErrorPolicy.FAIL_FAST) {
+                try {
+                    myCompiler.compile(buffer, tokenizer, outputFieldSeparator, outputLine);
+                }
+                catch (IllegalArgumentException e) {
+                    ++unknownTokens;
+                    throw e;
+                }
+                tokens += tokenizer.getTokenCount();
+                written = true;
+            }
+            else
+                written = compileTokens(buffer, start, end);
+        }
+        else {
+            String[] lineTokens = longDelimeterParser.tryParse(new String(buffer, start, end - start));
+            if (metrics != null)
+                parsed = System.nanoTime();
+            if (lineTokens == null) {
+                ++badLines;
+                if (errorPolicy == ErrorPolicy.FAIL_FAST)
+                    throw new ParseException(longDelimeterParser.getError(), longDelimeterParser.getErrorOffset());
+                written = badLine(buffer, start, end, longDelimeterParser.getErrorOffset(), longDelimeterParser.getError());
+            }
+            else
+                written = compileTokens(buffer, start, end, lineTokens);
+        }
+        if (metrics != null) {
+            parseNanos += parsed - started;
+            lookupNanos += System.nanoTime() - parsed;
+        }
+        return written;
+    }
+    
+    /**
+    * Translates the tokens of a tokenized line into the output line without exceptions, following the error policy
+    * @param buffer The buffer that contains the line
+    * @param start index of the first character of the line
+    * @param end index after the last character of the line
+    * @return true if the output line is written, false if the line is left out
+    * @throws IOException re-thrown from the reject writer
+    */
+    private boolean compileTokens(char[] buffer, int start, int end) throws IOException {
+        int tokenCount = tokenizer.getTokenCount();
+        tokens += tokenCount;
+        for (int i=0; i<tokenCount; ++i) {
+            int offset = tokenizer.getTokenOffset(i);
+            int mark = outputLine.length();
+            if (!firstToken)
+                outputLine.append(outputFieldSeparator);
+            if (myCompiler.tryCompileToken(buffer, offset, tokenizer.getTokenLength(i), outputLine)) {
+                firstToken = false;
+                continue;
+            }
+            outputLine.setLength(mark);
+            ++unknownTokens;
+            if (!unknownToken(buffer, start, end, offset - start))
+                return false;
+        }
+        return true;
+    }
+    
+    /**
+    * Translates the tokens of a line parsed with an input field separator of several characters into the output line, 
+    * following the error policy.  The tokens are translated from a buffer with MorseCompiler.tryCompileToken,
+    * so an unknown token is found without an exception except with ErrorPolicy.FAIL_FAST.
+    * @param buffer The buffer that contains the line
+    * @param start index of the first character of the line
+    * @param end index after the last character of the line
+    * @param lineTokens The tokens of the line
+    * @return true if the output line is written, false if the line is left out
+    * @throws IOException re-thrown from the reject writer
+    * @throws IllegalArgumentException when a token cannot be translated, with ErrorPolicy.FAIL_FAST
+    */
+    private boolean compileTokens(char[] buffer, int start, int end, String[] lineTokens) throws IOException, IllegalArgumentException {
+        tokens += lineTokens.length;
+        for (String token : lineTokens) {
+            int length = token.length();
+            if (length > tokenBuffer.length)
+                tokenBuffer = new char[Math.max(length, tokenBuffer.length * 2)];
+            token.getChars(0, length, tokenBuffer, 0);
+            int mark = outputLine.length();
+            if (!firstToken)
+                outputLine.append(outputFieldSeparator);
+            if (myCompiler.tryCompileToken(tokenBuffer, 0, length, outputLine)) {
+                firstToken = false;
+                continue;
+            }
+            outputLine.setLength(mark);
+            ++unknownTokens;
+            if (errorPolicy == ErrorPolicy.FAIL_FAST)
+                myCompiler.compileToken(token); // Throws the exception of the token
+            if (!unknownToken(buffer, start, end, -1))
+                return false;
+        }
+        return true;
+    }
+    
+    /**
+    * Handles a line that cannot be parsed with an error policy other than ErrorPolicy.FAIL_FAST
+    * @param buffer The buffer that contains the line
+    * @param start index of the first character of the line
+    * @param end index after the last character of the line
+    * @param errorOffset The offset of the error in the line
+    * @param reason The message of the error
+    * @return true if the placeholder is written for the line, false if the line is left out
+    * @throws IOException re-thrown from the reject writer
+    */
+    private boolean badLine(char[] buffer, int start, int end, int errorOffset, String reason) throws IOException {
+        if (errorPolicy == ErrorPolicy.REJECT)
+            reject(buffer, start, end, errorOffset, reason);
+        if (errorPolicy != ErrorPolicy.PLACEHOLDER)
+            return false;
+        outputLine.setLength(0);
+        outputLine.append(placeholder);
+        return true;
+    }
+    
+    /**
+    * Handles a token that cannot be translated with an error policy other than ErrorPolicy.FAIL_FAST
+    * @param buffer The buffer that contains the line
+    * @param start index of the first character of the line
+    * @param end index after the last character of the line
+    * @param tokenOffset The offset of the token in the line, or -1 if it is not known
+    * @return true if the translation of the line continues, false if the line is left out
+    * @throws IOException re-thrown from the reject writer
+    */
+    private boolean unknownToken(char[] buffer, int start, int end, int tokenOffset) throws IOException {
+        if (errorPolicy == ErrorPolicy.REJECT) {
+            reject(buffer, start, end, tokenOffset, "Token cannot be translated");
+            return false;
+        }
+        if (errorPolicy == ErrorPolicy.PLACEHOLDER)
+            appendToken(placeholder);
+        return true;
+    }
+    
+    /**
+    * Writes a rejected line to the reject writer: the line number, the offset of the error, the reason and the line, separated by tabs
+    * @param buffer The buffer that contains the line
+    * @param start index of the first character of the line
+    * @param end index after the last character of the line
+    * @param errorOffset The offset of the error in the line, or -1 if it is not known
+    * @param reason The reason for rejecting the line
+    * @throws IOException re-thrown from the reject writer
+    */
+    private void reject(char[] buffer, int start, int end, int errorOffset, String reason) throws IOException {
+        rejectWriter.write(Long.toString(lineNumber));
+        rejectWriter.write('\t');
+        rejectWriter.write(Integer.toString(errorOffset));
+        rejectWriter.write('\t');
+        rejectWriter.write(reason);
+        rejectWriter.write('\t');
+        rejectWriter.write(buffer, start, end - start);
+        rejectWriter.write('\n');
+    }
+    
+    /**
+    * Appends a translated token to the output line, preceded by the output field separator unless it is the first token
+    * @param translatedToken the translated token
+    */
+    private void appendToken(String translatedToken) {
+        if (!firstToken)
+            outputLine.append(outputFieldSeparator);
+        firstToken = false;
+        outputLine.append(translatedToken);
+    }
+}
@@ -0,0 +1,159 @@
+package compilemorse;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Translator from a text token to a morse token.
+ * When the alphabet container gives its alphabet, the translator precomputes the morse tokens already in the output format
+ * for every text token of the alphabet, and with textToUpperCase for their lower case forms as well,
+ * so that neither String.toUpperCase nor the prototype conversion is needed per token.
+ * Other tokens are converted to upper case if desired, looked up from the alphabet container
+ * and converted from the internal format to the output format.
+ * 
+ * @author Kukka
+ */
+final class TextToMorseTranslator implements TokenTranslator {
+    
+    /**
+     * The alphabet container where the morse tokens are looked up
+     */
+    final private AlphabetCollections alphabetContainer;
+    
+    /**
+     * The prototype for morse output
+     */
+    final private MorseTokenPrototype outputPrototype;
+    
+    /**
+     * The prototype for morse tokens inside the alphabet container
+     */
+    final private MorseTokenPrototype internalPrototype;
+    
+    /**
+     * Tells whether text tokens will be converted to uppercase before the lookup
+     */
+    final private boolean textToUpperCase;
+    
+    /**
+     * Precomputed morse tokens in the output format by text token
+     */
+    final private Map<String, String> renderedByText = new HashMap<>();
+    
+    /**
+     * Precomputed morse tokens in the output format by single text character, null where there is none
+     */
+    final private String[] renderedByCharacter;
+    
+    /**
+     * Tells whether the precomputed tokens are all the tokens that can be translated (the container gives its alphabet)
+     */
+    final private boolean precomputed;
+    
+    /**
+     * Constructor for the translator, precomputes the morse tokens in the output format
+     * @param pAlphabetContainer The alphabet container where the morse tokens are looked up
+     * @param pOutputPrototype The prototype for morse output
+     * @param pTextToUpperCase Tells whether text tokens will be converted to uppercase before the lookup
+     */
+    TextToMorseTranslator(AlphabetCollections pAlphabetContainer, MorseTokenPrototype pOutputPrototype, boolean pTextToUpperCase) {
+        alphabetContainer = pAlphabetContainer;
+        outputPrototype = pOutputPrototype;
+        internalPrototype = pAlphabetContainer.getInternalPrototype();
+        textToUpperCase = pTextToUpperCase;
+        
+        Alphabet alphabet = pAlphabetContainer.getAlphabet();
+        precomputed = (alphabet != null);
+        if (alphabet != null) {
+            for (String textToken : alphabet.getAlphabetMap().keySet()) {
+                addRendered(textToken);
+                if (textToUpperCase)
+                    addRendered(textToken.toLowerCase());
+            }
+        }
+        int maxCharacter = -1;
+        for (String textToken : renderedByText.keySet())
+            if (textToken.length() == 1)
+                maxCharacter = Math.max(maxCharacter, textToken.charAt(0));
+        renderedByCharacter = new String[maxCharacter + 1];
+        renderedByText.forEach( (textToken, morseToken) -> {
+            if (textToken.length() == 1)
+                renderedByCharacter[textToken.charAt(0)] = morseToken;
+        } );
+    }
+    
+    /**
+    * Precomputes the translation of the token, if the token can be translated
+    * Tokens that cannot be translated are left to the lookup in translate, which throws the exception
+    * @param textToken The text token as it may appear in the input
+    */
+    private void addRendered(String textToken) {
+        if (renderedByText.containsKey(textToken))
+            return;
+        try {
+            renderedByText.put(textToken, lookUp(textToken));
+        }
+        catch (IllegalArgumentException e) {
+            // Not in the alphabet after upper case conversion, or not a valid morse token
+        }
+    }
+    
+    /**
+    * Translates the token without the precomputed tokens
+    * @param token The text token
+    * @return the morse token in the output format
+    * @throws IllegalArgumentException when the token cannot be translated
+    */
+    private String lookUp(String token) throws IllegalArgumentException {
+        if (textToUpperCase)
+            token = token.toUpperCase();
+        return outputPrototype.convertToken(alphabetContainer.textTokenToMorseToken(token), internalPrototype);
+    }
+    
+    @Override
+    public String translate(String token) throws IllegalArgumentException {
+        String morseToken = renderedByText.get(token);
+        return (morseToken != null) ? morseToken : lookUp(token);
+    }
+    
+    @Override
+    public void translate(char[] buffer, int offset, int length, Appendable output) throws IOException, IllegalArgumentException {
+        String morseToken = null;
+        if (length == 1) {
+            char c = buffer[offset];
+            if (c < renderedByCharacter.length)
+                morseToken = renderedByCharacter[c];
+        }
+        if (morseToken == null) // Mnemonics and tokens that are not in the precomputed tokens
+            morseToken = translate(new String(buffer, offset, length));
+        output.append(morseToken);
+    }
+    
+    @Override
+    public boolean tryTranslate(char[] buffer, int offset, int length, Appendable output) throws IOException {
+        String morseToken = null;
+        if (length == 1) {
+            char c = buffer[offset];
+            if (c < renderedByCharacter.length)
+                morseToken = renderedByCharacter[c];
+        }
+        if (morseToken == null) {
+            String token = new String(buffer, offset, length);
+            morseToken = renderedByText.get(token);
+            if (morseToken == null && precomputed) // A token is in the alphabet only if its upper case form is
+                morseToken = textToUpperCase ? renderedByText.get(token.toUpperCase()) : null;
+            else if (morseToken == null) {
+                try {
+                    morseToken = lookUp(token);
+                }
+                catch (IllegalArgumentException e) {
+                    // Only without the precomputed tokens
+                }
+            }
+            if (morseToken == null)
+                return false;
+        }
+        output.append(morseToken);
+        return true;
+    }
+}
@@ -0,0 +1,209 @@
+package compilemorse;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Tokenizer for free text without field separators.
+ * The text tokens of the alphabet (characters and mnemonics) are stored in a trie, and the line is segmented in one pass 
+ * by the greedy longest match: at each position the longest text token that starts there is taken, and the walk continues after it.
+ * Since the walk restarts after each match and no token is longer than the longest text token, a line is tokenized in time
+ * proportional to its length times the length of the longest token, without building strings.
+ * A whitespace character that starts no text token is skipped (it only separates words), 
+ * and any other character that starts no text token is a token of its own, so that its translation fails as with separated input.
+ * The boundaries are reused from line to line, so an instance must not be shared between threads.
+ * 
+ * @author Kukka
+ */
+final class TextTokenizer implements LineTokenizer {
+    
+    /**
+    * Key of an empty slot in the edge table
+    */
+    private static final long NO_EDGE = -1L;
+    
+    /**
+    * Tells whether characters are converted to upper case before matching them
+    */
+    final private boolean foldToUpperCase;
+    
+    /**
+    * Edges of the trie, keyed by the parent node and the character (node * 65536 + character), open addressing
+    */
+    final private long[] edgeKeys;
+    
+    /**
+    * The child node of each edge
+    */
+    final private int[] edgeChildren;
+    
+    /**
+    * Tells whether a text token ends in the node, the root is node 0
+    */
+    final private boolean[] tokenEnds;
+    
+    /**
+    * Offsets of the tokens in the buffer
+    */
+    private int[] offsets = new int[64];
+    
+    /**
+    * Lengths of the tokens
+    */
+    private int[] lengths = new int[64];
+    
+    /**
+    * Number of tokens in the last tokenized line
+    */
+    private int tokenCount = 0;
+    
+    /**
+    * Builds the trie
+    * @param textTokens The text tokens of the alphabet
+    * @param pFoldToUpperCase Tells whether the input is converted to upper case before matching, 
+    * as the compiler does when text is converted to upper case
+    */
+    TextTokenizer(Collection<String> textTokens, boolean pFoldToUpperCase) {
+        foldToUpperCase = pFoldToUpperCase;
+        int maxNodes = 1;
+        for (String token : textTokens)
+            maxNodes += token.length();
+        int capacity = Integer.highestOneBit(Math.max(2, maxNodes * 2 - 1)) << 1;
+        edgeKeys = new long[capacity];
+        Arrays.fill(edgeKeys, NO_EDGE);
+        edgeChildren = new int[capacity];
+        tokenEnds = new boolean[maxNodes];
+        int nodeCount = 1;
+        for (String token : textTokens) {
+            if (token.isEmpty())
+                continue;
+            int node = 0;
+            for (int i=0; i<token.length(); ++i) {
+                long key = edgeKey(node, fold(token.charAt(i)));
+                int slot = findSlot(key);
+                if (edgeKeys[slot] == NO_EDGE) {
+                    edgeKeys[slot] = key;
+                    edgeChildren[slot] = nodeCount++;
+                }
+                node = edgeChildren[slot];
+            }
+            tokenEnds[node] = true;
+        }
+    }
+    
+    /**
+    * @param node The parent node
+    * @param c The character
+    * @return the key of the edge
+    */
+    private static long edgeKey(int node, char c) {
+        return ((long) node << 16) | c;
+    }
+    
+    /**
+    * @param c A character
+    * @return the character in upper case if the input is converted to upper case, otherwise the character itself
+    */
+    private char fold(char c) {
+        return foldToUpperCase ? Character.toUpperCase(c) : c;
+    }
+    
+    /**
+    * @param key The key of an edge
+    * @return the slot of the edge, or the empty slot where it would be
+    */
+    private int findSlot(long key) {
+        int mask = edgeKeys.length - 1;
+        int slot = (int) (key ^ (key >>> 13)) * 0x9E3779B9 >>> 7 & mask;
+        while (edgeKeys[slot] != NO_EDGE && edgeKeys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+    
+    @Override
+    public int getTokenCount() {
+        return tokenCount;
+    }
+    
+    @Override
+    public int getTokenOffset(int i) {
+        return offsets[i];
+    }
+    
+    @Override
+    public int getTokenLength(int i) {
+        return lengths[i];
+    }
+    
+    /**
+    * Records a token
+    * @param offset The offset of the token in the buffer
+    * @param length The length of the token
+    */
+    private void addToken(int offset, int length) {
+        if (tokenCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, tokenCount * 2);
+            lengths = Arrays.copyOf(lengths, tokenCount * 2);
+        }
+        offsets[tokenCount] = offset;
+        lengths[tokenCount] = length;
+        ++tokenCount;
+    }
+    
+    /**
+    * Segments one line in a buffer into text tokens by the greedy longest match.  The token offsets are indexes in the buffer.
+    * Never throws, a character that starts no text token is a token of its own.
+    * @param buffer The buffer that contains the line
+    * @param start index of the first character of the line
+    * @param end index after the last character of the line
+    * @return the number of tokens
+    */
+    @Override
+    public int tokenize(char[] buffer, int start, int end) {
+        tryTokenize(buffer, start, end);
+        return tokenCount;
+    }
+    
+    /**
+    * Segments one line as tokenize, which never fails
+    * @param buffer The buffer that contains the line
+    * @param start index of the first character of the line
+    * @param end index after the last character of the line
+    * @return -1
+    */
+    @Override
+    public int tryTokenize(char[] buffer, int start, int end) {
+        tokenCount = 0;
+        int i = start;
+        while (i < end) {
+            int node = 0;
+            int matchEnd = -1;
+            for (int j = i; j < end; ) {
+                int slot = findSlot(edgeKey(node, fold(buffer[j])));
+                if (edgeKeys[slot] == NO_EDGE)
+                    break;
+                node = edgeChildren[slot];
+                ++j;
+                if (tokenEnds[node])
+                    matchEnd = j;
+            }
+            if (matchEnd > 0) {
+                addToken(i, matchEnd - i);
+                i = matchEnd;
+            }
+            else {
+                if (!Character.isWhitespace(buffer[i]))
+                    addToken(i, 1);
+                ++i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+    * @return null, free text is always tokenized
+    */
+    @Override
+    public String getError() {
+        return null;
+    }
+}
@@ -0,0 +1,26 @@
+package compilemorse;
+
+/**
+ * Receives the tokens found by the parser as slices of the parsed buffer, so that the parser does not need to build strings or arrays.
+ * The audio decoder gives the decoded morse tokens in the same way.
+ * 
+ * @author Kukka
+ */
+interface TokenConsumer {
+    
+    /**
+    * Called once for each token, in the order of the tokens in the line
+    * @param buffer The buffer that contains the token
+    * @param offset The index of the first character of the token in the buffer
+    * @param length The number of characters in the token
+    * @throws IllegalArgumentException if the consumer cannot process the token
+    */
+    void acceptToken(char[] buffer, int offset, int length) throws IllegalArgumentException;
+    
+    /**
+    * Called after the last token of a word, when the source marks the words (for instance the audio decoder)
+    * The parser of a line does not call this.
+    */
+    default void endWord() {
+    }
+}
@@ -0,0 +1,44 @@
+package compilemorse;
+import java.io.IOException;
+
+/**
+ * Translates one token in one direction (text to morse or morse to text).
+ * The compiler chooses the implementation once, when the active method is set,
+ * so that each translation direction has its own monomorphic call site.
+ * 
+ * @author Kukka
+ */
+interface TokenTranslator {
+    
+    /**
+    * Translates the token, including the pre-processing and post-processing needed for the direction
+    * @param token The token to be translated, in the input format
+    * @return the translated token in the output format
+    * @throws IllegalArgumentException when the token cannot be translated
+    */
+    String translate(String token) throws IllegalArgumentException;
+    
+    /**
+    * Translates the token given as a slice of a buffer and appends the result to the output, without building strings for the token
+    * If an exception is thrown, part of the result may have been appended.
+    * @param buffer The buffer that contains the token, in the input format
+    * @param offset The index of the first character of the token
+    * @param length The number of characters in the token
+    * @param output The output, for instance a StringBuilder or a CharBuffer
+    * @throws IOException re-thrown from the output
+    * @throws IllegalArgumentException when the token cannot be translated
+    */
+    void translate(char[] buffer, int offset, int length, Appendable output) throws IOException, IllegalArgumentException;
+    
+    /**
+    * Translates the token given as a slice of a buffer as translate, but tells about a token that cannot be translated
+    * by the return value instead of an exception.  Nothing is appended for such a token.
+    * @param buffer The buffer that contains the token, in the input format
+    * @param offset The index of the first character of the token
+    * @param length The number of characters in the token
+    * @param output The output, for instance a StringBuilder or a CharBuffer
+    * @return true if the token was translated, false if it cannot be translated
+    * @throws IOException re-thrown from the output
+    */
+    boolean tryTranslate(char[] buffer, int offset, int length, Appendable output) throws IOException;
+}
\ No newline at end of file
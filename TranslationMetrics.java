@@ -0,0 +1,260 @@
+package compilemorse;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and stage timers of translation jobs: lines read, tokens translated in each direction, unknown tokens and bad lines,
+ * the time spent in parsing, lookup and writing, and the characters and bytes in and out.
+ * The pipelines count in their own fields and add the counts here once per file (or per chunk when translating in parallel),
+ * and time stages once per line, not per token, so the metrics cost little.  Without metrics nothing is counted or timed.
+ * An instance can be shared by any number of threads and jobs, for instance all files of a batch.
+ * The metrics can be read through JMX after register, and as one line of JSON with getSummary.
+ * 
+ * @author Kukka
+ */
+public class TranslationMetrics implements TranslationMetricsMXBean {
+    
+    /**
+    * The domain and type of the JMX names
+    */
+    static final String OBJECT_NAME_PREFIX = "compilemorse:type=TranslationMetrics,name=";
+    
+    /**
+    * Number of input lines read
+    */
+    final private LongAdder linesRead = new LongAdder();
+    
+    /**
+    * Number of tokens translated from text to morse
+    */
+    final private LongAdder tokensToMorse = new LongAdder();
+    
+    /**
+    * Number of tokens translated from morse to text
+    */
+    final private LongAdder tokensToText = new LongAdder();
+    
+    /**
+    * Number of tokens that could not be translated
+    */
+    final private LongAdder unknownTokens = new LongAdder();
+    
+    /**
+    * Number of lines that could not be split into tokens
+    */
+    final private LongAdder badLines = new LongAdder();
+    
+    /**
+    * Time spent splitting lines into tokens
+    */
+    final private LongAdder parseNanos = new LongAdder();
+    
+    /**
+    * Time spent translating tokens
+    */
+    final private LongAdder lookupNanos = new LongAdder();
+    
+    /**
+    * Time spent writing the translated lines
+    */
+    final private LongAdder writeNanos = new LongAdder();
+    
+    /**
+    * Number of characters read
+    */
+    final private LongAdder charsIn = new LongAdder();
+    
+    /**
+    * Number of characters written
+    */
+    final private LongAdder charsOut = new LongAdder();
+    
+    /**
+    * Size of the input files
+    */
+    final private LongAdder bytesIn = new LongAdder();
+    
+    /**
+    * Size of the output files
+    */
+    final private LongAdder bytesOut = new LongAdder();
+    
+    /**
+    * The JMX name, null when not registered
+    */
+    private ObjectName objectName = null;
+    
+    /**
+    * Constructor for the metrics, all zero
+    */
+    public TranslationMetrics() {
+    }
+    
+    /**
+    * Adds the counts of one pipeline run
+    * @param lines Number of lines read
+    * @param tokens Number of tokens translated
+    * @param toMorse Tells whether the tokens were translated from text to morse
+    * @param unknown Number of tokens that could not be translated
+    * @param bad Number of lines that could not be split into tokens
+    * @param parse Time spent in parsing in nanoseconds
+    * @param lookup Time spent in lookup in nanoseconds
+    * @param write Time spent in writing in nanoseconds
+    * @param in Number of characters read
+    * @param out Number of characters written
+    */
+    void add(long lines, long tokens, boolean toMorse, long unknown, long bad, long parse, long lookup, long write, long in, long out) {
+        linesRead.add(lines);
+        (toMorse ? tokensToMorse : tokensToText).add(tokens);
+        unknownTokens.add(unknown);
+        badLines.add(bad);
+        parseNanos.add(parse);
+        lookupNanos.add(lookup);
+        writeNanos.add(write);
+        charsIn.add(in);
+        charsOut.add(out);
+    }
+    
+    /**
+    * Adds the sizes of a translated file
+    * @param in Size of the input file in bytes
+    * @param out Size of the output file in bytes
+    */
+    void addBytes(long in, long out) {
+        bytesIn.add(in);
+        bytesOut.add(out);
+    }
+    
+    /**
+    * Adds write time spent outside the pipeline runs, for instance when the parallel pipeline writes the translated chunks
+    * @param write Time spent in writing in nanoseconds
+    */
+    void addWriteNanos(long write) {
+        writeNanos.add(write);
+    }
+    
+    @Override
+    public long getLinesRead() {
+        return linesRead.sum();
+    }
+    
+    @Override
+    public long getTokensToMorse() {
+        return tokensToMorse.sum();
+    }
+    
+    @Override
+    public long getTokensToText() {
+        return tokensToText.sum();
+    }
+    
+    @Override
+    public long getUnknownTokens() {
+        return unknownTokens.sum();
+    }
+    
+    @Override
+    public long getBadLines() {
+        return badLines.sum();
+    }
+    
+    @Override
+    public long getParseNanos() {
+        return parseNanos.sum();
+    }
+    
+    @Override
+    public long getLookupNanos() {
+        return lookupNanos.sum();
+    }
+    
+    @Override
+    public long getWriteNanos() {
+        return writeNanos.sum();
+    }
+    
+    @Override
+    public long getCharsIn() {
+        return charsIn.sum();
+    }
+    
+    @Override
+    public long getCharsOut() {
+        return charsOut.sum();
+    }
+    
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+    
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+    
+    @Override
+    public String getSummary() {
+        return "{\"linesRead\":" + getLinesRead() + ",\"tokensToMorse\":" + getTokensToMorse() + ",\"tokensToText\":" + getTokensToText()
+            + ",\"unknownTokens\":" + getUnknownTokens() + ",\"badLines\":" + getBadLines()
+            + ",\"parseNanos\":" + getParseNanos() + ",\"lookupNanos\":" + getLookupNanos() + ",\"writeNanos\":" + getWriteNanos()
+            + ",\"charsIn\":" + getCharsIn() + ",\"charsOut\":" + getCharsOut()
+            + ",\"bytesIn\":" + getBytesIn() + ",\"bytesOut\":" + getBytesOut() + "}";
+    }
+    
+    @Override
+    public void reset() {
+        for (LongAdder adder : new LongAdder[] {linesRead, tokensToMorse, tokensToText, unknownTokens, badLines, 
+          parseNanos, lookupNanos, writeNanos, charsIn, charsOut, bytesIn, bytesOut})
+            adder.reset();
+    }
+    
+    /**
+    * Registers the metrics in the platform MBean server, replacing metrics registered with the same name
+    * @param name The name of the metrics in the JMX name compilemorse:type=TranslationMetrics,name=...
+    * @return this
+    * @throws IllegalArgumentException if the name is not valid in a JMX name, or the registration fails
+    */
+    public synchronized TranslationMetrics register(String name) throws IllegalArgumentException {
+        unregister();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName newName = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+            try {
+                server.registerMBean(this, newName);
+            }
+            catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(newName);
+                server.registerMBean(this, newName);
+            }
+            objectName = newName;
+        }
+        catch (JMException e) {
+            throw new IllegalArgumentException("Cannot register translation metrics " + name, e);
+        }
+        return this;
+    }
+    
+    /**
+    * Removes the metrics from the platform MBean server, if they have been registered
+    */
+    public synchronized void unregister() {
+        if (objectName == null)
+            return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        }
+        catch (InstanceNotFoundException e) {
+            // Already removed
+        }
+        catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+        objectName = null;
+    }
+}
@@ -0,0 +1,79 @@
+package compilemorse;
+
+/**
+ * Management interface of the translation metrics, see TranslationMetrics.
+ * 
+ * @author Kukka
+ */
+public interface TranslationMetricsMXBean {
+    
+    /**
+    * @return the number of input lines read
+    */
+    long getLinesRead();
+    
+    /**
+    * @return the number of tokens translated from text to morse
+    */
+    long getTokensToMorse();
+    
+    /**
+    * @return the number of tokens translated from morse to text
+    */
+    long getTokensToText();
+    
+    /**
+    * @return the number of tokens that could not be translated
+    */
+    long getUnknownTokens();
+    
+    /**
+    * @return the number of lines that could not be split into tokens
+    */
+    long getBadLines();
+    
+    /**
+    * @return the time spent splitting lines into tokens, in nanoseconds summed over threads
+    */
+    long getParseNanos();
+    
+    /**
+    * @return the time spent translating tokens, in nanoseconds summed over threads
+    */
+    long getLookupNanos();
+    
+    /**
+    * @return the time spent writing the translated lines, in nanoseconds summed over threads
+    */
+    long getWriteNanos();
+    
+    /**
+    * @return the number of characters read
+    */
+    long getCharsIn();
+    
+    /**
+    * @return the number of characters written
+    */
+    long getCharsOut();
+    
+    /**
+    * @return the size of the translated input files in bytes
+    */
+    long getBytesIn();
+    
+    /**
+    * @return the size of the written output files in bytes
+    */
+    long getBytesOut();
+    
+    /**
+    * @return all metrics as one line of JSON
+    */
+    String getSummary();
+    
+    /**
+    * Sets all metrics to zero
+    */
+    void reset();
+}
@@ -0,0 +1,403 @@
+package compilemorse;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Translates a publisher of lines or of character chunks into a publisher of translated lines with java.util.concurrent.Flow.
+ * Subscribe the processor to the publisher of the input and the subscriber of the translated lines to the processor
+ * (see IOToCompiler.createTranslationProcessor).
+ * The lines are translated by StreamingTextCompiler.compileLine, following the error policy: a line that is left out is not published,
+ * and an error with ErrorPolicy.FAIL_FAST cancels the input and ends the output with the exception after the lines translated before it.
+ * With chunks, a line may be split between chunks and ends at \n, \r or \r\n as with BufferedReader.readLine, and the last line
+ * is translated when the input completes even without a line end.  With lines, each item is one line without its line end.
+ * Backpressure: one item of input is requested at a time, only when the subscriber has requested a line and all translated lines
+ * of the previous item have been published, so only the lines of one item are buffered.
+ * No threads are started: the items are translated and the lines published in the threads that call onNext and request,
+ * one thread at a time, so the subscriber is called serially as Flow requires.
+ * A processor can be subscribed to one publisher and can have one subscriber.
+ *
+ * @author Kukka
+ */
+public final class TranslationProcessor implements Flow.Processor<CharSequence, String> {
+    
+    /**
+    * The compiler that translates the lines
+    */
+    final private StreamingTextCompiler compiler;
+    
+    /**
+    * Tells whether each item is one line, or the items are chunks of text with line ends
+    */
+    final private boolean lineItems;
+    
+    /**
+    * The items received and not yet translated
+    */
+    final private ConcurrentLinkedQueue<CharSequence> inbox = new ConcurrentLinkedQueue<>();
+    
+    /**
+    * The translated lines not yet published, used only in drain
+    */
+    final private ArrayDeque<String> ready = new ArrayDeque<>();
+    
+    /**
+    * Number of calls of drain that have not been handled yet, only the thread that increments it from 0 runs the drain loop
+    */
+    final private AtomicInteger drainCalls = new AtomicInteger();
+    
+    /**
+    * Number of lines requested by the subscriber and not yet published, Long.MAX_VALUE for unbounded
+    */
+    final private AtomicLong demand = new AtomicLong();
+    
+    /**
+    * The subscription to the publisher of the input
+    */
+    private volatile Flow.Subscription upstream = null;
+    
+    /**
+    * Tells whether the processor has been given a subscriber
+    */
+    private boolean subscriberTaken = false;
+    
+    /**
+    * The subscriber of the translated lines, set after its onSubscribe has returned
+    */
+    private volatile Flow.Subscriber<? super String> subscriber = null;
+    
+    /**
+    * Tells whether the input has completed or failed
+    */
+    private volatile boolean upstreamDone = false;
+    
+    /**
+    * The error of the input or of the translation, which ends the output after the lines translated before it
+    */
+    private volatile Throwable failure = null;
+    
+    /**
+    * The error of a request that is not positive, which ends the output at once
+    */
+    private volatile Throwable requestFailure = null;
+    
+    /**
+    * Tells whether the subscriber has cancelled
+    */
+    private volatile boolean cancelled = false;
+    
+    /**
+    * Tells whether an item has been requested and not yet received, used only in drain
+    */
+    private boolean upstreamRequested = false;
+    
+    /**
+    * Tells whether the subscription to the input has been cancelled, used only in drain
+    */
+    private boolean upstreamCancelled = false;
+    
+    /**
+    * Tells whether the output has ended, used only in drain
+    */
+    private boolean terminated = false;
+    
+    /**
+    * The unfinished line of the chunks received so far, used only in drain
+    */
+    private char[] buffer = new char[256];
+    
+    /**
+    * Number of characters of the unfinished line in the buffer
+    */
+    private int filled = 0;
+    
+    /**
+    * The previous chunk ended with \r, so a \n in the beginning of the next chunk belongs to the same line end
+    */
+    private boolean skipLF = false;
+    
+    /**
+    * Constructor for the processor
+    * @param pCompiler The compiler that translates the lines, not used by others
+    * @param pLineItems true if each item is one line, false if the items are chunks of text with line ends
+    * @param pRejectWriter output for the rejected lines, needed only with ErrorPolicy.REJECT
+    * @throws IllegalArgumentException if there is no reject writer with ErrorPolicy.REJECT
+    */
+    TranslationProcessor(StreamingTextCompiler pCompiler, boolean pLineItems, Writer pRejectWriter) throws IllegalArgumentException {
+        compiler = pCompiler;
+        lineItems = pLineItems;
+        compiler.startLines(pRejectWriter, 1);
+    }
+    
+    @Override
+    public void subscribe(Flow.Subscriber<? super String> pSubscriber) {
+        Objects.requireNonNull(pSubscriber);
+        boolean first;
+        synchronized (this) {
+            first = !subscriberTaken;
+            subscriberTaken = true;
+        }
+        if (!first) {
+            pSubscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+    
+                @Override
+                public void cancel() {
+                }
+            });
+            pSubscriber.onError(new IllegalStateException("The translation processor has already a subscriber"));
+            return;
+        }
+        pSubscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0)
+                    requestFailure = new IllegalArgumentException("The number of requested lines must be positive, not " + n);
+                else {
+                    long current, next;
+                    do {
+                        current = demand.get();
+                        next = (current + n < 0) ? Long.MAX_VALUE : current + n;
+                    } while (current != Long.MAX_VALUE && !demand.compareAndSet(current, next));
+                }
+                drain();
+            }
+    
+            @Override
+            public void cancel() {
+                cancelled = true;
+                drain();
+            }
+        });
+        subscriber = pSubscriber;
+        drain();
+    }
+    
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription);
+        synchronized (this) {
+            if (upstream != null) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+        }
+        drain();
+    }
+    
+    @Override
+    public void onNext(CharSequence item) {
+        inbox.offer(Objects.requireNonNull(item));
+        drain();
+    }
+    
+    @Override
+    public void onError(Throwable throwable) {
+        failure = Objects.requireNonNull(throwable);
+        upstreamDone = true;
+        drain();
+    }
+    
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+    
+    /**
+    * Runs the drain loop, unless another thread is running it, in which case that thread runs it once more
+    */
+    private void drain() {
+        if (drainCalls.getAndIncrement() != 0)
+            return;
+        int calls = 1;
+        do {
+            drainLoop();
+            calls = drainCalls.addAndGet(-calls);
+        } while (calls != 0);
+    }
+    
+    /**
+    * Translates the received items, publishes the translated lines as requested, requests the next item and ends the output
+    */
+    private void drainLoop() {
+        Flow.Subscriber<? super String> mySubscriber = subscriber;
+        for (;;) {
+            if (terminated) {
+                inbox.clear();
+                ready.clear();
+                cancelUpstream();
+                return;
+            }
+            if (cancelled) {
+                terminated = true;
+                continue;
+            }
+            if (mySubscriber == null)
+                return;
+            if (requestFailure != null) {
+                terminated = true;
+                mySubscriber.onError(requestFailure);
+                continue;
+            }
+            while (!ready.isEmpty() && demand.get() > 0 && !cancelled) {
+                mySubscriber.onNext(ready.poll());
+                if (demand.get() != Long.MAX_VALUE)
+                    demand.decrementAndGet();
+            }
+            if (cancelled)
+                continue;
+            if (!ready.isEmpty())
+                return;
+            if (failure != null) {
+                terminated = true;
+                mySubscriber.onError(failure);
+                continue;
+            }
+            CharSequence item = inbox.poll();
+            if (item != null) {
+                upstreamRequested = false;
+                translate(item);
+                continue;
+            }
+            if (upstreamDone) {
+                upstreamCancelled = true;
+                if (filled > 0) { // The last line does not end with a line separator
+                    translateLastLine();
+                    continue;
+                }
+                terminated = true;
+                mySubscriber.onComplete();
+                continue;
+            }
+            if (demand.get() > 0 && !upstreamRequested && upstream != null) {
+                upstreamRequested = true;
+                upstream.request(1);
+            }
+            return;
+        }
+    }
+    
+    /**
+    * Translates one item into the lines to be published, or sets the failure
+    * @param item A line or a chunk of text
+    */
+    private void translate(CharSequence item) {
+        try {
+            int length = item.length();
+            if (filled + length > buffer.length)
+                buffer = Arrays.copyOf(buffer, Math.max(filled + length, buffer.length * 2));
+            getChars(item, buffer, filled);
+            if (lineItems) {
+                publish(compiler.compileLine(buffer, 0, length));
+                return;
+            }
+            int end = filled + length;
+            int lineStart = 0; // Start of the current line in the buffer
+            int scan = filled; // Where to continue looking for the end of the current line
+            if (skipLF && scan < end) {
+                if (buffer[scan] == '\n')
+                    lineStart = ++scan;
+                skipLF = false;
+            }
+            while (scan < end) {
+                char c = buffer[scan];
+                if (c == '\n' || c == '\r') {
+                    publish(compiler.compileLine(buffer, lineStart, scan));
+                    ++scan;
+                    if (c == '\r') {
+                        if (scan == end)
+                            skipLF = true;
+                        else if (buffer[scan] == '\n')
+                            ++scan;
+                    }
+                    lineStart = scan;
+                }
+                else
+                    ++scan;
+            }
+            filled = end - lineStart;
+            System.arraycopy(buffer, lineStart, buffer, 0, filled);
+        }
+        catch (IOException | ParseException | IllegalArgumentException e) {
+            fail(e);
+        }
+        finally {
+            compiler.addToMetrics();
+        }
+    }
+    
+    /**
+    * Translates the unfinished line after the last chunk, or sets the failure
+    */
+    private void translateLastLine() {
+        try {
+            publish(compiler.compileLine(buffer, 0, filled));
+        }
+        catch (IOException | ParseException | IllegalArgumentException e) {
+            fail(e);
+        }
+        finally {
+            filled = 0;
+            compiler.addToMetrics();
+        }
+    }
+    
+    /**
+    * Adds a translated line to the lines to be published
+    * @param line The translated line, or null if the line is left out
+    */
+    private void publish(String line) {
+        if (line != null)
+            ready.add(line);
+    }
+    
+    /**
+    * Ends the output with an error of the translation after the lines translated before it, and cancels the input
+    * @param e The error
+    */
+    private void fail(Exception e) {
+        failure = e;
+        filled = 0;
+        inbox.clear();
+        cancelUpstream();
+    }
+    
+    /**
+    * Cancels the subscription to the input, if it has not been cancelled and the input has not ended
+    */
+    private void cancelUpstream() {
+        Flow.Subscription myUpstream = upstream;
+        if (!upstreamCancelled && myUpstream != null) {
+            upstreamCancelled = true;
+            myUpstream.cancel();
+        }
+    }
+    
+    /**
+    * Copies the characters of an item to a buffer
+    * @param item The item
+    * @param destination The buffer
+    * @param offset The index of the first character in the buffer
+    */
+    private static void getChars(CharSequence item, char[] destination, int offset) {
+        if (item instanceof String)
+            ((String) item).getChars(0, item.length(), destination, offset);
+        else if (item instanceof StringBuilder)
+            ((StringBuilder) item).getChars(0, item.length(), destination, offset);
+        else {
+            for (int i=0; i<item.length(); ++i)
+                destination[offset + i] = item.charAt(i);
+        }
+    }
+}
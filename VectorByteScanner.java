@@ -0,0 +1,81 @@
+package compilemorse;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Byte scanner that compares a whole vector of bytes (16-64 bytes, the preferred size of the platform) in one step
+ * with the incubating Vector API.  Needs --add-modules jdk.incubator.vector at run time, ByteScanner falls back to ScalarByteScanner without it.
+ * The vectors only look for the first match (anyTrue and firstTrue), which JDK 17 compiles to a few instructions;
+ * turning the matches into a bit mask (toLong) was slower than scanning byte by byte.
+ * For the same reason the field separators between tokens are not searched with vectors: the tokens of a morse line are a few bytes long,
+ * and starting a vector for each of them was slower than the scalar loop.
+ * The bytes after the last whole vector are scanned one at a time.
+ * 
+ * @author Kukka
+ */
+final class VectorByteScanner implements ByteScanner {
+    
+    /**
+    * The preferred vector shape of the platform
+    */
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    
+    /**
+    * The scalar scanner for the bytes after the last whole vector
+    */
+    final private ScalarByteScanner scalar = new ScalarByteScanner();
+    
+    /**
+    * Constructor for the scanner
+    * @throws UnsupportedOperationException if the vectors of the platform are shorter than 16 bytes, when they would not be faster
+    */
+    VectorByteScanner() throws UnsupportedOperationException {
+        if (SPECIES.length() < 16)
+            throw new UnsupportedOperationException("Vectors of " + SPECIES.length() + " bytes");
+    }
+    
+    /**
+    * @return the number of bytes in a vector
+    */
+    @Override
+    public int getWidth() {
+        return SPECIES.length();
+    }
+    
+    @Override
+    public int indexOfLineEnd(byte[] buffer, int from, int to) {
+        int i = from;
+        for (int bound = to - SPECIES.length(); i <= bound; i += SPECIES.length()) {
+            ByteVector vector = ByteVector.fromArray(SPECIES, buffer, i);
+            VectorMask<Byte> found = vector.eq((byte) '\n').or(vector.eq((byte) '\r'));
+            if (found.anyTrue())
+                return i + found.firstTrue();
+        }
+        return scalar.indexOfLineEnd(buffer, i, to);
+    }
+    
+    @Override
+    public int indexOfOther(byte[] buffer, int from, int to, byte first, byte second, byte third) {
+        int i = from;
+        for (int bound = to - SPECIES.length(); i <= bound; i += SPECIES.length()) {
+            ByteVector vector = ByteVector.fromArray(SPECIES, buffer, i);
+            VectorMask<Byte> allowed = vector.eq(first).or(vector.eq(second)).or(vector.eq(third));
+            if (!allowed.allTrue())
+                return i + allowed.not().firstTrue();
+        }
+        return scalar.indexOfOther(buffer, i, to, first, second, third);
+    }
+    
+    @Override
+    public int indexOfPair(byte[] buffer, int from, int to, byte value) {
+        int i = from;
+        for (int bound = to - SPECIES.length() - 1; i <= bound; i += SPECIES.length()) {
+            VectorMask<Byte> found = ByteVector.fromArray(SPECIES, buffer, i).eq(value)
+                .and(ByteVector.fromArray(SPECIES, buffer, i + 1).eq(value));
+            if (found.anyTrue())
+                return i + found.firstTrue();
+        }
+        return scalar.indexOfPair(buffer, i, to, value);
+    }
+}
@@ -0,0 +1,83 @@
+package compilemorse;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-token lookup in both directions over all tokens of the default alphabet, for each alphabet collections implementation.
+ * 
+ * @author Kukka
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlphabetLookupBenchmark {
+    
+    /**
+    * Number of tokens in the default alphabet
+    */
+    static final int TOKENS = 41;
+    
+    /**
+    * The alphabet collections implementation
+    */
+    @Param({"AlphabetMaps", "AlphabetTree", "AlphabetArrays"})
+    public String container;
+    
+    private AlphabetCollections collections;
+    private MorseTokenPrototype inputPrototype;
+    private String[] textTokens;
+    private String[] morseTokens;
+    private String[] inputMorseTokens;
+    
+    @Setup
+    public void setUp() {
+        Alphabet alphabet = new AlphabetBuilder().createAlphabet();
+        switch (container) {
+            case "AlphabetTree": collections = new AlphabetTree(alphabet); break;
+            case "AlphabetArrays": collections = new AlphabetArrays(alphabet); break;
+            default: collections = new AlphabetMaps(alphabet);
+        }
+        inputPrototype = new MorseTokenPrototype('.', '-');
+        textTokens = BenchmarkData.textTokens();
+        morseTokens = BenchmarkData.morseTokens();
+        inputMorseTokens = new String[morseTokens.length];
+        for (int i=0; i<morseTokens.length; ++i)
+            inputMorseTokens[i] = inputPrototype.convertToken(morseTokens[i], collections.getInternalPrototype());
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(TOKENS)
+    public void textToMorse(Blackhole blackhole) {
+        for (String token : textTokens)
+            blackhole.consume(collections.textTokenToMorseToken(token));
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(TOKENS)
+    public void morseToText(Blackhole blackhole) {
+        for (String token : morseTokens)
+            blackhole.consume(collections.morseTokenToTextToken(token));
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(TOKENS)
+    public void morseToTextFromInputPrototype(Blackhole blackhole) {
+        for (String token : inputMorseTokens)
+            blackhole.consume(collections.morseTokenToTextToken(token, inputPrototype));
+    }
+}
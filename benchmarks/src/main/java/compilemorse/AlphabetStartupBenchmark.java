@@ -0,0 +1,64 @@
+package compilemorse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Start-up cost of the default alphabet container: built with AlphabetBuilder, or loaded from a snapshot file.
+ * Each measurement is the first call in a fresh JVM, so class loading and interpretation are included.
+ * The snapshot is written by SnapshotAlphabet in a separate process, so that the setup does not load the alphabet classes in the measured JVM.
+ * The file is written into the directory given by the system property compilemorse.benchdir (default java.io.tmpdir).
+ * For the warmed-up cost, run with -bm avgt -wi 5 -i 5.
+ * 
+ * @author Kukka
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class AlphabetStartupBenchmark {
+    
+    private Path snapshotFile;
+    
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        Path directory = Paths.get(System.getProperty("compilemorse.benchdir", System.getProperty("java.io.tmpdir")));
+        snapshotFile = directory.resolve("compilemorse-bench-" + ProcessHandle.current().pid() + ".snapshot");
+        Process tool = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"), "compilemorse.SnapshotAlphabet", snapshotFile.toString())
+            .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        if (tool.waitFor() != 0)
+            throw new IOException("SnapshotAlphabet failed with status " + tool.exitValue());
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+    }
+    
+    @Benchmark
+    public AlphabetCollections buildWithAlphabetBuilder() {
+        return new AlphabetArrays(new AlphabetBuilder().createAlphabet());
+    }
+    
+    @Benchmark
+    public AlphabetCollections loadSnapshot() throws IOException, ParseException {
+        return AlphabetSnapshot.read(snapshotFile);
+    }
+}
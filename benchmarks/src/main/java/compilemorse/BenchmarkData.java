@@ -0,0 +1,112 @@
+package compilemorse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic input data for the benchmarks.  The same seed gives the same data on every machine,
+ * so the results can be compared between runs and between changes.
+ * 
+ * @author Kukka
+ */
+final class BenchmarkData {
+    
+    /**
+    * Seed for all generated data
+    */
+    static final long SEED = 20180101L;
+    
+    /**
+    * No instances, only static utilities
+    */
+    private BenchmarkData() {
+    }
+    
+    /**
+    * @return the text tokens of the default alphabet, in a fixed order
+    */
+    static String[] textTokens() {
+        List<String> tokens = new ArrayList<>(new AlphabetBuilder().createAlphabet().getAlphabetMap().keySet());
+        tokens.sort(null);
+        return tokens.toArray(new String[0]);
+    }
+    
+    /**
+    * @return the morse tokens of the default alphabet in the default input prototype ('o' and '-'), in the order of textTokens()
+    */
+    static String[] morseTokens() {
+        Map<String, String> alphabet = new AlphabetBuilder().createAlphabet().getAlphabetMap();
+        String[] text = textTokens();
+        String[] morse = new String[text.length];
+        for (int i=0; i<text.length; ++i)
+            morse[i] = alphabet.get(text[i]);
+        return morse;
+    }
+    
+    /**
+    * Builds one line of tokens separated by the delimeter.  A token equal to the delimeter is escaped with three delimeters.
+    * @param random The random source
+    * @param tokens The tokens to choose from
+    * @param tokenCount Number of tokens in the line
+    * @param delimeter The field separator
+    * @param escapedPercent Percentage of tokens that are the delimeter itself
+    * @return the line
+    */
+    static String line(Random random, String[] tokens, int tokenCount, String delimeter, int escapedPercent) {
+        StringBuilder line = new StringBuilder();
+        boolean previousEscaped = false;
+        for (int i=0; i<tokenCount; ++i) {
+            if (i > 0)
+                line.append(delimeter);
+            // Two escaped delimeters in a row would need five delimeters, which the parser rejects
+            if (!previousEscaped && random.nextInt(100) < escapedPercent) {
+                line.append(delimeter);
+                previousEscaped = true;
+            }
+            else {
+                line.append(tokens[random.nextInt(tokens.length)]);
+                previousEscaped = false;
+            }
+        }
+        return line.toString();
+    }
+    
+    /**
+    * Writes a file of about the given size, lines of 1-80 morse tokens separated by "."
+    * @param file The file to be written
+    * @param bytes Approximate size of the file
+    * @throws IOException re-thrown
+    */
+    static void writeMorseFile(Path file, long bytes) throws IOException {
+        Random random = new Random(SEED);
+        String[] tokens = morseTokens();
+        long written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            while (written < bytes) {
+                String line = line(random, tokens, 1 + random.nextInt(80), ".", 0);
+                writer.write(line);
+                writer.write('\n');
+                written += line.length() + 1;
+            }
+        }
+    }
+    
+    /**
+    * Parses a size like "1MB" or "1GB"
+    * @param size The size
+    * @return the size in bytes
+    */
+    static long parseSize(String size) {
+        if (size.endsWith("GB"))
+            return Long.parseLong(size.substring(0, size.length() - 2)) << 30;
+        if (size.endsWith("MB"))
+            return Long.parseLong(size.substring(0, size.length() - 2)) << 20;
+        return Long.parseLong(size);
+    }
+}
@@ -0,0 +1,77 @@
+package compilemorse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Translation of about 1 MB of morse lines to text with ByteTextCompiler, with the scalar and the vector ByteScanner, for lines
+ * of varying length.  The vector scanner is the default scanner, so the fork is run with the Vector API module added.
+ *
+ * @author Kukka
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ByteScanBenchmark {
+    
+    /**
+    * Approximate size of the input
+    */
+    static final int BYTES = 1 << 20;
+    
+    /**
+    * Number of tokens in a line
+    */
+    @Param({"8", "128", "4096"})
+    public int tokenCount;
+    
+    /**
+    * The scanner: scalar or vector
+    */
+    @Param({"scalar", "vector"})
+    public String scanner;
+    
+    private byte[] input;
+    private ByteTextCompiler compiler;
+    
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        Random random = new Random(BenchmarkData.SEED);
+        String[] tokens = BenchmarkData.morseTokens();
+        StringBuilder text = new StringBuilder();
+        while (text.length() < BYTES)
+            text.append(BenchmarkData.line(random, tokens, tokenCount, ".", 0)).append('\n');
+        input = text.toString().getBytes(StandardCharsets.US_ASCII);
+        ByteScanner myScanner = ByteScanner.DEFAULT;
+        if (scanner.equals("scalar"))
+            myScanner = new ScalarByteScanner();
+        else if (myScanner.getWidth() == 1)
+            throw new IllegalStateException("The vector scanner is not available in this JVM");
+        MorseCompiler morseCompiler = new MorseCompilerBuilder().setInputPrototype('o', '-').setMethod("MorseToEnglish")
+            .createMorseCompiler();
+        compiler = new ByteTextCompiler(morseCompiler, ".", " ", StandardCharsets.US_ASCII, null, myScanner);
+    }
+    
+    @Benchmark
+    public void compile() throws IOException, ParseException {
+        compiler.compile(new ByteArrayInputStream(input), OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,98 @@
+package compilemorse;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end translation of a generated morse file to text with IOToCompiler, for each pipeline.
+ * The files are generated once per trial into the directory given by the system property compilemorse.benchdir
+ * (default java.io.tmpdir) and deleted after the trial.
+ * Run only the small sizes with -p fileSize=1MB for a quick check.
+ * The overhead of the metrics is the difference between metrics=on and metrics=off.
+ * The streaming pipeline reads the file as windows-1252, which is decoded, and the bytes pipeline as US-ASCII, which is translated as bytes,
+ * so that the difference is the cost of decoding and encoding.
+ * 
+ * @author Kukka
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CompileTextIOBenchmark {
+    
+    /**
+    * Approximate size of the input file
+    */
+    @Param({"1MB", "64MB", "1GB"})
+    public String fileSize;
+    
+    /**
+    * The pipeline: line-by-line, streaming, streaming on bytes, parallel (all cores) or memory-mapped
+    */
+    @Param({"line", "streaming", "bytes", "parallel", "mapped"})
+    public String pipeline;
+    
+    /**
+    * Whether the translation is counted and timed with TranslationMetrics, to measure their overhead
+    */
+    @Param({"off", "on"})
+    public String metrics;
+    
+    private Path inputFile;
+    private Path outputFile;
+    private IOToCompiler controller;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, NoSuchMethodException {
+        Path directory = Paths.get(System.getProperty("compilemorse.benchdir", System.getProperty("java.io.tmpdir")));
+        inputFile = directory.resolve("compilemorse-bench-" + fileSize + ".txt");
+        outputFile = directory.resolve("compilemorse-bench-" + fileSize + "-" + pipeline + ".out");
+        BenchmarkData.writeMorseFile(inputFile, BenchmarkData.parseSize(fileSize));
+        IOToCompilerBuilder builder = new IOToCompilerBuilder().setMethodName("MorseToEnglish").setShortMorseInInputFile('o');
+        if (pipeline.equals("streaming") || pipeline.equals("bytes") || pipeline.equals("mapped"))
+            builder.setStreaming(true);
+        if (pipeline.equals("streaming"))
+            builder.setCharset(Charset.forName("windows-1252"));
+        if (pipeline.equals("bytes"))
+            builder.setCharset(StandardCharsets.US_ASCII);
+        if (pipeline.equals("parallel"))
+            builder.setParallelism(Runtime.getRuntime().availableProcessors());
+        if (metrics.equals("on"))
+            builder.setMetrics(new TranslationMetrics());
+        controller = builder.createIOToCompiler();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(inputFile);
+        Files.deleteIfExists(outputFile);
+    }
+    
+    @Benchmark
+    public void compile() throws IOException, ParseException {
+        if (pipeline.equals("mapped"))
+            controller.compileMappedIO(inputFile.toString(), outputFile.toString());
+        else
+            controller.compileTextIO(inputFile.toString(), outputFile.toString());
+    }
+}
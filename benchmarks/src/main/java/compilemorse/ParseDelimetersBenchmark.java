@@ -0,0 +1,71 @@
+package compilemorse;
+import java.text.ParseException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing of one line with ParseUtilities.ParseDelimeters, for lines of varying length and delimeter density.
+ * Short tokens give a high delimeter density, and escaped delimeters exercise the 2-3 delimeter rules.
+ * 
+ * @author Kukka
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseDelimetersBenchmark {
+    
+    /**
+    * Number of tokens in the line
+    */
+    @Param({"8", "128", "4096"})
+    public int tokenCount;
+    
+    /**
+    * Tokens the line is built from: single text characters (high delimeter density) or morse tokens (lower density)
+    */
+    @Param({"text", "morse"})
+    public String tokens;
+    
+    /**
+    * Percentage of tokens that are the delimeter itself, escaped with three delimeters
+    */
+    @Param({"0", "10"})
+    public int escapedPercent;
+    
+    private String line;
+    private char[] lineCharacters;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchmarkData.SEED);
+        String[] myTokens = tokens.equals("text") ? BenchmarkData.textTokens() : BenchmarkData.morseTokens();
+        line = BenchmarkData.line(random, myTokens, tokenCount, ".", escapedPercent);
+        lineCharacters = line.toCharArray();
+    }
+    
+    @Benchmark
+    public String[] parseString() throws ParseException {
+        return ParseUtilities.ParseDelimeters(line, ".");
+    }
+    
+    @Benchmark
+    public void parseBuffer(Blackhole blackhole) throws ParseException {
+        ParseUtilities.ParseDelimeters(lineCharacters, 0, lineCharacters.length, '.', 
+            (buffer, offset, length) -> blackhole.consume(offset + length));
+    }
+}
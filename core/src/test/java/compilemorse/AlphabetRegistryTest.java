@@ -0,0 +1,40 @@
+package compilemorse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Sharing of the translators of the registered containers
+ *
+ * @author Kukka
+ */
+class AlphabetRegistryTest {
+    
+    @Test
+    void sharesTheTranslatorsOfRegisteredContainers() {
+        AlphabetCollections container = AlphabetRegistry.getDefaultContainer();
+        MorseTokenPrototype dots = new MorseTokenPrototype('.', '-');
+        TokenTranslator translator = AlphabetRegistry.getTranslator(container, true, dots, true);
+        assertSame(translator, AlphabetRegistry.getTranslator(container, true, new MorseTokenPrototype('.', '-'), true));
+        assertNotSame(translator, AlphabetRegistry.getTranslator(container, true, dots, false));
+        assertNotSame(translator, AlphabetRegistry.getTranslator(container, true, new MorseTokenPrototype('o', '-'), true));
+        assertNotSame(translator, AlphabetRegistry.getTranslator(container, false, dots, true));
+        assertSame(AlphabetRegistry.getTranslator(container, false, dots, true), AlphabetRegistry.getTranslator(container, false, dots, false));
+    }
+    
+    @Test
+    void buildsTranslatorsOfOtherContainersForEachCaller() {
+        AlphabetCollections container = new AlphabetMaps(new AlphabetBuilder().createAlphabet());
+        MorseTokenPrototype dots = new MorseTokenPrototype('.', '-');
+        assertNotSame(AlphabetRegistry.getTranslator(container, true, dots, true), AlphabetRegistry.getTranslator(container, true, dots, true));
+    }
+    
+    @Test
+    void translatesAsANewTranslator() throws NoSuchMethodException {
+        MorseCompiler first = new MorseCompilerBuilder().setMethod("EnglishToMorse").setOutputPrototype('o', '-').createMorseCompiler();
+        MorseCompiler second = new MorseCompilerBuilder().setMethod("EnglishToMorse").setOutputPrototype('o', '-').createMorseCompiler();
+        assertEquals("oooo", first.compileToken("H"));
+        assertEquals("oooo", second.compileToken("h"));
+    }
+}
@@ -0,0 +1,92 @@
+package compilemorse;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Round trips of AlphabetArrays through a snapshot: the loaded collections must translate every token in both directions
+ * as the collections that were written.
+ *
+ * @author Kukka
+ */
+class AlphabetSnapshotTest {
+    
+    @Test
+    void roundTripOfTheDefaultAlphabet() throws ParseException {
+        assertRoundTrip(new AlphabetArrays(new AlphabetBuilder().createAlphabet()));
+    }
+    
+    @Test
+    void roundTripWithDuplicateMorseTokens() throws ParseException {
+        Map<String, String> tokens = new LinkedHashMap<>();
+        tokens.put("A", "o-");
+        tokens.put("AA", "o-");
+        tokens.put("B", "-");
+        tokens.put("C", "oo");
+        tokens.put("D", "o-");
+        AlphabetArrays written = new AlphabetArrays(new Alphabet("Text", "Morse", 'o', '-', tokens));
+        AlphabetArrays loaded = assertRoundTrip(written);
+        assertEquals("o-", loaded.textTokenToMorseToken("A"));
+        assertEquals("-", loaded.textTokenToMorseToken("B"));
+        assertEquals("oo", loaded.textTokenToMorseToken("C"));
+        assertEquals("D", loaded.morseTokenToTextToken("o-"));
+    }
+    
+    @Test
+    void roundTripOfOtherCharacters() throws ParseException {
+        Map<String, String> tokens = new LinkedHashMap<>();
+        tokens.put("\u00C4", "o-o-"); // Two bytes in modified UTF-8
+        tokens.put("\u20AC", "--"); // Three bytes
+        tokens.put("\u0000", "oooo"); // Two bytes in modified UTF-8, unlike in UTF-8
+        tokens.put("\u00C4\u00C4", "o-o-o-o-");
+        AlphabetArrays loaded = assertRoundTrip(new AlphabetArrays(new Alphabet("\u00C4idinkieli", "Morse", 'o', '-', tokens)));
+        assertEquals("\u00C4idinkieli", loaded.getTextAlphabetName());
+    }
+    
+    @Test
+    void rejectsOtherData() {
+        byte[] snapshot = AlphabetSnapshot.toBytes(new AlphabetArrays(new AlphabetBuilder().createAlphabet()));
+        snapshot[5] = 1; // Version 1
+        assertThrows(ParseException.class, () -> AlphabetSnapshot.fromBytes(snapshot));
+        byte[] truncated = Arrays.copyOf(snapshot, snapshot.length / 2);
+        truncated[5] = (byte) AlphabetSnapshot.VERSION;
+        assertThrows(ParseException.class, () -> AlphabetSnapshot.fromBytes(truncated));
+    
+        AlphabetArrays written = new AlphabetArrays(new AlphabetBuilder().createAlphabet());
+        byte[] corrupt = AlphabetSnapshot.toBytes(written);
+        // Magic, version, the two names with their lengths and the two morse characters before the token count
+        int tokenCountOffset = 4 + 2 + 2 + written.getTextAlphabetName().length() + 2 + written.getMorseAlphabetName().length() + 2 + 2;
+        for (int count : new int[] {0x3FFFFFFF, Integer.MAX_VALUE, -1}) {
+            ByteBuffer.wrap(corrupt).putInt(tokenCountOffset, count); // Not allocated, however large
+            ParseException e = assertThrows(ParseException.class, () -> AlphabetSnapshot.fromBytes(corrupt));
+            assertEquals(tokenCountOffset, e.getErrorOffset());
+        }
+    }
+    
+    /**
+    * Writes and loads a snapshot and compares the loaded collections with the written ones
+    * @param written The collections to be written
+    * @return the loaded collections
+    * @throws ParseException if the snapshot cannot be loaded
+    */
+    private static AlphabetArrays assertRoundTrip(AlphabetArrays written) throws ParseException {
+        AlphabetArrays loaded = AlphabetSnapshot.fromBytes(AlphabetSnapshot.toBytes(written));
+        assertEquals(written.getTextAlphabetName(), loaded.getTextAlphabetName());
+        assertEquals(written.getMorseAlphabetName(), loaded.getMorseAlphabetName());
+        assertEquals(written.getAlphabet().getAlphabetMap(), loaded.getAlphabet().getAlphabetMap());
+        assertArrayEquals(written.getTextByCode(), loaded.getTextByCode());
+        assertArrayEquals(written.getMorseByCharacter(), loaded.getMorseByCharacter());
+        for (Map.Entry<String, String> entry : written.getAlphabet().getAlphabetMap().entrySet()) {
+            assertEquals(written.textTokenToMorseToken(entry.getKey()), loaded.textTokenToMorseToken(entry.getKey()), entry.getKey());
+            assertEquals(written.morseTokenToTextToken(entry.getValue()), loaded.morseTokenToTextToken(entry.getValue()),
+                entry.getValue());
+        }
+        return loaded;
+    }
+}
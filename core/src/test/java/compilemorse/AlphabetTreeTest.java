@@ -0,0 +1,69 @@
+package compilemorse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Translations of AlphabetTree with alphabets whose trees have many more nodes than the 64 that the node arrays once started with,
+ * when a child written while the arrays grew was lost: every morse token must decode to its text token.
+ *
+ * @author Kukka
+ */
+class AlphabetTreeTest {
+    
+    /**
+    * Length of the longest morse token of the full alphabet, which has a node for every morse token up to this length
+    */
+    static final int MAX_LENGTH = 7;
+    
+    @Test
+    void decodesEveryTokenOfAFullTree() {
+        Map<String, String> tokens = new LinkedHashMap<>();
+        for (int length=1; length<=MAX_LENGTH; ++length)
+            for (int bits=0; bits<(1 << length); ++bits) {
+                StringBuilder morseToken = new StringBuilder();
+                for (int i=length-1; i>=0; --i)
+                    morseToken.append(((bits >> i) & 1) == 0 ? 'o' : '-');
+                tokens.put("T" + tokens.size(), morseToken.toString());
+            }
+        assertEquals((1 << (MAX_LENGTH + 1)) - 2, tokens.size());
+        assertDecodes(new Alphabet("Text", "Morse", 'o', '-', tokens));
+    }
+    
+    @Test
+    void decodesEveryTokenOfTheDefaultAlphabet() {
+        assertDecodes(new AlphabetBuilder().createAlphabet());
+    }
+    
+    @Test
+    void rejectsMissingTokens() {
+        Map<String, String> tokens = new LinkedHashMap<>();
+        tokens.put("A", "o-o-o-o-o-");
+        AlphabetTree tree = new AlphabetTree(new Alphabet("Text", "Morse", 'o', '-', tokens));
+        assertThrows(IllegalArgumentException.class, () -> tree.morseTokenToTextToken("o-o-o-o-o")); // A node without a text token
+        assertThrows(IllegalArgumentException.class, () -> tree.morseTokenToTextToken("o-o-o-o-o-o"));
+        assertThrows(IllegalArgumentException.class, () -> tree.morseTokenToTextToken("-"));
+    }
+    
+    /**
+    * Checks that every morse token of the alphabet decodes to its text token in every way AlphabetTree offers, and back
+    * @param alphabet The alphabet, without duplicate morse tokens
+    */
+    private static void assertDecodes(Alphabet alphabet) {
+        AlphabetTree tree = new AlphabetTree(alphabet);
+        MorseTokenPrototype internal = alphabet.getMyMorsePrototype();
+        MorseTokenPrototype other = new MorseTokenPrototype('.', '_');
+        for (Map.Entry<String, String> entry : alphabet.getAlphabetMap().entrySet()) {
+            String morseToken = entry.getValue();
+            assertEquals(entry.getKey(), tree.morseTokenToTextToken(morseToken), morseToken);
+            assertEquals(entry.getKey(), tree.morseTokenToTextToken(morseToken, internal), morseToken);
+            String otherToken = other.convertToken(morseToken, internal);
+            assertEquals(entry.getKey(), tree.morseTokenToTextToken(otherToken, other), otherToken);
+            char[] buffer = (" " + otherToken + " ").toCharArray();
+            assertEquals(entry.getKey(), tree.morseTokenToTextToken(buffer, 1, otherToken.length(), other), otherToken);
+            assertEquals(morseToken, tree.textTokenToMorseToken(entry.getKey()), entry.getKey());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package compilemorse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Errors of the byte pipeline: the ParseExceptions must have the message and the offset of the character pipeline,
+ * also when the characters before the error take several bytes in UTF-8.
+ *
+ * @author Kukka
+ */
+class ByteTextCompilerTest {
+    
+    /**
+    * Seed of the random lines, fixed so that a failure can be repeated
+    */
+    static final long SEED = 20160518L;
+    
+    @Test
+    void errorOffsetCountsCharactersInUtf8() throws IOException, NoSuchMethodException {
+        assertEquals(2, parseError("\u00C4\u00C4..A", StandardCharsets.UTF_8).getErrorOffset());
+        assertEquals(2, parseError("\u00C4\u20AC....A", StandardCharsets.UTF_8).getErrorOffset());
+        assertEquals(4, parseError("\uD83D\uDE00.A..B", StandardCharsets.UTF_8).getErrorOffset()); // A surrogate pair before the error
+        assertEquals(2, parseError("\u00C4\u00C4..A", StandardCharsets.ISO_8859_1).getErrorOffset());
+    }
+    
+    @Test
+    void errorsAsInTheCharacterPipeline() throws IOException, NoSuchMethodException {
+        Random random = new Random(SEED);
+        String[] characters = {".", "o", "-", "A", "\u00C4", "\u20AC", "\uD83D\uDE00"};
+        for (int n=0; n<20000; ++n) {
+            StringBuilder line = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int i=0; i<length; ++i)
+                line.append(characters[random.nextInt(characters.length)]);
+            ParseException expected;
+            try {
+                ParseUtilities.ParseDelimeters(line.toString(), ".");
+                continue;
+            }
+            catch (ParseException e) {
+                expected = e;
+            }
+            ParseException actual = parseError(line.toString(), StandardCharsets.UTF_8);
+            assertEquals(expected.getMessage(), actual.getMessage(), line.toString());
+            assertEquals(expected.getErrorOffset(), actual.getErrorOffset(), line.toString());
+        }
+    }
+    
+    /**
+    * Translates a line from text to morse with the byte pipeline and expects a ParseException
+    * @param line The line
+    * @param charset The charset of the input
+    * @return the exception
+    * @throws IOException re-thrown from the translation
+    * @throws NoSuchMethodException re-thrown from MorseCompilerBuilder
+    */
+    private static ParseException parseError(String line, Charset charset) throws IOException, NoSuchMethodException {
+        MorseCompiler compiler = new MorseCompilerBuilder().setMethod("EnglishToMorse").createMorseCompiler();
+        ByteTextCompiler byteCompiler = new ByteTextCompiler(compiler, ".", " ", charset, null);
+        try {
+            byteCompiler.compile(new ByteArrayInputStream((line + "\n").getBytes(charset)), OutputStream.nullOutputStream());
+        }
+        catch (ParseException e) {
+            return e;
+        }
+        catch (IllegalArgumentException e) {
+            fail("No parse error in " + line + ": " + e);
+        }
+        return fail("No error in " + line);
+    }
+}
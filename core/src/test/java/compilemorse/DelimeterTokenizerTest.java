@@ -0,0 +1,235 @@
+package compilemorse;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares DelimeterTokenizer with the original string-based ParseDelimeters on random lines.
+ * The lines are made of the delimeter, 'o', '-' and one other character, with runs of 0-5 delimeters between the tokens,
+ * so all the rules of the escaped delimeter and both errors are exercised.  The tokens, the error message and the error offset
+ * must be the same as those of the original parser, for strings, character buffers and byte buffers.
+ *
+ * @author Kukka
+ */
+class DelimeterTokenizerTest {
+    
+    /**
+    * Seed of the random lines, fixed so that a failure can be repeated
+    */
+    static final long SEED = 20160518L;
+    
+    /**
+    * Number of random lines for each delimeter
+    */
+    static final int LINES = 30000;
+    
+    /**
+    * The result of parsing a line: the tokens, or the error
+    */
+    private static final class Result {
+        final String[] tokens;
+        final String message;
+        final int offset;
+    
+        Result(String[] pTokens) {
+            tokens = pTokens;
+            message = null;
+            offset = -1;
+        }
+    
+        Result(ParseException e) {
+            tokens = null;
+            message = e.getMessage();
+            offset = e.getErrorOffset();
+        }
+    }
+    
+    @Test
+    void tokenizesAsTheOriginalParser() {
+        compareRandomLines('.', 'x');
+        compareRandomLines(' ', 'x');
+        compareRandomLines('o', 'x'); // The delimeter is also a morse character
+    }
+    
+    @Test
+    void tokenizesKnownLines() throws ParseException {
+        assertArrayEquals(new String[] {"o-", "."}, ParseUtilities.ParseDelimeters("o-...", "."));
+        assertArrayEquals(new String[] {"."}, ParseUtilities.ParseDelimeters("...", "."));
+        assertArrayEquals(new String[] {"o", ".", "-"}, ParseUtilities.ParseDelimeters("o...-", "."));
+        assertEquals(1, assertParseError("o..-", '.').getErrorOffset());
+        assertEquals(1, assertParseError("o....-", '.').getErrorOffset());
+    }
+    
+    /**
+    * Compares the tokenizer with the original parser on random lines
+    * @param delimeter The delimeter
+    * @param other A character that is neither a morse character nor the delimeter
+    */
+    private static void compareRandomLines(char delimeter, char other) {
+        Random random = new Random(SEED);
+        char[] characters = {delimeter, 'o', '-', other};
+        DelimeterTokenizer tokenizer = new DelimeterTokenizer(delimeter);
+        for (int n=0; n<LINES; ++n) {
+            String line = randomLine(random, characters, delimeter);
+            Result expected = parseOriginal(line, String.valueOf(delimeter));
+            String where = "line \"" + line + "\" with delimeter '" + delimeter + "'";
+    
+            assertSame(expected, parseString(line, delimeter), where + ", ParseDelimeters");
+    
+            char[] chars = ("##" + line + "#").toCharArray(); // The line in the middle of a buffer
+            int errorOffset = tokenizer.tryTokenize(chars, 2, 2 + line.length());
+            assertSame(expected, result(tokenizer, chars, 2, errorOffset), where + ", char buffer");
+    
+            byte[] bytes = ("##" + line + "#").getBytes(StandardCharsets.ISO_8859_1);
+            errorOffset = tokenizer.tryTokenize(bytes, 2, 2 + line.length());
+            assertSame(expected, result(tokenizer, new String(bytes, StandardCharsets.ISO_8859_1).toCharArray(), 2, errorOffset),
+                where + ", byte buffer");
+        }
+    }
+    
+    /**
+    * Makes a random line of up to six tokens with runs of 0-5 delimeters before, between and after them
+    * @param random The random generator
+    * @param characters The characters of the tokens
+    * @param delimeter The delimeter
+    * @return the line
+    */
+    private static String randomLine(Random random, char[] characters, char delimeter) {
+        StringBuilder line = new StringBuilder();
+        int tokens = random.nextInt(7);
+        for (int t=0; t<=tokens; ++t) {
+            int run = random.nextInt(6);
+            for (int i=0; i<run; ++i)
+                line.append(delimeter);
+            if (t == tokens)
+                break;
+            int length = 1 + random.nextInt(3);
+            for (int i=0; i<length; ++i)
+                line.append(characters[random.nextInt(characters.length)]);
+        }
+        return line.toString();
+    }
+    
+    /**
+    * Parses a line with ParseUtilities.ParseDelimeters
+    * @param line The line
+    * @param delimeter The delimeter
+    * @return the result
+    */
+    private static Result parseString(String line, char delimeter) {
+        try {
+            return new Result(ParseUtilities.ParseDelimeters(line, String.valueOf(delimeter)));
+        }
+        catch (ParseException e) {
+            return new Result(e);
+        }
+    }
+    
+    /**
+    * Collects the result of tryTokenize
+    * @param tokenizer The tokenizer
+    * @param buffer The buffer of the line as characters
+    * @param start The start of the line in the buffer
+    * @param errorOffset The return value of tryTokenize
+    * @return the result
+    */
+    private static Result result(DelimeterTokenizer tokenizer, char[] buffer, int start, int errorOffset) {
+        if (errorOffset >= 0)
+            return new Result(new ParseException(tokenizer.getError(), errorOffset));
+        assertNull(tokenizer.getError());
+        String[] tokens = new String[tokenizer.getTokenCount()];
+        for (int i=0; i<tokens.length; ++i)
+            tokens[i] = new String(buffer, tokenizer.getTokenOffset(i), tokenizer.getTokenLength(i));
+        return new Result(tokens);
+    }
+    
+    /**
+    * Checks that two results are the same
+    * @param expected The result of the original parser
+    * @param actual The result to be checked
+    * @param where Description of the line for the failure message
+    */
+    private static void assertSame(Result expected, Result actual, String where) {
+        if (expected.tokens != null)
+            assertArrayEquals(expected.tokens, actual.tokens,
+                () -> where + ": expected " + Arrays.toString(expected.tokens) + " but was " + describe(actual));
+        else {
+            assertEquals(expected.message, actual.message, () -> where + ": " + describe(actual));
+            assertEquals(expected.offset, actual.offset, () -> where + ": error offset");
+        }
+    }
+    
+    /**
+    * @param result A result
+    * @return the tokens or the error of the result as text
+    */
+    private static String describe(Result result) {
+        return (result.tokens != null) ? Arrays.toString(result.tokens) : "error " + result.message + " at " + result.offset;
+    }
+    
+    /**
+    * Parses a line and expects an error
+    * @param line The line
+    * @param delimeter The delimeter
+    * @return the error
+    */
+    private static ParseException assertParseError(String line, char delimeter) {
+        Result actual = parseString(line, delimeter);
+        Result expected = parseOriginal(line, String.valueOf(delimeter));
+        assertNull(expected.tokens, line);
+        assertSame(expected, actual, line);
+        return new ParseException(actual.message, actual.offset);
+    }
+    
+    /**
+    * The original ParseUtilities.ParseDelimeters, before the single-pass tokenizer, kept here as the reference
+    * @param inputString input string for the parser
+    * @param delimeter the delimeter
+    * @return the result
+    */
+    private static Result parseOriginal(String inputString, String delimeter) {
+        String dels2 = delimeter + delimeter;
+        String dels3 = dels2 + delimeter;
+        String dels4 = dels3 + delimeter;
+        int delLength = delimeter.length();
+    
+        if (inputString.contains(dels4))
+            return new Result(new ParseException("Parse error: input string contains at least one " + dels4, inputString.indexOf(dels4)));
+        if (inputString.equals(""))
+            return new Result(new String[0]);
+        if (inputString.equals(delimeter) || inputString.equals(dels2) || inputString.equals(dels3))
+            return new Result(new String[] {delimeter});
+    
+        if (inputString.startsWith(dels3))
+            inputString = inputString.substring(delLength);
+        if (inputString.startsWith(dels2))
+            inputString = inputString.substring(delLength);
+        else if (inputString.startsWith(delimeter))
+            inputString = inputString.substring(delLength);
+    
+        if (inputString.endsWith(dels3))
+            inputString = inputString.substring(0, inputString.length()-delLength);
+        if (inputString.endsWith(dels2))
+            inputString = inputString.substring(0, inputString.length()-delLength);
+        else if (inputString.endsWith(delimeter))
+            inputString = inputString.substring(0, inputString.length()-delLength);
+    
+        if (inputString.contains(dels2)) {
+            String testString = inputString.replace(dels3, "");
+            if (testString.contains(dels2))
+                return new Result(new ParseException("Parse error: two consequtive delemeters in input string at least once",
+                    inputString.indexOf(dels2)));
+        }
+    
+        String[] returnInput = inputString.replace(dels3, dels2).split(Pattern.quote(delimeter), -1);
+        for (int i=0; i<returnInput.length; ++i)
+            if (returnInput[i].equals("")) returnInput[i] = delimeter;
+        return new Result(returnInput);
+    }
+}
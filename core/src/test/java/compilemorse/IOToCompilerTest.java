@@ -0,0 +1,88 @@
+package compilemorse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Translating appended lines: an interrupt while a translation of IOToCompiler.followIO is running stops the following
+ * with the number of lines of the checkpoint, the lines of the interrupted translation are translated again later,
+ * and a corrupt checkpoint is a ParseException.
+ *
+ * @author Kukka
+ */
+class IOToCompilerTest {
+    
+    /**
+    * Number of lines in the input, enough for a translation to run long enough to be interrupted
+    */
+    static final int LINES = 400000;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void interruptDuringTranslationReturnsTheLineCount() throws Exception {
+        Path input = directory.resolve("input.txt");
+        Path output = directory.resolve("output.txt");
+        StringBuilder text = new StringBuilder();
+        for (int i=0; i<LINES; ++i)
+            text.append("S.O.S.").append(i % 10).append('\n');
+        Files.write(input, text.toString().getBytes(StandardCharsets.US_ASCII));
+        IOToCompiler controller = new IOToCompilerBuilder().setMethodName("EnglishToMorse").setStreaming(true).createIOToCompiler();
+    
+        ExecutorService thread = Executors.newSingleThreadExecutor();
+        try {
+            boolean[] interrupted = new boolean[1];
+            Future<Long> follower = thread.submit(() -> {
+                long lines = controller.followIO(input.toString(), output.toString(), 60000);
+                interrupted[0] = Thread.currentThread().isInterrupted();
+                Thread.interrupted(); // Not left for the next task of the executor
+                return lines;
+            });
+            while (!follower.isDone() && (!Files.exists(output) || Files.size(output) == 0)) // The translation has started
+                Thread.sleep(1);
+            thread.shutdownNow(); // Interrupts the follower
+            long lines = follower.get();
+            assertTrue(interrupted[0], "The interrupt status is kept");
+            assertEquals(checkpointLines(output), lines);
+        }
+        finally {
+            thread.shutdownNow();
+        }
+    
+        assertEquals(LINES - checkpointLines(output), controller.compileAppendedIO(input.toString(), output.toString()));
+        Path expected = directory.resolve("expected.txt");
+        controller.compileTextIO(input.toString(), expected.toString());
+        assertEquals(Files.readString(expected), Files.readString(output));
+    }
+    
+    @Test
+    void negativeCheckpointIsAParseError() throws Exception {
+        Path input = directory.resolve("input.txt");
+        Path output = directory.resolve("output.txt");
+        Files.write(input, "S.O.S\n".getBytes(StandardCharsets.US_ASCII));
+        IOToCompiler controller = new IOToCompilerBuilder().setMethodName("EnglishToMorse").createIOToCompiler();
+        Path checkpointFile = output.resolveSibling(output.getFileName() + IOToCompiler.CHECKPOINT_FILE_SUFFIX);
+        new Checkpoint(0, -1, 0, 0, 0).write(checkpointFile); // A negative output length
+        ParseException e = assertThrows(ParseException.class, () -> controller.compileAppendedIO(input.toString(), output.toString()));
+        assertEquals(14, e.getErrorOffset());
+    }
+    
+    /**
+    * @param output The output file
+    * @return the number of lines in the checkpoint of the output file
+    * @throws Exception re-thrown from reading the checkpoint
+    */
+    private static long checkpointLines(Path output) throws Exception {
+        return Checkpoint.read(output.resolveSibling(output.getFileName() + IOToCompiler.CHECKPOINT_FILE_SUFFIX)).getLineCount();
+    }
+}
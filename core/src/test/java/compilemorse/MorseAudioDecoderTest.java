@@ -0,0 +1,143 @@
+package compilemorse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Round trips of morse tokens through MorseAudioRenderer and MorseAudioDecoder: the decoded tokens and words must be the rendered ones,
+ * at other speeds than the initial estimate of the decoder, and with WAV streams that have other chunks than the format and the data.
+ *
+ * @author Kukka
+ */
+class MorseAudioDecoderTest {
+    
+    /**
+    * The rendered words: SOS, PARIS and 73 as morse tokens
+    */
+    static final String[][] WORDS = {
+        {"ooo", "---", "ooo"},
+        {"o--o", "o-", "o-o", "oo", "ooo"},
+        {"--ooo", "ooo--"}
+    };
+    
+    /**
+    * Offset of the data chunk in the header written by the renderer
+    */
+    static final int DATA_CHUNK_OFFSET = 36;
+    
+    @Test
+    void decodesTheRenderedSpeeds() throws IOException, ParseException {
+        for (double wordsPerMinute : new double[] {12, 20, 30})
+            assertEquals(words(), decode(render(wordsPerMinute)), wordsPerMinute + " WPM");
+    }
+    
+    @Test
+    void decodesStreamedWav() throws IOException, ParseException {
+        byte[] wav = render(20);
+        ByteBuffer header = ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0xFFFFFFFF, header.getInt(4));
+        assertEquals(0xFFFFFFFF, header.getInt(DATA_CHUNK_OFFSET + 4));
+        byte[] withTail = Arrays.copyOf(wav, wav.length + 1001); // The data continues to the end of the stream
+        assertEquals(words(), decode(withTail));
+    }
+    
+    @Test
+    void skipsOtherChunks() throws IOException, ParseException {
+        byte[] wav = render(20);
+        ByteArrayOutputStream withChunks = new ByteArrayOutputStream();
+        withChunks.write(wav, 0, 16);
+        withChunks.write(littleEndianInt(18)); // Format chunk with an extension of two bytes
+        withChunks.write(wav, 20, 16);
+        withChunks.write(new byte[] {0, 0});
+        withChunks.write(new byte[] {'L', 'I', 'S', 'T'});
+        withChunks.write(littleEndianInt(5)); // Odd size, followed by a pad byte
+        withChunks.write(new byte[] {'I', 'N', 'F', 'O', 'x', 0});
+        withChunks.write(wav, DATA_CHUNK_OFFSET, wav.length - DATA_CHUNK_OFFSET);
+        assertEquals(words(), decode(withChunks.toByteArray()));
+    }
+    
+    @Test
+    void rejectsOtherStreams() throws IOException {
+        byte[] wav = render(20);
+        byte[] notWav = wav.clone();
+        notWav[8] = 'X';
+        assertThrows(ParseException.class, () -> decode(notWav));
+        byte[] eightBits = wav.clone();
+        eightBits[34] = 8;
+        assertThrows(ParseException.class, () -> decode(eightBits));
+        byte[] hugeFormat = wav.clone();
+        ByteBuffer.wrap(hugeFormat).order(ByteOrder.LITTLE_ENDIAN).putInt(16, 0xFFFFFFF0); // Longer than the stream
+        assertThrows(EOFException.class, () -> decode(hugeFormat));
+    }
+    
+    /**
+    * Renders WORDS as a streamed WAV
+    * @param wordsPerMinute The speed
+    * @return the WAV bytes
+    * @throws IOException re-thrown from the renderer
+    */
+    private static byte[] render(double wordsPerMinute) throws IOException {
+        ByteArrayOutputStream wav = new ByteArrayOutputStream();
+        try (MorseAudioRenderer renderer = new MorseAudioRendererBuilder().setWordsPerMinute(wordsPerMinute).createMorseAudioRenderer(wav)) {
+            for (String[] word : WORDS) {
+                for (String token : word)
+                    renderer.renderToken(token, 'o', '-');
+                renderer.endWord();
+            }
+        }
+        return wav.toByteArray();
+    }
+    
+    /**
+    * Decodes a WAV with the default initial speed of the decoder
+    * @param wav The WAV bytes
+    * @return the decoded words
+    * @throws IOException re-thrown from the decoder
+    * @throws ParseException re-thrown from the decoder
+    */
+    private static List<List<String>> decode(byte[] wav) throws IOException, ParseException {
+        List<List<String>> words = new ArrayList<>();
+        List<String> word = new ArrayList<>();
+        new MorseAudioDecoderBuilder().createMorseAudioDecoder('o', '-').decodeWav(new ByteArrayInputStream(wav), new TokenConsumer() {
+            @Override
+            public void acceptToken(char[] buffer, int offset, int length) {
+                word.add(new String(buffer, offset, length));
+            }
+    
+            @Override
+            public void endWord() {
+                words.add(new ArrayList<>(word));
+                word.clear();
+            }
+        });
+        return words;
+    }
+    
+    /**
+    * @return WORDS as lists
+    */
+    private static List<List<String>> words() {
+        List<List<String>> words = new ArrayList<>();
+        for (String[] word : WORDS)
+            words.add(Arrays.asList(word));
+        return words;
+    }
+    
+    /**
+    * @param value A value
+    * @return the value as a 32-bit little-endian integer
+    */
+    private static byte[] littleEndianInt(int value) {
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+    }
+}
@@ -0,0 +1,111 @@
+package compilemorse;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The WAV header of MorseAudioRenderer: written to a file, the sizes are patched when the renderer is closed,
+ * and written to a stream, they are unknown (0xFFFFFFFF).  Both get the same samples.
+ *
+ * @author Kukka
+ */
+class MorseAudioRendererTest {
+    
+    /**
+    * The sample rate of the renderers
+    */
+    static final int SAMPLE_RATE = 8000;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void fileHeaderHasTheSizes() throws IOException {
+        Path file = directory.resolve("sos.wav");
+        MorseAudioRenderer renderer = new MorseAudioRendererBuilder().setSampleRate(SAMPLE_RATE).createMorseAudioRenderer(file);
+        render(renderer);
+        double seconds = renderer.getSeconds();
+        renderer.close();
+    
+        byte[] wav = Files.readAllBytes(file);
+        ByteBuffer header = ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN);
+        assertFormat(wav);
+        int dataSize = wav.length - MorseAudioRenderer.HEADER_SIZE;
+        assertEquals(Math.round(seconds * SAMPLE_RATE * 2), dataSize);
+        assertEquals(dataSize + MorseAudioRenderer.HEADER_SIZE - 8, header.getInt(4));
+        assertEquals(dataSize, header.getInt(40));
+    }
+    
+    @Test
+    void streamHeaderHasUnknownSizes() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try (MorseAudioRenderer renderer = new MorseAudioRendererBuilder().setSampleRate(SAMPLE_RATE).createMorseAudioRenderer(stream)) {
+            render(renderer);
+        }
+        byte[] wav = stream.toByteArray();
+        ByteBuffer header = ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN);
+        assertFormat(wav);
+        assertEquals(0xFFFFFFFF, header.getInt(4));
+        assertEquals(0xFFFFFFFF, header.getInt(40));
+    
+        Path file = directory.resolve("sos.wav");
+        try (MorseAudioRenderer renderer = new MorseAudioRendererBuilder().setSampleRate(SAMPLE_RATE).createMorseAudioRenderer(file)) {
+            render(renderer);
+        }
+        byte[] fileWav = Files.readAllBytes(file);
+        assertArrayEquals(Arrays.copyOfRange(fileWav, MorseAudioRenderer.HEADER_SIZE, fileWav.length),
+            Arrays.copyOfRange(wav, MorseAudioRenderer.HEADER_SIZE, wav.length));
+    }
+    
+    @Test
+    void emptyFileHasAHeaderOnly() throws IOException {
+        Path file = directory.resolve("empty.wav");
+        new MorseAudioRendererBuilder().setSampleRate(SAMPLE_RATE).createMorseAudioRenderer(file).close();
+        byte[] wav = Files.readAllBytes(file);
+        assertEquals(MorseAudioRenderer.HEADER_SIZE, wav.length);
+        assertFormat(wav);
+        ByteBuffer header = ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(MorseAudioRenderer.HEADER_SIZE - 8, header.getInt(4));
+        assertEquals(0, header.getInt(40));
+    }
+    
+    /**
+    * Renders SOS and E as two words
+    * @param renderer The renderer
+    * @throws IOException re-thrown from the renderer
+    */
+    private static void render(MorseAudioRenderer renderer) throws IOException {
+        renderer.renderToken("ooo", 'o', '-');
+        renderer.renderToken("---", 'o', '-');
+        renderer.renderToken("ooo", 'o', '-');
+        renderer.endWord();
+        renderer.renderToken("o", 'o', '-');
+    }
+    
+    /**
+    * Checks the chunk names and the format of the header: 16-bit mono PCM at SAMPLE_RATE
+    * @param wav The WAV bytes
+    */
+    private static void assertFormat(byte[] wav) {
+        ByteBuffer header = ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals("RIFF", new String(wav, 0, 4, StandardCharsets.US_ASCII));
+        assertEquals("WAVEfmt ", new String(wav, 8, 8, StandardCharsets.US_ASCII));
+        assertEquals(16, header.getInt(16));
+        assertEquals(1, header.getShort(20)); // PCM
+        assertEquals(1, header.getShort(22)); // Mono
+        assertEquals(SAMPLE_RATE, header.getInt(24));
+        assertEquals(SAMPLE_RATE * 2, header.getInt(28));
+        assertEquals(2, header.getShort(32));
+        assertEquals(16, header.getShort(34));
+        assertEquals("data", new String(wav, 36, 4, StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,172 @@
+package compilemorse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Stress test of a compiler and an alphabet container shared by several threads: each thread translates all the tokens
+ * many times, starting from a different token, and the translations and the errors must be those of a compiler that is used
+ * by one thread only.  The shared container is built just before the threads start, so the lazily built parts of it
+ * are built while the threads use it.
+ *
+ * @author Kukka
+ */
+class MorseCompilerConcurrencyTest {
+    
+    /**
+    * Seed of the random tokens, fixed so that a failure can be repeated
+    */
+    static final long SEED = 20160518L;
+    
+    /**
+    * Number of threads that share the compiler
+    */
+    static final int THREADS = 8;
+    
+    /**
+    * Number of times each thread translates all the tokens
+    */
+    static final int ROUNDS = 200;
+    
+    @Test
+    void sharedAlphabetMaps() throws Exception {
+        compareThreads(AlphabetMaps::new);
+    }
+    
+    @Test
+    void sharedAlphabetArrays() throws Exception {
+        compareThreads(AlphabetArrays::new);
+    }
+    
+    @Test
+    void sharedAlphabetTree() throws Exception {
+        compareThreads(AlphabetTree::new);
+    }
+    
+    /**
+    * Translates text to morse and morse to text with a shared compiler in several threads and compares with one thread
+    * @param container Builds a new container for the alphabet
+    * @throws Exception if the compilers cannot be built, or a thread fails
+    */
+    private static void compareThreads(Function<Alphabet, AlphabetCollections> container) throws Exception {
+        Alphabet alphabet = new AlphabetBuilder().createAlphabet();
+        for (String method : new String[] {"EnglishToMorse", "MorseToEnglish"}) {
+            List<String> tokens = method.equals("EnglishToMorse") ? textTokens(alphabet) : morseTokens(alphabet);
+            List<String> expected = translateAll(newCompiler(container.apply(alphabet), method), tokens, 0);
+            MorseCompiler shared = newCompiler(container.apply(alphabet), method);
+    
+            ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+            try {
+                CyclicBarrier start = new CyclicBarrier(THREADS);
+                List<Future<List<List<String>>>> results = new ArrayList<>();
+                for (int t=0; t<THREADS; ++t) {
+                    int first = t * tokens.size() / THREADS;
+                    results.add(threads.submit(() -> {
+                        start.await();
+                        List<List<String>> rounds = new ArrayList<>();
+                        for (int r=0; r<ROUNDS; ++r)
+                            rounds.add(translateAll(shared, tokens, first));
+                        return rounds;
+                    }));
+                }
+                for (int t=0; t<THREADS; ++t) {
+                    List<String> rotated = rotate(expected, t * tokens.size() / THREADS);
+                    for (List<String> round : results.get(t).get())
+                        assertEquals(rotated, round, method + " in thread " + t);
+                }
+            }
+            finally {
+                threads.shutdown();
+            }
+        }
+    }
+    
+    /**
+    * @param container The alphabet container
+    * @param method The translation method
+    * @return a compiler with the morse characters o and -
+    * @throws NoSuchMethodException re-thrown from MorseCompilerBuilder
+    */
+    private static MorseCompiler newCompiler(AlphabetCollections container, String method) throws NoSuchMethodException {
+        return new MorseCompilerBuilder().setInputPrototype('o', '-').setOutputPrototype('o', '-').setMethod(method)
+            .setAlphabetContainer(container).createMorseCompiler();
+    }
+    
+    /**
+    * Translates the tokens one by one, beginning from one of them and continuing from the first one after the last one
+    * @param compiler The compiler
+    * @param tokens The tokens
+    * @param first Index of the token translated first
+    * @return the translations, or the messages of the errors
+    */
+    private static List<String> translateAll(MorseCompiler compiler, List<String> tokens, int first) {
+        List<String> translations = new ArrayList<>(tokens.size());
+        for (int i=0; i<tokens.size(); ++i) {
+            String token = tokens.get((first + i) % tokens.size());
+            try {
+                translations.add(compiler.compileToken(token));
+            }
+            catch (IllegalArgumentException e) {
+                translations.add("Error: " + e.getMessage());
+            }
+        }
+        return translations;
+    }
+    
+    /**
+    * @param list A list
+    * @param first Index of the element that becomes the first one
+    * @return the list rotated to begin from the element
+    */
+    private static List<String> rotate(List<String> list, int first) {
+        List<String> rotated = new ArrayList<>(list.subList(first, list.size()));
+        rotated.addAll(list.subList(0, first));
+        return rotated;
+    }
+    
+    /**
+    * @param alphabet The alphabet
+    * @return the text tokens of the alphabet, in lower case as well, and some that are not in the alphabet
+    */
+    private static List<String> textTokens(Alphabet alphabet) {
+        List<String> tokens = new ArrayList<>();
+        for (String textToken : alphabet.getAlphabetMap().keySet()) {
+            tokens.add(textToken);
+            tokens.add(textToken.toLowerCase());
+        }
+        tokens.add("#");
+        tokens.add("NOSUCHMNEMONIC");
+        tokens.add("");
+        return tokens;
+    }
+    
+    /**
+    * @param alphabet The alphabet
+    * @return the morse tokens of the alphabet with the morse characters o and -, and random morse tokens of 1-12 characters
+    */
+    private static List<String> morseTokens(Alphabet alphabet) {
+        char internalShort = alphabet.getMyMorsePrototype().getShortCharacter();
+        char internalLong = alphabet.getMyMorsePrototype().getLongCharacter();
+        List<String> tokens = new ArrayList<>();
+        for (Map.Entry<String, String> entry : alphabet.getAlphabetMap().entrySet())
+            tokens.add(entry.getValue().replace(internalShort, 'o').replace(internalLong, '-'));
+        Random random = new Random(SEED);
+        for (int n=0; n<200; ++n) {
+            StringBuilder token = new StringBuilder();
+            int length = 1 + random.nextInt(12);
+            for (int i=0; i<length; ++i)
+                token.append(random.nextBoolean() ? 'o' : '-');
+            tokens.add(token.toString());
+        }
+        tokens.add("o.-");
+        return tokens;
+    }
+}
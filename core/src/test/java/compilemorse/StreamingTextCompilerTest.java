@@ -0,0 +1,118 @@
+package compilemorse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The error policies of StreamingTextCompiler, with a one-character input field separator and with a separator of several characters:
+ * the translated lines, the rejected lines in the tab-separated reject format, and the metrics of the lines that are left out.
+ *
+ * @author Kukka
+ */
+class StreamingTextCompilerTest {
+    
+    /**
+    * Lines with the separator ".": a good line, an unknown token at offset 2, two delimeters at offset 1, and a good line
+    */
+    static final String[] INPUT = {"S.O.S", "S.#.S", "S..O", "E"};
+    
+    /**
+    * The same lines with the separator "::"
+    */
+    static final String[] LONG_INPUT = {"S::O::S", "S::#::S", "S::::O", "E"};
+    
+    @Test
+    void skip() throws IOException, ParseException, NoSuchMethodException {
+        assertEquals(Arrays.asList("ooo --- ooo", "ooo ooo", null, "o"), compile(INPUT, ".", ErrorPolicy.SKIP, null));
+        assertEquals(Arrays.asList("ooo --- ooo", "ooo ooo", null, "o"), compile(LONG_INPUT, "::", ErrorPolicy.SKIP, null));
+    }
+    
+    @Test
+    void placeholder() throws IOException, ParseException, NoSuchMethodException {
+        assertEquals(Arrays.asList("ooo --- ooo", "ooo # ooo", "#", "o"), compile(INPUT, ".", ErrorPolicy.PLACEHOLDER, null));
+        assertEquals(Arrays.asList("ooo --- ooo", "ooo # ooo", "#", "o"), compile(LONG_INPUT, "::", ErrorPolicy.PLACEHOLDER, null));
+    }
+    
+    @Test
+    void reject() throws IOException, ParseException, NoSuchMethodException {
+        StringWriter rejected = new StringWriter();
+        assertEquals(Arrays.asList("ooo --- ooo", null, null, "o"), compile(INPUT, ".", ErrorPolicy.REJECT, rejected));
+        assertEquals("2\t2\tToken cannot be translated\tS.#.S\n"
+            + "3\t1\tParse error: two consequtive delemeters in input string at least once\tS..O\n", rejected.toString());
+    
+        rejected = new StringWriter();
+        assertEquals(Arrays.asList("ooo --- ooo", null, null, "o"), compile(LONG_INPUT, "::", ErrorPolicy.REJECT, rejected));
+        assertEquals("2\t-1\tToken cannot be translated\tS::#::S\n" // The offset of a token is not known with a long separator
+            + "3\t1\tParse error: two consequtive delemeters in input string at least once\tS::::O\n", rejected.toString());
+    }
+    
+    @Test
+    void failFast() throws NoSuchMethodException {
+        StringWriter output = new StringWriter();
+        IllegalArgumentException unknown = assertThrows(IllegalArgumentException.class,
+            () -> newCompiler(".", ErrorPolicy.FAIL_FAST, null).compile(new StringReader(String.join("\n", INPUT)), output));
+        assertTrue(unknown.getMessage().contains("#"), unknown.getMessage());
+        assertEquals("ooo --- ooo", output.toString()); // The lines before the error
+    
+        ParseException parseError = assertThrows(ParseException.class,
+            () -> newCompiler("::", ErrorPolicy.FAIL_FAST, null).compile(new StringReader("E\nS::::O\n"), new StringWriter()));
+        assertEquals(1, parseError.getErrorOffset());
+    }
+    
+    @Test
+    void leftOutLinesAreCounted() throws IOException, ParseException, NoSuchMethodException {
+        for (String separator : new String[] {".", "::"}) {
+            String line = separator.repeat(4) + "E\n";
+            TranslationMetrics metrics = new TranslationMetrics();
+            StringWriter output = new StringWriter();
+            newCompiler(separator, ErrorPolicy.REJECT, metrics).compile(new StringReader(line.repeat(100)), output, new StringWriter(), 1);
+            assertEquals("", output.toString());
+            assertEquals(100, metrics.getLinesRead());
+            assertEquals(100, metrics.getBadLines());
+            assertTrue(metrics.getParseNanos() > 0, "The lines that are left out are timed, separator " + separator);
+        }
+    }
+    
+    /**
+    * Translates lines from text to morse one at a time with an error policy
+    * @param input The lines
+    * @param separator The input field separator
+    * @param policy The error policy
+    * @param rejectWriter The output for the rejected lines, or null
+    * @return the translated lines, null for a line that is left out
+    * @throws IOException re-thrown from the translation
+    * @throws ParseException re-thrown from the translation
+    * @throws NoSuchMethodException re-thrown from MorseCompilerBuilder
+    */
+    private static List<String> compile(String[] input, String separator, ErrorPolicy policy, StringWriter rejectWriter)
+      throws IOException, ParseException, NoSuchMethodException {
+        StreamingTextCompiler compiler = newCompiler(separator, policy, null);
+        compiler.startLines(rejectWriter, 1);
+        List<String> output = new ArrayList<>();
+        for (String line : input)
+            output.add(compiler.compileLine(line.toCharArray(), 0, line.length()));
+        return output;
+    }
+    
+    /**
+    * @param separator The input field separator
+    * @param policy The error policy
+    * @param metrics The metrics, or null
+    * @return a streaming compiler from text to morse with the output field separator " " and the placeholder "#"
+    * @throws NoSuchMethodException re-thrown from MorseCompilerBuilder
+    */
+    private static StreamingTextCompiler newCompiler(String separator, ErrorPolicy policy, TranslationMetrics metrics)
+      throws NoSuchMethodException {
+        MorseCompiler compiler = new MorseCompilerBuilder().setOutputPrototype('o', '-').setMethod("EnglishToMorse")
+            .createMorseCompiler();
+        return new StreamingTextCompiler(compiler, separator, " ", metrics, policy, "#");
+    }
+}
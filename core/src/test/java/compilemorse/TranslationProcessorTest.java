@@ -0,0 +1,203 @@
+package compilemorse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The backpressure, line ends and termination of TranslationProcessor with chunks of text as the input.
+ * The input is given by calling the processor directly, and the requests and the cancel of the processor are recorded.
+ *
+ * @author Kukka
+ */
+class TranslationProcessorTest {
+    
+    @Test
+    void requestOfOneYieldsOneLine() throws NoSuchMethodException {
+        Upstream upstream = new Upstream();
+        Downstream downstream = new Downstream();
+        TranslationProcessor processor = subscribe(ErrorPolicy.SKIP, upstream, downstream);
+        assertEquals(0, upstream.requested);
+    
+        downstream.subscription.request(1);
+        assertEquals(1, upstream.requested);
+        processor.onNext("S\nO\nS\n"); // Three lines in one chunk
+        assertEquals(Arrays.asList("ooo"), downstream.lines);
+        downstream.subscription.request(1);
+        assertEquals(Arrays.asList("ooo", "---"), downstream.lines);
+        downstream.subscription.request(1);
+        assertEquals(Arrays.asList("ooo", "---", "ooo"), downstream.lines);
+        assertEquals(1, upstream.requested); // No demand left for the next chunk
+    
+        downstream.subscription.request(1);
+        assertEquals(2, upstream.requested);
+        processor.onComplete();
+        assertTrue(downstream.completed);
+        assertNull(downstream.error);
+    }
+    
+    @Test
+    void lineEndSplitBetweenChunks() throws NoSuchMethodException {
+        Downstream downstream = new Downstream();
+        TranslationProcessor processor = subscribe(ErrorPolicy.SKIP, new Upstream(), downstream);
+        downstream.subscription.request(Long.MAX_VALUE);
+        processor.onNext("S.O");
+        processor.onNext(".S\r"); // \r\n, not two line ends
+        processor.onNext("\nE\r");
+        processor.onNext("T\n");
+        processor.onComplete();
+        assertEquals(Arrays.asList("ooo --- ooo", "o", "-"), downstream.lines);
+        assertTrue(downstream.completed);
+    }
+    
+    @Test
+    void lastLineWithoutLineEnd() throws NoSuchMethodException {
+        Downstream downstream = new Downstream();
+        TranslationProcessor processor = subscribe(ErrorPolicy.SKIP, new Upstream(), downstream);
+        downstream.subscription.request(Long.MAX_VALUE);
+        processor.onNext("S.O.S\nE.");
+        processor.onNext("T");
+        assertEquals(Arrays.asList("ooo --- ooo"), downstream.lines);
+        processor.onComplete();
+        assertEquals(Arrays.asList("ooo --- ooo", "o -"), downstream.lines);
+        assertTrue(downstream.completed);
+    }
+    
+    @Test
+    void cancelCancelsTheInput() throws NoSuchMethodException {
+        Upstream upstream = new Upstream();
+        Downstream downstream = new Downstream();
+        TranslationProcessor processor = subscribe(ErrorPolicy.SKIP, upstream, downstream);
+        downstream.subscription.request(1);
+        processor.onNext("S\nO\n");
+        downstream.subscription.cancel();
+        assertTrue(upstream.cancelled);
+        downstream.subscription.request(1);
+        assertEquals(Arrays.asList("ooo"), downstream.lines);
+        assertFalse(downstream.completed);
+        assertNull(downstream.error);
+    }
+    
+    @Test
+    void requestOfZeroIsAnError() throws NoSuchMethodException {
+        Upstream upstream = new Upstream();
+        Downstream downstream = new Downstream();
+        subscribe(ErrorPolicy.SKIP, upstream, downstream);
+        downstream.subscription.request(0);
+        assertTrue(downstream.error instanceof IllegalArgumentException, String.valueOf(downstream.error));
+        assertTrue(upstream.cancelled);
+        assertFalse(downstream.completed);
+    }
+    
+    @Test
+    void failFastErrorFollowsTheTranslatedLines() throws NoSuchMethodException {
+        Upstream upstream = new Upstream();
+        Downstream downstream = new Downstream();
+        TranslationProcessor processor = subscribe(ErrorPolicy.FAIL_FAST, upstream, downstream);
+        downstream.subscription.request(1);
+        processor.onNext("S\nO\n#\nE\n");
+        assertTrue(upstream.cancelled);
+        assertEquals(Arrays.asList("ooo"), downstream.lines);
+        assertNull(downstream.error); // Not before the line that has not been requested yet
+        downstream.subscription.request(1);
+        assertEquals(Arrays.asList("ooo", "---"), downstream.lines);
+        assertTrue(downstream.error instanceof IllegalArgumentException, String.valueOf(downstream.error));
+        assertFalse(downstream.completed);
+    }
+    
+    /**
+    * Creates a processor of chunks from text to morse and subscribes it to the input and the subscriber to it
+    * @param policy The error policy
+    * @param upstream The subscription to the input
+    * @param downstream The subscriber of the translated lines
+    * @return the processor
+    * @throws NoSuchMethodException re-thrown from MorseCompilerBuilder
+    */
+    private static TranslationProcessor subscribe(ErrorPolicy policy, Upstream upstream, Downstream downstream)
+      throws NoSuchMethodException {
+        MorseCompiler compiler = new MorseCompilerBuilder().setOutputPrototype('o', '-').setMethod("EnglishToMorse")
+            .createMorseCompiler();
+        TranslationProcessor processor = new TranslationProcessor(new StreamingTextCompiler(compiler, ".", " ", null, policy, "#"),
+            false, null);
+        processor.onSubscribe(upstream);
+        processor.subscribe(downstream);
+        return processor;
+    }
+    
+    /**
+    * The subscription to the input, which records the requests and the cancel
+    */
+    private static final class Upstream implements Flow.Subscription {
+    
+        /**
+        * Number of items requested
+        */
+        long requested = 0;
+    
+        /**
+        * Tells whether the subscription has been cancelled
+        */
+        boolean cancelled = false;
+    
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+    
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+    
+    /**
+    * The subscriber of the translated lines, which records the lines and the end of the output
+    */
+    private static final class Downstream implements Flow.Subscriber<String> {
+    
+        /**
+        * The subscription to the processor
+        */
+        Flow.Subscription subscription = null;
+    
+        /**
+        * The published lines
+        */
+        final List<String> lines = new ArrayList<>();
+    
+        /**
+        * The error that ended the output, or null
+        */
+        Throwable error = null;
+    
+        /**
+        * Tells whether the output has completed
+        */
+        boolean completed = false;
+    
+        @Override
+        public void onSubscribe(Flow.Subscription pSubscription) {
+            subscription = pSubscription;
+        }
+    
+        @Override
+        public void onNext(String item) {
+            lines.add(item);
+        }
+    
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+    
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}